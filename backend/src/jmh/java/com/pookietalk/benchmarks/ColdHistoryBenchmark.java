@@ -0,0 +1,91 @@
+package com.pookietalk.benchmarks;
+
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.services.MessageArchive;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of reading one page of archived history from {@link MessageArchive}. One chat of
+ * {@code messages} messages is written as 20,000-message segments, and each call reads the page
+ * before a random cursor, as a client scrolling back would.
+ * <ul>
+ *     <li>{@code pageBefore}: a page of 50, newest first, with the segments already mapped.</li>
+ *     <li>{@code pageAfter}: the same, paging forwards.</li>
+ * </ul>
+ * {@code blockSize} trades compression ratio (larger blocks) against the bytes inflated per page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColdHistoryBenchmark {
+
+    private static final long CHAT_ID = 1L;
+    private static final int PAGE_SIZE = 50;
+    private static final int SEGMENT_SIZE = 20_000;
+
+    @Param({"32", "128", "512"})
+    public int blockSize;
+
+    @Param({"200000"})
+    public int messages;
+
+    private Path dir;
+    private MessageArchive archive;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("cold-history");
+        archive = new MessageArchive(dir, blockSize, 100, new SimpleMeterRegistry());
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+        for (int from = 1; from <= messages; from += SEGMENT_SIZE) {
+            List<MessageDTO> segment = new ArrayList<>(SEGMENT_SIZE);
+            for (long id = from; id < from + SEGMENT_SIZE && id <= messages; id++) {
+                segment.add(MessageDTO.builder()
+                        .id(id)
+                        .chatId(CHAT_ID)
+                        .senderId(id % 7)
+                        .content("Archived message number " + id + ", long enough to resemble a typical chat line")
+                        .timestamp(start.plusSeconds(id))
+                        .build());
+            }
+            archive.append(CHAT_ID, segment);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void pageBefore(Blackhole blackhole) {
+        long cursor = ThreadLocalRandom.current().nextLong(PAGE_SIZE + 1, messages + 1);
+        blackhole.consume(archive.readBefore(CHAT_ID, cursor, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public void pageAfter(Blackhole blackhole) {
+        long cursor = ThreadLocalRandom.current().nextLong(0, messages - PAGE_SIZE);
+        blackhole.consume(archive.readAfter(CHAT_ID, cursor, PAGE_SIZE));
+    }
+}
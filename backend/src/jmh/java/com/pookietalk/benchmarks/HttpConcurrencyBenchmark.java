@@ -0,0 +1,141 @@
+package com.pookietalk.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop HTTP load against a running backend. It compares the platform-thread and
+ * virtual-thread modes ({@code threads.virtual.*}). For each concurrency level, that many
+ * clients send requests back to back for a fixed time. The benchmark reports throughput,
+ * p50/p99 latency and the error rate. The highest level that stays under 1% errors and within
+ * the p99 budget is reported as the maximum sustainable concurrency.
+ *
+ * <p>This is not a JMH benchmark because the measured code runs in another JVM. Start the
+ * backend once per mode, then run:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.pookietalk.benchmarks.HttpConcurrencyBenchmark \
+ *     -Dexec.args="http://localhost:8080/api/chats/user/alice &lt;jwt&gt; 50,200,800,3200 10 250"
+ * </pre>
+ * Arguments: url, bearer token ("-" for none), concurrency levels, seconds per level, p99 budget in ms.
+ */
+public class HttpConcurrencyBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: HttpConcurrencyBenchmark <url> [token|-] [levels] [seconds] [p99-budget-ms]");
+            System.exit(2);
+        }
+        URI uri = URI.create(args[0]);
+        String token = args.length > 1 && !"-".equals(args[1]) ? args[1] : null;
+        int[] levels = Arrays.stream((args.length > 2 ? args[2] : "50,200,800,3200").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Duration perLevel = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 10);
+        long p99BudgetMillis = args.length > 4 ? Long.parseLong(args[4]) : 250;
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET();
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        HttpRequest request = builder.build();
+
+        System.out.printf("%-8s %10s %10s %10s %8s%n", "clients", "req/s", "p50 ms", "p99 ms", "errors");
+        int maxSustained = 0;
+        for (int clients : levels) {
+            Result result = runLevel(request, clients, perLevel);
+            System.out.printf("%-8d %10.0f %10.1f %10.1f %7.2f%%%n", clients, result.throughput(),
+                    result.percentileMillis(0.50), result.percentileMillis(0.99), result.errorRate() * 100);
+            if (result.errorRate() < 0.01 && result.percentileMillis(0.99) <= p99BudgetMillis) {
+                maxSustained = clients;
+            }
+        }
+        System.out.printf("max sustained concurrency (p99 <= %d ms, < 1%% errors): %d%n", p99BudgetMillis, maxSustained);
+    }
+
+    private static Result runLevel(HttpRequest request, int clients, Duration duration) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Worker>> futures = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> new Worker().run(client, request, deadline)));
+            }
+        }
+
+        long errors = 0;
+        int total = 0;
+        List<Worker> workers = new ArrayList<>(clients);
+        for (Future<Worker> future : futures) {
+            Worker worker = future.get();
+            workers.add(worker);
+            errors += worker.errors;
+            total += worker.count;
+        }
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            offset += worker.count;
+        }
+        Arrays.sort(latencies);
+        return new Result(latencies, errors, duration);
+    }
+
+    private static final class Worker {
+        long[] latencies = new long[1024];
+        int count;
+        long errors;
+
+        Worker run(HttpClient client, HttpRequest request, long deadline) {
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() >= 400) {
+                        errors++;
+                    }
+                } catch (Exception e) {
+                    errors++;
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+            }
+            return this;
+        }
+    }
+
+    private record Result(long[] sortedLatencies, long errors, Duration duration) {
+
+        double throughput() {
+            return sortedLatencies.length / (duration.toNanos() / 1e9);
+        }
+
+        double errorRate() {
+            return sortedLatencies.length == 0 ? 1.0 : (double) errors / sortedLatencies.length;
+        }
+
+        double percentileMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(percentile * sortedLatencies.length) - 1);
+            return TimeUnit.NANOSECONDS.toMicros(sortedLatencies[Math.max(0, index)]) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.pookietalk.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files, such as a stored baseline and a fresh {@code target/jmh-result.json},
+ * and exits with status 1 if any benchmark regressed. A result counts as a regression when it is
+ * worse by more than the threshold and the two error intervals do not overlap, so noisy runs do
+ * not fail the build. Throughput benchmarks regress when they fall, and time-based modes regress
+ * when they rise. Benchmarks present in only one file are listed but never fail the comparison.
+ *
+ * <pre>
+ * cp target/jmh-result.json jmh-baseline.json    # on the reference commit
+ * mvn -Pbenchmark test-compile exec:exec         # on the change
+ * mvn -Pbenchmark exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.pookietalk.benchmarks.JmhResultComparison \
+ *     -Dexec.args="jmh-baseline.json target/jmh-result.json 10"
+ * </pre>
+ * Arguments: baseline file, current file, threshold in percent (default 10).
+ */
+public class JmhResultComparison {
+
+    private record Result(String mode, double score, double error, String unit) {
+
+        boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: JmhResultComparison <baseline.json> <current.json> [threshold-percent]");
+            System.exit(2);
+        }
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+        double threshold = (args.length > 2 ? Double.parseDouble(args[2]) : 10) / 100;
+
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%-70s %14s %14s %9s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result after = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.3f %9s%n", entry.getKey(), "-", after.score(), "new");
+                continue;
+            }
+            double change = (after.score() - before.score()) / before.score();
+            double worsening = after.higherIsBetter() ? -change : change;
+            boolean separated = after.higherIsBetter()
+                    ? after.score() + after.error() < before.score() - before.error()
+                    : after.score() - after.error() > before.score() + before.error();
+            boolean regressed = worsening > threshold && separated;
+            if (regressed) {
+                regressions.add(entry.getKey());
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), before.score(), after.score(),
+                    change * 100, after.unit(), regressed ? "  REGRESSION" : "");
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.printf("%-70s %14.3f %14s %9s%n", name, baseline.get(name).score(), "-", "missing");
+            }
+        }
+
+        if (!regressions.isEmpty()) {
+            System.out.printf("%n%d benchmark(s) regressed by more than %.0f%%: %s%n",
+                    regressions.size(), threshold * 100, String.join(", ", regressions));
+            System.exit(1);
+        }
+        System.out.printf("%nNo regressions beyond %.0f%%%n", threshold * 100);
+    }
+
+    // Keyed by benchmark name plus its @Param values, e.g. "...LoginBenchmark.legacy{strength=10}"
+    private static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            JsonNode params = run.path("params");
+            if (params.isObject() && !params.isEmpty()) {
+                Map<String, String> sorted = new TreeMap<>();
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    sorted.put(param.getKey(), param.getValue().asText());
+                }
+                key.append(sorted);
+            }
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            results.put(key.toString().replace("com.pookietalk.benchmarks.", ""), new Result(run.path("mode").asText(),
+                    metric.path("score").asDouble(), Double.isNaN(error) ? 0 : error, metric.path("scoreUnit").asText()));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,72 @@
+package com.pookietalk.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.pookietalk.dto.ChatDTO;
+import com.pookietalk.dto.MessageDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing the JSON bodies of a history page and a chat listing. The mapper is built like
+ * Spring Boot's, with ISO dates, and the writers are resolved once, as Spring MVC caches them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"50", "200"})
+    public int size;
+
+    private ObjectWriter messageWriter;
+    private ObjectWriter chatWriter;
+    private List<MessageDTO> messages;
+    private List<ChatDTO> chats;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        messageWriter = objectMapper.writerFor(new TypeReference<List<MessageDTO>>() { });
+        chatWriter = objectMapper.writerFor(new TypeReference<List<ChatDTO>>() { });
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        messages = new ArrayList<>(size);
+        chats = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            messages.add(new MessageDTO(1_000_000L + i, 42L, 7L + i % 5,
+                    "Message number " + i + " with a typical sentence of chat text.", start.plusSeconds(i)));
+            ChatDTO chat = new ChatDTO();
+            chat.setId(100L + i);
+            chat.setChatName("Chat " + i);
+            Set<Long> participants = new HashSet<>();
+            for (long p = 0; p < 4; p++) {
+                participants.add(i * 4 + p);
+            }
+            chat.setParticipantIds(participants);
+            chat.setUnreadCount(i % 7);
+            chats.add(chat);
+        }
+    }
+
+    @Benchmark
+    public byte[] messageList() throws Exception {
+        return messageWriter.writeValueAsBytes(messages);
+    }
+
+    @Benchmark
+    public byte[] chatList() throws Exception {
+        return chatWriter.writeValueAsBytes(chats);
+    }
+}
@@ -0,0 +1,102 @@
+package com.pookietalk.benchmarks;
+
+import com.pookietalk.services.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request's bearer token, plus the public {@link JwtService}
+ * operations on their own.
+ * <ul>
+ *     <li>{@code perRequestRebuild}: the previous filter path. It decoded the key and built
+ *     a parser on every call, and parsed the token twice.</li>
+ *     <li>{@code parseOnceUncached}: a cached key and parser, with one parse per request.</li>
+ *     <li>{@code parseOnceCached}: the same, but the token was verified recently.</li>
+ *     <li>{@code generateToken}, {@code extractUsername}, {@code isTokenValid}: one call each,
+ *     without the verified-token cache.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtServiceBenchmark {
+
+    static final String SECRET = "aVeryLongAndSecureJwtSecretKeyThatIsAtLeast32BytesLong";
+
+    private JwtService uncachedService;
+    private JwtService cachedService;
+    private UserDetails user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        uncachedService = newJwtService(0);
+        cachedService = newJwtService(10_000);
+        user = new User("benchmark-user", "", List.of());
+        token = cachedService.generateToken(user);
+    }
+
+    static JwtService newJwtService(long cacheSize) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKey", SECRET);
+        ReflectionTestUtils.setField(service, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(service, "verifiedTokenCacheSize", cacheSize);
+        ReflectionTestUtils.setField(service, "verifiedTokenCacheTtl", Duration.ofMinutes(5));
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    @Benchmark
+    public boolean perRequestRebuild() {
+        String username = legacyParse(token).getSubject();
+        Claims claims = legacyParse(token);
+        return username.equals(user.getUsername()) && claims.getExpiration().after(new Date());
+    }
+
+    @Benchmark
+    public boolean parseOnceUncached() {
+        Claims claims = uncachedService.parseToken(token);
+        return uncachedService.isTokenValid(claims, user);
+    }
+
+    @Benchmark
+    public boolean parseOnceCached() {
+        Claims claims = cachedService.parseToken(token);
+        return cachedService.isTokenValid(claims, user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return uncachedService.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return uncachedService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return uncachedService.isTokenValid(token, user);
+    }
+
+    private static Claims legacyParse(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    }
+}
@@ -0,0 +1,120 @@
+package com.pookietalk.benchmarks;
+
+import com.pookietalk.dto.AuthRequestDTO;
+import com.pookietalk.dto.AuthResponseDTO;
+import com.pookietalk.models.Role;
+import com.pookietalk.models.User;
+import com.pookietalk.services.AuthService;
+import com.pookietalk.services.JwtService;
+import com.pookietalk.utils.PasswordUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Login throughput with more concurrent requests than cores, as under a Tomcat worker pool. A
+ * user lookup is simulated as a parked database round trip of {@code lookupMicros}.
+ * <ul>
+ *     <li>{@code legacy}: the previous path. The user was read three times and BCrypt ran on
+ *     the request thread.</li>
+ *     <li>{@code singleLookupCallerThreads}: the principal is reused, BCrypt still runs on the
+ *     request thread.</li>
+ *     <li>{@code singleLookupBoundedPool}: the current path. BCrypt runs on PasswordUtil's pool
+ *     of one thread per core.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class LoginBenchmark {
+
+    private static final String USERNAME = "benchmark-user";
+    private static final String PASSWORD = "benchmark-password";
+
+    @Param({"10"})
+    public int strength;
+
+    @Param({"500"})
+    public long lookupMicros;
+
+    private PasswordUtil passwordUtil;
+    private User user;
+    private JwtService jwtService;
+    private AuthenticationManager callerThreadManager;
+    private AuthService callerThreadService;
+    private AuthService boundedPoolService;
+    private AuthRequestDTO request;
+
+    @Setup
+    public void setUp() {
+        passwordUtil = new PasswordUtil(strength, 0, 1024, new SimpleMeterRegistry());
+        user = new User(1L, USERNAME, passwordUtil.encode(PASSWORD), "benchmark@example.com", Role.USER);
+        jwtService = JwtServiceBenchmark.newJwtService(0);
+        callerThreadManager = authenticationManager(new BCryptPasswordEncoder(strength));
+        callerThreadService = authService(callerThreadManager);
+        boundedPoolService = authService(authenticationManager(passwordUtil.asPasswordEncoder()));
+        request = AuthRequestDTO.builder().username(USERNAME).password(PASSWORD).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ReflectionTestUtils.invokeMethod(passwordUtil, "shutdown");
+    }
+
+    @Benchmark
+    public AuthResponseDTO legacy() {
+        callerThreadManager.authenticate(new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD));
+        User userDetails = lookup(USERNAME);
+        User loaded = lookup(USERNAME);
+        return new AuthResponseDTO(jwtService.generateToken(userDetails), loaded.getId(),
+                loaded.getUsername(), loaded.getEmail());
+    }
+
+    @Benchmark
+    public AuthResponseDTO singleLookupCallerThreads() {
+        return callerThreadService.authenticate(request);
+    }
+
+    @Benchmark
+    public AuthResponseDTO singleLookupBoundedPool() {
+        return boundedPoolService.authenticate(request);
+    }
+
+    private User lookup(String username) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(lookupMicros));
+        if (!user.getUsername().equals(username)) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
+        return user;
+    }
+
+    private AuthenticationManager authenticationManager(PasswordEncoder passwordEncoder) {
+        UserDetailsService userDetailsService = this::lookup;
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        return new ProviderManager(provider);
+    }
+
+    private AuthService authService(AuthenticationManager authenticationManager) {
+        AuthService service = new AuthService();
+        ReflectionTestUtils.setField(service, "authenticationManager", authenticationManager);
+        ReflectionTestUtils.setField(service, "jwtService", jwtService);
+        return service;
+    }
+}
@@ -0,0 +1,74 @@
+package com.pookietalk.benchmarks;
+
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.models.Chat;
+import com.pookietalk.models.Message;
+import com.pookietalk.models.User;
+import com.pookietalk.services.MessageService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one page of message rows into {@link MessageDTO}s with MessageService's own
+ * conversion. The private method is called through a constant method handle, which the JIT
+ * inlines like a direct call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageConversionBenchmark {
+
+    private static final MethodHandle CONVERT_TO_DTO;
+
+    static {
+        try {
+            CONVERT_TO_DTO = MethodHandles.privateLookupIn(MessageService.class, MethodHandles.lookup())
+                    .findVirtual(MessageService.class, "convertToDTO", MethodType.methodType(MessageDTO.class, Message.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({"50", "200"})
+    public int pageSize;
+
+    private MessageService messageService;
+    private List<Message> rows;
+
+    @Setup
+    public void setUp() {
+        messageService = new MessageService();
+        Chat chat = new Chat(42L);
+        User sender = User.builder().id(7L).username("sender").build();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        rows = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Message message = new Message();
+            message.setId(1_000_000L + i);
+            message.setChat(chat);
+            message.setSender(sender);
+            message.setContent("Message number " + i + " with a typical sentence of chat text.");
+            message.setTimestamp(start.plusSeconds(i));
+            rows.add(message);
+        }
+    }
+
+    @Benchmark
+    public List<MessageDTO> convertPage() throws Throwable {
+        List<MessageDTO> page = new ArrayList<>(rows.size());
+        for (Message row : rows) {
+            page.add((MessageDTO) CONVERT_TO_DTO.invokeExact(messageService, row));
+        }
+        return page;
+    }
+}
@@ -0,0 +1,51 @@
+package com.pookietalk.benchmarks;
+
+import com.pookietalk.utils.PasswordUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt cost per hash at several strengths, including the hand-off to PasswordUtil's pool.
+ * Each strength step doubles the work, so use this to pick {@code security.bcrypt.strength}
+ * for the target hardware.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordUtilBenchmark {
+
+    private static final String PASSWORD = "Benchmark-Passw0rd!";
+
+    @Param({"4", "8", "10", "12"})
+    public int strength;
+
+    private PasswordUtil passwordUtil;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        passwordUtil = new PasswordUtil(strength, 1, 16, new SimpleMeterRegistry());
+        hash = passwordUtil.encode(PASSWORD);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ReflectionTestUtils.invokeMethod(passwordUtil, "shutdown");
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordUtil.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return passwordUtil.verifyPassword(PASSWORD, hash);
+    }
+}
@@ -0,0 +1,70 @@
+package com.pookietalk.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.utils.CborWireFormat;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding one pushed chat message: the JSON every session receives by default, CBOR written
+ * straight from the object, and CBOR transcoded from the JSON, which is what a CBOR session
+ * costs on the fan-out path. Bytes per message for each format are printed once per fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    // Characters of message text
+    @Param({"20", "200"})
+    public int contentLength;
+
+    private ObjectWriter jsonWriter;
+    private ObjectWriter cborWriter;
+    private CborWireFormat cborWireFormat;
+    private MessageDTO message;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Like Spring Boot's mapper, which the STOMP converter uses: ISO strings for dates
+        ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        jsonWriter = jsonMapper.writerFor(MessageDTO.class);
+        cborWireFormat = new CborWireFormat(Set.of("timestamp"), ZoneId.systemDefault());
+        cborWriter = cborWireFormat.newObjectMapper().writerFor(MessageDTO.class);
+
+        message = new MessageDTO(7_300_000_000_000_000_001L, 7_299_999_999_999_000_042L, 7_299_999_999_999_000_007L,
+                "x".repeat(contentLength), LocalDateTime.of(2024, 1, 1, 12, 0, 0, 123_000_000));
+        json = jsonWriter.writeValueAsBytes(message);
+        System.out.printf("%nBytes per message (content %d chars): JSON %d, CBOR %d%n",
+                contentLength, json.length, cborWriter.writeValueAsBytes(message).length);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() throws Exception {
+        return jsonWriter.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] cborEncode() throws Exception {
+        return cborWriter.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] cborTranscodeFromJson() {
+        return cborWireFormat.transcode(json);
+    }
+}
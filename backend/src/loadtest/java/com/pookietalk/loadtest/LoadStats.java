@@ -0,0 +1,122 @@
+package com.pookietalk.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and the delivery latency recorder shared by all simulated clients. Only messages
+ * whose intended send time falls in the measured window are counted, so warm-up traffic and
+ * messages still in flight at the end do not skew the results.
+ *
+ * <p>Latency runs from the time a message was scheduled to be sent, not the time the send call
+ * returned. A backend that stalls senders is therefore charged for the wait (no coordinated
+ * omission).
+ */
+final class LoadStats {
+
+    static final String MARKER = "lt:";
+
+    private final Recorder latencyMicros = new Recorder(3);
+    private final Histogram total = new Histogram(3);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder expected = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder typingDelivered = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder transportErrors = new LongAdder();
+
+    private volatile long windowStart = Long.MAX_VALUE;
+    private volatile long windowEnd = Long.MAX_VALUE;
+
+    void setWindow(long startNanos, long endNanos) {
+        this.windowStart = startNanos;
+        this.windowEnd = endNanos;
+    }
+
+    static String content(long intendedNanos, int payloadBytes) {
+        String prefix = MARKER + intendedNanos + ":";
+        return prefix + "x".repeat(Math.max(0, payloadBytes - prefix.length()));
+    }
+
+    /**
+     * @param subscribers sessions expected to receive the message
+     */
+    void onSent(long intendedNanos, int subscribers) {
+        if (inWindow(intendedNanos)) {
+            sent.increment();
+            expected.add(subscribers);
+        }
+    }
+
+    void onDelivered(byte[] payload, long receivedNanos) {
+        // Latin-1 keeps the scan cheap; the marker and digits are ASCII
+        String frame = new String(payload, StandardCharsets.ISO_8859_1);
+        int start = frame.indexOf(MARKER);
+        if (start < 0) {
+            return;
+        }
+        int end = frame.indexOf(':', start + MARKER.length());
+        long intendedNanos = Long.parseLong(frame, start + MARKER.length(), end, 10);
+        if (inWindow(intendedNanos)) {
+            delivered.increment();
+            latencyMicros.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(receivedNanos - intendedNanos)));
+        }
+    }
+
+    void onTypingDelivered() {
+        typingDelivered.increment();
+    }
+
+    void onRejected() {
+        rejected.increment();
+    }
+
+    void onTransportError() {
+        transportErrors.increment();
+    }
+
+    private boolean inWindow(long nanos) {
+        return nanos >= windowStart && nanos < windowEnd;
+    }
+
+    /**
+     * @return latencies recorded since the previous call, also added to {@link #total()}
+     */
+    synchronized Histogram interval() {
+        Histogram interval = latencyMicros.getIntervalHistogram();
+        total.add(interval);
+        return interval;
+    }
+
+    synchronized Histogram total() {
+        return total;
+    }
+
+    long sent() {
+        return sent.sum();
+    }
+
+    long expected() {
+        return expected.sum();
+    }
+
+    long delivered() {
+        return delivered.sum();
+    }
+
+    long typingDelivered() {
+        return typingDelivered.sum();
+    }
+
+    long rejected() {
+        return rejected.sum();
+    }
+
+    long transportErrors() {
+        return transportErrors.sum();
+    }
+}
@@ -0,0 +1,94 @@
+package com.pookietalk.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings of one {@link StompLoadTest} run, parsed from {@code key=value} arguments. Arguments
+ * starting with {@code --} are not options; they are passed to the backend as Spring properties.
+ *
+ * @param clients       simulated users, each with its own STOMP session
+ * @param chatSize      users per chat; every user is in exactly one chat
+ * @param senderRatio   share of clients that send messages (the rest only subscribe)
+ * @param rate          messages per second per sending client
+ * @param payloadBytes  approximate message content size
+ * @param subscriptions topics each client subscribes to
+ * @param connectRate   new STOMP sessions per second while ramping up
+ * @param warmup        load applied before measuring starts
+ * @param duration      measured period
+ * @param histogram     file for the full latency distribution (HdrHistogram percentile output)
+ * @param springArgs    extra backend properties, overriding the harness defaults
+ */
+public record LoadTestOptions(int clients,
+                              int chatSize,
+                              double senderRatio,
+                              double rate,
+                              int payloadBytes,
+                              Set<Topic> subscriptions,
+                              int connectRate,
+                              Duration warmup,
+                              Duration duration,
+                              String histogram,
+                              List<String> springArgs) {
+
+    public enum Topic {
+        // The chat's message topic; latency is measured on it
+        MESSAGES,
+        // The chat's typing topic; senders then also send a typing frame half a period before each message
+        TYPING,
+        // The user's error queue, to count rejected sends
+        ERRORS
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                springArgs.add(arg);
+                continue;
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 1) {
+                throw new IllegalArgumentException("Expected key=value or --spring.property=value: " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+
+        Set<Topic> subscriptions = EnumSet.noneOf(Topic.class);
+        for (String topic : remove(options, "subscribe", "messages,errors").split(",")) {
+            subscriptions.add(Topic.valueOf(topic.trim().toUpperCase(Locale.ROOT)));
+        }
+        LoadTestOptions parsed = new LoadTestOptions(
+                Integer.parseInt(remove(options, "clients", "1000")),
+                Integer.parseInt(remove(options, "chat-size", "10")),
+                Double.parseDouble(remove(options, "senders", "0.2")),
+                Double.parseDouble(remove(options, "rate", "1")),
+                Integer.parseInt(remove(options, "payload", "100")),
+                subscriptions,
+                Integer.parseInt(remove(options, "connect-rate", "500")),
+                Duration.ofSeconds(Long.parseLong(remove(options, "warmup", "10"))),
+                Duration.ofSeconds(Long.parseLong(remove(options, "duration", "60"))),
+                remove(options, "histogram", "target/loadtest-latency.hgrm"),
+                List.copyOf(springArgs));
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + options.keySet());
+        }
+        if (parsed.clients() < 1 || parsed.chatSize() < 1 || parsed.rate() <= 0 || parsed.connectRate() < 1
+                || parsed.senderRatio() < 0 || parsed.senderRatio() > 1) {
+            throw new IllegalArgumentException("Out of range: " + parsed);
+        }
+        return parsed;
+    }
+
+    private static String remove(Map<String, String> options, String key, String defaultValue) {
+        String value = options.remove(key);
+        return value == null ? defaultValue : value;
+    }
+}
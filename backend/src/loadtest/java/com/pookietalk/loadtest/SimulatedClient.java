@@ -0,0 +1,141 @@
+package com.pookietalk.loadtest;
+
+import com.pookietalk.services.MessageBroadcastService;
+import com.pookietalk.services.TypingIndicatorService;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * One simulated user: a STOMP session authenticated with the user's JWT, subscribed to its
+ * chat, and optionally sending messages at a fixed rate from its own virtual thread.
+ */
+final class SimulatedClient {
+
+    private final String token;
+    private final long chatId;
+    private final LoadStats stats;
+    private StompSession session;
+
+    SimulatedClient(String token, long chatId, LoadStats stats) {
+        this.token = token;
+        this.chatId = chatId;
+        this.stats = stats;
+    }
+
+    long chatId() {
+        return chatId;
+    }
+
+    void connect(WebSocketStompClient client, String url) throws Exception {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+        session = client.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {
+            @Override
+            public void handleException(@NonNull StompSession session, StompCommand command, @NonNull StompHeaders headers,
+                                        @NonNull byte[] payload, @NonNull Throwable exception) {
+                stats.onTransportError();
+            }
+
+            @Override
+            public void handleTransportError(@NonNull StompSession session, @NonNull Throwable exception) {
+                stats.onTransportError();
+            }
+        }).get(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Subscribes to the given topics. The simple broker sends no receipts, so the harness relies
+     * on the warm-up period for subscriptions to take effect before measuring.
+     */
+    void subscribe(Set<LoadTestOptions.Topic> topics) {
+        for (LoadTestOptions.Topic topic : topics) {
+            switch (topic) {
+                case MESSAGES -> session.subscribe(MessageBroadcastService.chatTopic(chatId),
+                        frames(payload -> stats.onDelivered(payload, System.nanoTime())));
+                case TYPING -> session.subscribe(TypingIndicatorService.typingTopic(chatId),
+                        frames(payload -> stats.onTypingDelivered()));
+                case ERRORS -> session.subscribe("/user/queue/errors", frames(payload -> stats.onRejected()));
+            }
+        }
+    }
+
+    /**
+     * Sends on a fixed schedule until {@code endNanos}. Meant to run on its own (virtual) thread,
+     * which is then the only one writing to the session.
+     *
+     * @param subscribers sessions subscribed to this client's chat
+     */
+    void sendUntil(long endNanos, double rate, int payloadBytes, boolean typing, int subscribers) {
+        long period = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        // Random phase, so senders do not fire in lockstep
+        long next = System.nanoTime() + ThreadLocalRandom.current().nextLong(period);
+        String sendDestination = "/app/chats/" + chatId + "/send";
+        String typingDestination = "/app/chats/" + chatId + "/typing";
+        while (next < endNanos) {
+            try {
+                if (typing) {
+                    // Half a period ahead: a small frame right before the message would hold it back
+                    // by Nagle's algorithm on the client socket until the typing frame is acknowledged
+                    parkUntil(next - period / 2);
+                    StompHeaders typingHeaders = new StompHeaders();
+                    typingHeaders.setDestination(typingDestination);
+                    session.send(typingHeaders, new byte[0]);
+                }
+                parkUntil(next);
+                StompHeaders headers = new StompHeaders();
+                headers.setDestination(sendDestination);
+                headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+                String body = "{\"content\":\"" + LoadStats.content(next, payloadBytes) + "\"}";
+                session.send(headers, body.getBytes(StandardCharsets.UTF_8));
+            } catch (RuntimeException e) {
+                stats.onTransportError();
+                return;
+            }
+            stats.onSent(next, subscribers);
+            next += period;
+        }
+    }
+
+    private static void parkUntil(long nanos) {
+        long wait = nanos - System.nanoTime();
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    void disconnect() {
+        if (session != null && session.isConnected()) {
+            session.disconnect();
+        }
+    }
+
+    private static StompFrameHandler frames(Consumer<byte[]> consumer) {
+        return new StompFrameHandler() {
+            @Override
+            @NonNull
+            public Type getPayloadType(@NonNull StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(@NonNull StompHeaders headers, Object payload) {
+                consumer.accept((byte[]) payload);
+            }
+        };
+    }
+}
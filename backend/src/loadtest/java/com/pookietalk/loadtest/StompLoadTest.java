@@ -0,0 +1,288 @@
+package com.pookietalk.loadtest;
+
+import com.pookietalk.PookieTalkApplication;
+import com.pookietalk.dto.AuthRequestDTO;
+import com.pookietalk.dto.AuthResponseDTO;
+import com.pookietalk.dto.ChatDTO;
+import com.pookietalk.services.AuthService;
+import com.pookietalk.services.ChatService;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Load generator for the {@code /ws} STOMP endpoint. It boots the backend in this JVM on an
+ * in-memory H2 database in MySQL mode, registers the users through {@link AuthService#register}
+ * (which also issues their JWTs), and groups them into chats. It then opens one STOMP session
+ * per user, each connected and driven from its own virtual thread.
+ *
+ * <p>A share of the clients sends messages at a fixed rate, and every member of a chat
+ * subscribes to it. The run reports send and delivery throughput, lost deliveries, and the
+ * end-to-end latency distribution from the scheduled send to receipt by each subscriber. The
+ * full distribution is written in HdrHistogram's percentile format for plotting.
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec \
+ *     -Dloadtest.args="clients=2000 chat-size=20 senders=0.1 rate=2 duration=60 --chat.messages.write-behind.enabled=true"
+ * </pre>
+ * Options ({@code key=value}): clients (1000), chat-size (10), senders (0.2), rate (1 per second),
+ * payload (100 bytes), subscribe (messages,errors; also typing), connect-rate (500 per second),
+ * warmup (10 s), duration (60 s) and histogram (target/loadtest-latency.hgrm). Arguments starting
+ * with {@code --} override backend properties. Clients and server share the machine. For a few
+ * thousand sessions, raise the open-file limit ({@code ulimit -n}) and, above 8192,
+ * {@code --server.tomcat.max-connections}.
+ */
+public class StompLoadTest {
+
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long DRAIN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        System.out.println("Load test: " + options);
+
+        Path indexDir = Files.createTempDirectory("loadtest-search-index");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(PookieTalkApplication.class)
+                .run(springArgs(options, indexDir));
+        int exitCode = 1;
+        try {
+            exitCode = run(options, context);
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static String[] springArgs(LoadTestOptions options, Path indexDir) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.flyway.enabled", "false");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("chat.search.index-dir", indexDir.toString());
+        // Every simulated user would otherwise be throttled at the production rate
+        properties.put("chat.rate-limit.enabled", "false");
+        // Registration speed only; hashes are never verified during the run
+        properties.put("security.bcrypt.strength", "4");
+        // Clients send no heartbeats (see run), so presence must not expire them
+        properties.put("presence.session-timeout", "PT24H");
+        properties.put("logging.level.root", "WARN");
+        // Later values win, so --key=value arguments override the defaults above
+        for (String arg : options.springArgs()) {
+            int equals = arg.indexOf('=');
+            properties.put(arg.substring(2, equals < 0 ? arg.length() : equals), equals < 0 ? "true" : arg.substring(equals + 1));
+        }
+        return properties.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new);
+    }
+
+    private static int run(LoadTestOptions options, ConfigurableApplicationContext context) throws Exception {
+        LoadStats stats = new LoadStats();
+        long started = System.nanoTime();
+        List<SimulatedClient> clients = createUsers(options, context, stats);
+        System.out.printf("Registered %d users in %d chats in %d ms%n", clients.size(),
+                (clients.size() + options.chatSize() - 1) / options.chatSize(), millisSince(started));
+
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        StandardWebSocketClient webSocketClient = new StandardWebSocketClient();
+        SimpleAsyncTaskExecutor connectExecutor = new SimpleAsyncTaskExecutor("loadtest-connect-");
+        connectExecutor.setVirtualThreads(true);
+        webSocketClient.setTaskExecutor(connectExecutor);
+        WebSocketStompClient stompClient = new WebSocketStompClient(webSocketClient);
+        // No heartbeats: without a lock around session writes, a heartbeat from a scheduler
+        // thread could collide with a send on the client's own thread
+        stompClient.setDefaultHeartbeat(new long[]{0, 0});
+
+        try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            Map<Long, AtomicInteger> subscribersPerChat = connectClients(options, clients, stompClient,
+                    "ws://localhost:" + port + "/ws/websocket", virtualThreads);
+            List<SimulatedClient> connected = clients.stream()
+                    .filter(client -> subscribersPerChat.containsKey(client.chatId()))
+                    .toList();
+            if (connected.isEmpty()) {
+                System.out.println("No client could connect");
+                return 1;
+            }
+
+            long measureStart = System.nanoTime() + options.warmup().toNanos();
+            long measureEnd = measureStart + options.duration().toNanos();
+            stats.setWindow(measureStart, measureEnd);
+            int senders = (int) Math.round(clients.size() * options.senderRatio());
+            boolean typing = options.subscriptions().contains(LoadTestOptions.Topic.TYPING);
+            List<Future<?>> sending = new ArrayList<>();
+            // Senders are spread evenly over the chats
+            for (int i = 0; i < senders; i++) {
+                SimulatedClient client = clients.get((int) ((long) i * clients.size() / senders));
+                AtomicInteger subscribers = subscribersPerChat.get(client.chatId());
+                if (subscribers == null) {
+                    continue;
+                }
+                int expectedSubscribers = options.subscriptions().contains(LoadTestOptions.Topic.MESSAGES) ? subscribers.get() : 0;
+                sending.add(virtualThreads.submit(() -> client.sendUntil(measureEnd, options.rate(),
+                        options.payloadBytes(), typing, expectedSubscribers)));
+            }
+            System.out.printf("%d senders at %.1f msg/s each; warming up for %d s, then measuring for %d s%n",
+                    sending.size(), options.rate(), options.warmup().toSeconds(), options.duration().toSeconds());
+
+            report(stats, measureStart, measureEnd);
+            for (Future<?> sender : sending) {
+                sender.get();
+            }
+            long drainDeadline = System.nanoTime() + DRAIN_NANOS;
+            while (stats.delivered() < stats.expected() && System.nanoTime() < drainDeadline) {
+                Thread.sleep(100);
+            }
+            summarize(options, stats, connected.size());
+            connected.forEach(SimulatedClient::disconnect);
+        }
+        return stats.expected() > 0 && stats.delivered() == 0 ? 1 : 0;
+    }
+
+    private static List<SimulatedClient> createUsers(LoadTestOptions options, ConfigurableApplicationContext context,
+                                                     LoadStats stats) {
+        AuthService authService = context.getBean(AuthService.class);
+        ChatService chatService = context.getBean(ChatService.class);
+        // Parallel, but bounded by the common pool so the BCrypt queue is never overrun
+        List<AuthResponseDTO> users = IntStream.range(0, options.clients()).parallel()
+                .mapToObj(i -> authService.register(AuthRequestDTO.builder()
+                        .username("load-user-" + i)
+                        .password("Load-Test-Passw0rd!")
+                        .email("load-user-" + i + "@loadtest.local")
+                        .build()))
+                .toList();
+
+        List<SimulatedClient> clients = new ArrayList<>(users.size());
+        for (int first = 0; first < users.size(); first += options.chatSize()) {
+            List<AuthResponseDTO> members = users.subList(first, Math.min(first + options.chatSize(), users.size()));
+            ChatDTO chat = new ChatDTO();
+            chat.setChatName("load-chat-" + first / options.chatSize());
+            chat.setParticipantIds(new HashSet<>(members.stream().map(AuthResponseDTO::getId).toList()));
+            long chatId = chatService.createChat(chat).getId();
+            for (AuthResponseDTO member : members) {
+                clients.add(new SimulatedClient(member.getToken(), chatId, stats));
+            }
+        }
+        return clients;
+    }
+
+    /**
+     * Connects and subscribes every client at {@code connect-rate} sessions per second.
+     *
+     * @return the number of subscribed clients per chat; chats without any are absent
+     */
+    private static Map<Long, AtomicInteger> connectClients(LoadTestOptions options, List<SimulatedClient> clients,
+                                                           WebSocketStompClient stompClient, String url,
+                                                           ExecutorService virtualThreads) {
+        long started = System.nanoTime();
+        long spacing = TimeUnit.SECONDS.toNanos(1) / options.connectRate();
+        Map<Long, AtomicInteger> subscribersPerChat = new HashMap<>();
+        List<Future<Boolean>> connections = new ArrayList<>(clients.size());
+        for (int i = 0; i < clients.size(); i++) {
+            SimulatedClient client = clients.get(i);
+            long connectAt = started + i * spacing;
+            connections.add(virtualThreads.submit(() -> {
+                LockSupport.parkNanos(connectAt - System.nanoTime());
+                try {
+                    client.connect(stompClient, url);
+                } catch (Exception e) {
+                    return false;
+                }
+                client.subscribe(options.subscriptions());
+                return true;
+            }));
+        }
+        int failed = 0;
+        for (int i = 0; i < clients.size(); i++) {
+            try {
+                if (connections.get(i).get()) {
+                    subscribersPerChat.computeIfAbsent(clients.get(i).chatId(), id -> new AtomicInteger()).incrementAndGet();
+                } else {
+                    failed++;
+                }
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        System.out.printf("Connected %d sessions (%d failed) in %d ms%n", clients.size() - failed, failed, millisSince(started));
+        return subscribersPerChat;
+    }
+
+    private static void report(LoadStats stats, long measureStart, long measureEnd) throws InterruptedException {
+        long lastSent = 0;
+        long lastDelivered = 0;
+        long next = System.nanoTime() + REPORT_INTERVAL_NANOS;
+        System.out.printf("%8s %10s %12s %10s %10s %10s%n", "time", "sent/s", "delivered/s", "p50 ms", "p99 ms", "max ms");
+        while (next <= measureEnd + REPORT_INTERVAL_NANOS / 2) {
+            LockSupport.parkNanos(next - System.nanoTime());
+            Histogram interval = stats.interval();
+            long sent = stats.sent();
+            long delivered = stats.delivered();
+            double seconds = REPORT_INTERVAL_NANOS / 1e9;
+            String phase = next <= measureStart ? "warmup" : (next - measureStart) / 1_000_000_000 + "s";
+            System.out.printf("%8s %10.0f %12.0f %10.1f %10.1f %10.1f%n", phase, (sent - lastSent) / seconds,
+                    (delivered - lastDelivered) / seconds, interval.getValueAtPercentile(50) / 1000.0,
+                    interval.getValueAtPercentile(99) / 1000.0, interval.getMaxValue() / 1000.0);
+            lastSent = sent;
+            lastDelivered = delivered;
+            next += REPORT_INTERVAL_NANOS;
+        }
+    }
+
+    private static void summarize(LoadTestOptions options, LoadStats stats, int sessions) throws IOException {
+        stats.interval();
+        Histogram latency = stats.total();
+        double seconds = options.duration().toNanos() / 1e9;
+        long lost = stats.expected() - stats.delivered();
+        System.out.println();
+        System.out.printf("Sessions:          %d%n", sessions);
+        System.out.printf("Messages sent:     %d (%.0f/s)%n", stats.sent(), stats.sent() / seconds);
+        System.out.printf("Deliveries:        %d of %d expected (%.0f/s), %d lost (%.3f%%)%n", stats.delivered(),
+                stats.expected(), stats.delivered() / seconds, lost, stats.expected() == 0 ? 0 : 100.0 * lost / stats.expected());
+        System.out.printf("Typing deliveries: %d%n", stats.typingDelivered());
+        System.out.printf("Rejected sends:    %d%n", stats.rejected());
+        System.out.printf("Transport errors:  %d%n", stats.transportErrors());
+        System.out.printf("Delivery latency (ms): p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(90) / 1000.0,
+                latency.getValueAtPercentile(99) / 1000.0, latency.getValueAtPercentile(99.9) / 1000.0,
+                latency.getMaxValue() / 1000.0);
+
+        Path histogramFile = Path.of(options.histogram());
+        if (histogramFile.getParent() != null) {
+            Files.createDirectories(histogramFile.getParent());
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(histogramFile))) {
+            // Values are recorded in microseconds; scale so the file reads in milliseconds
+            latency.outputPercentileDistribution(out, 1000.0);
+        }
+        System.out.println("Latency distribution written to " + histogramFile.toAbsolutePath());
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
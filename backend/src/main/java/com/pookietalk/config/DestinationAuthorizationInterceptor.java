@@ -0,0 +1,96 @@
+package com.pookietalk.config;
+
+import com.pookietalk.models.User;
+import com.pookietalk.services.ChatMembershipIndex;
+import com.pookietalk.services.MessageBroadcastService;
+import com.pookietalk.services.PresenceService;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Authorizes SUBSCRIBE and SEND frames by destination. Runs after {@link WebSocketAuthInterceptor},
+ * so every session that got this far has an authenticated user.
+ *
+ * <ul>
+ *     <li>{@code /topic/chats/{chatId}}, {@code .../typing} and {@code .../read}: chat members only,
+ *     checked against {@link ChatMembershipIndex}.</li>
+ *     <li>{@code /topic/presence/{userId}}: any authenticated user, as with {@code GET /api/presence}.</li>
+ *     <li>{@code /user/queue/**}: the session's own user queues.</li>
+ * </ul>
+ * Any other subscription is refused. Clients may only SEND to {@code /app}; a SEND straight to a
+ * broker destination would reach every subscriber without passing the membership check.
+ */
+@Component
+public class DestinationAuthorizationInterceptor implements ChannelInterceptor {
+
+    private static final Pattern CHAT_TOPIC = Pattern.compile(
+            Pattern.quote(MessageBroadcastService.CHAT_TOPIC_PREFIX) + "(\\d{1,19})(/typing|/read)?");
+    private static final Pattern PRESENCE_TOPIC = Pattern.compile(
+            Pattern.quote(PresenceService.PRESENCE_TOPIC_PREFIX) + "\\d{1,19}");
+    private static final String USER_QUEUE_PREFIX = "/user/queue/";
+    private static final String APPLICATION_PREFIX = "/app/";
+
+    private final ChatMembershipIndex chatMembershipIndex;
+
+    public DestinationAuthorizationInterceptor(ChatMembershipIndex chatMembershipIndex) {
+        this.chatMembershipIndex = chatMembershipIndex;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            authorizeSubscribe(accessor.getDestination(), userId(accessor.getUser()));
+        } else if (StompCommand.SEND.equals(accessor.getCommand())) {
+            String destination = accessor.getDestination();
+            if (destination == null || !destination.startsWith(APPLICATION_PREFIX)) {
+                throw new AccessDeniedException("Clients may only send to " + APPLICATION_PREFIX);
+            }
+        }
+        return message;
+    }
+
+    private void authorizeSubscribe(String destination, Long userId) {
+        if (destination == null) {
+            throw new AccessDeniedException("SUBSCRIBE without a destination");
+        }
+        Matcher chatTopic = CHAT_TOPIC.matcher(destination);
+        if (chatTopic.matches()) {
+            long chatId;
+            try {
+                chatId = Long.parseLong(chatTopic.group(1));
+            } catch (NumberFormatException e) {
+                throw new AccessDeniedException("Not a chat topic: " + destination);
+            }
+            chatMembershipIndex.requireMember(chatId, userId);
+            return;
+        }
+        if (PRESENCE_TOPIC.matcher(destination).matches() || destination.startsWith(USER_QUEUE_PREFIX)) {
+            return;
+        }
+        throw new AccessDeniedException("Subscriptions to " + destination + " are not allowed");
+    }
+
+    private static Long userId(Principal principal) {
+        if (principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user
+                && user.getId() != null) {
+            return user.getId();
+        }
+        throw new AccessDeniedException("Authentication is required to subscribe");
+    }
+}
@@ -0,0 +1,32 @@
+package com.pookietalk.config;
+
+import com.pookietalk.models.TimeOrderedIdGenerator;
+import com.pookietalk.utils.IdGenerator;
+import com.pookietalk.utils.SnowflakeIdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdGeneratorConfig.class);
+
+    /**
+     * One generator per process. Every node writing to the same database needs its own
+     * {@code id.node-id} (0-1023), otherwise ids generated in the same millisecond collide.
+     */
+    @Bean
+    public IdGenerator idGenerator(@Value("${id.node-id:0}") int nodeId) {
+        logger.info("Using time-ordered ids with node id {}", nodeId);
+        return new SnowflakeIdGenerator(nodeId);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer idGeneratorHibernateCustomizer(IdGenerator idGenerator) {
+        return properties -> properties.put(TimeOrderedIdGenerator.GENERATOR_SETTING, idGenerator);
+    }
+}
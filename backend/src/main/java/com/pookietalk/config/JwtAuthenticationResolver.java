@@ -0,0 +1,98 @@
+package com.pookietalk.config;
+
+import com.pookietalk.models.Role;
+import com.pookietalk.models.User;
+import com.pookietalk.services.JwtService;
+import com.pookietalk.services.TokenEpochService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.RequiredTypeException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * Turns verified JWT claims into an authenticated principal. Shared by the HTTP filter and
+ * the STOMP CONNECT interceptor.
+ *
+ * <p>With {@code spring.security.jwt.stateless-principal=true}, tokens that carry the user id,
+ * role and token epoch claims are turned into a principal without loading the user. Older tokens
+ * without these claims, and every token when the mode is off, go through
+ * {@link UserDetailsService}. Revocation and lockout are enforced through
+ * {@link TokenEpochService} either way. A token without an epoch claim counts as epoch 0, so it
+ * stops working once its user's tokens have been revoked.
+ */
+@Component
+public class JwtAuthenticationResolver {
+
+    private final JwtService jwtService;
+    private final UserDetailsService userDetailsService;
+    private final TokenEpochService tokenEpochService;
+    private final boolean statelessPrincipal;
+
+    public JwtAuthenticationResolver(JwtService jwtService,
+                                     UserDetailsService userDetailsService,
+                                     TokenEpochService tokenEpochService,
+                                     @Value("${spring.security.jwt.stateless-principal:false}") boolean statelessPrincipal) {
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+        this.tokenEpochService = tokenEpochService;
+        this.statelessPrincipal = statelessPrincipal;
+    }
+
+    /**
+     * @param claims claims returned by {@link JwtService#parseToken(String)}
+     * @return the authentication for the token's user, or null if the token must not be trusted
+     */
+    public UsernamePasswordAuthenticationToken resolve(Claims claims) {
+        String username = claims.getSubject();
+        if (username == null) {
+            return null;
+        }
+
+        Long userId;
+        String role;
+        Long epoch;
+        try {
+            userId = claims.get(JwtService.CLAIM_USER_ID, Long.class);
+            role = claims.get(JwtService.CLAIM_ROLE, String.class);
+            epoch = claims.get(JwtService.CLAIM_TOKEN_EPOCH, Long.class);
+        } catch (RequiredTypeException e) {
+            return null;
+        }
+        if (statelessPrincipal && userId != null && role != null && epoch != null) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null || !expiration.after(new Date()) || !tokenEpochService.isCurrent(userId, epoch)) {
+                return null;
+            }
+            Role parsedRole;
+            try {
+                parsedRole = Role.valueOf(role);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            User principal = new User(userId, username, null, null, parsedRole);
+            principal.setTokenEpoch(epoch);
+            return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        }
+
+        UserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+        if (!jwtService.isTokenValid(claims, userDetails)) {
+            return null;
+        }
+        if (userDetails instanceof User user && user.getId() != null
+                && !tokenEpochService.isCurrent(user.getId(), epoch != null ? epoch : 0L)) {
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+}
@@ -0,0 +1,38 @@
+package com.pookietalk.config;
+
+import com.pookietalk.services.PresenceService;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Marks a STOMP session as alive on every inbound frame, including heartbeats. CONNECT and
+ * DISCONNECT are left to {@link PresenceService}'s session event listeners.
+ */
+@Component
+public class PresenceChannelInterceptor implements ChannelInterceptor {
+
+    private final PresenceService presenceService;
+
+    // Lazy: PresenceService needs the broker's messaging template, whose configuration needs this interceptor
+    public PresenceChannelInterceptor(@Lazy PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        if (sessionId != null && type != SimpMessageType.CONNECT && type != SimpMessageType.DISCONNECT) {
+            presenceService.onActivity(sessionId, SimpMessageHeaderAccessor.getUser(headers));
+        }
+        return message;
+    }
+}
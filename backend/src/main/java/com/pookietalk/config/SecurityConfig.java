@@ -1,16 +1,18 @@
 package com.pookietalk.config;
 
 import com.pookietalk.config.JwtAuthFilter;
+import com.pookietalk.utils.PasswordUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -22,9 +24,10 @@ public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
 
+    // Login checks share PasswordUtil's bounded BCrypt pool with registration
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordUtil passwordUtil) {
+        return passwordUtil.asPasswordEncoder();
     }
 
     @Bean
@@ -33,15 +36,24 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, Environment environment) throws Exception {
+        // Health checks are always open; the Prometheus scrape only when actuator has a port of its own
+        String[] openActuatorEndpoints = ManagementPortType.get(environment) == ManagementPortType.DIFFERENT
+                ? new String[]{"/actuator/health", "/actuator/prometheus"}
+                : new String[]{"/actuator/health"};
         http
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**").permitAll()
+                // The handshake only; the STOMP CONNECT frame carries the token and is checked by WebSocketAuthInterceptor
                 .requestMatchers("/ws/**").permitAll()
+                // See management.server.port in application.yml
+                .requestMatchers(openActuatorEndpoints).permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // Preflight requests
                 .requestMatchers("/api/users/**").authenticated()
+                .requestMatchers("/api/search/reindex").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
@@ -0,0 +1,38 @@
+package com.pookietalk.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()}
+ * and {@link #stop()}. Registered with Hibernate by {@link MetricsConfig}. Statements prepared
+ * outside a counted scope, such as those of the write-behind writer or scheduled jobs, are
+ * not counted. Neither is SQL that bypasses Hibernate ({@code JdbcTemplate} batches).
+ */
+@Component
+public class StatementCounter implements StatementInspector {
+
+    private final ThreadLocal<int[]> current = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = current.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    public void start() {
+        current.set(new int[1]);
+    }
+
+    /**
+     * @return statements prepared since {@link #start()}, or 0 if counting was not started
+     */
+    public int stop() {
+        int[] count = current.get();
+        current.remove();
+        return count == null ? 0 : count[0];
+    }
+}
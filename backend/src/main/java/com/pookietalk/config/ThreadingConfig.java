@@ -0,0 +1,85 @@
+package com.pookietalk.config;
+
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Enables {@code @Async} and {@code @Scheduled} and optionally moves each execution point onto
+ * virtual threads. The switches under {@code threads.virtual.*} are independent, so a
+ * deployment can turn them on one at a time. Spring Boot's {@code spring.threads.virtual.enabled}
+ * can only switch everything at once. The STOMP channel switches are read by
+ * {@link WebSocketConfig}.
+ *
+ * <p>While any switch is on, avoid holding a monitor ({@code synchronized}) across blocking I/O:
+ * on Java 21 that pins the carrier thread. Run with {@code -Djdk.tracePinnedThreads=short} to
+ * find offenders.
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class ThreadingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    // Tomcat request handling: one virtual thread per request instead of the bounded worker pool
+    @Bean
+    @ConditionalOnProperty(prefix = "threads.virtual", name = "tomcat", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        logger.info("Tomcat requests run on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(new VirtualThreadExecutor("tomcat-handler-"));
+    }
+
+    // @Async methods and async MVC work such as StreamingResponseBody
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    @ConditionalOnProperty(prefix = "threads.virtual", name = "async", havingValue = "true")
+    public SimpleAsyncTaskExecutor virtualThreadTaskExecutor() {
+        logger.info("@Async and MVC async work run on virtual threads");
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("async-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    // @Scheduled methods on a pool of spring.task.scheduling.pool.size platform threads. Declared
+    // here because Spring Boot backs off from creating it once the STOMP broker's heartbeat
+    // scheduler exists, and the jobs would otherwise run on that one. The pool is sized so that
+    // long jobs (archiving, filter rebuilds) cannot hold up the frequent flushes and presence expiry.
+    @Bean(name = "taskScheduler")
+    @ConditionalOnProperty(prefix = "threads.virtual", name = "scheduling", havingValue = "false", matchIfMissing = true)
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    // @Scheduled methods; each run gets its own virtual thread
+    @Bean(name = "taskScheduler")
+    @ConditionalOnProperty(prefix = "threads.virtual", name = "scheduling", havingValue = "true")
+    public SimpleAsyncTaskScheduler virtualThreadTaskScheduler() {
+        logger.info("@Scheduled work runs on virtual threads");
+        SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.setVirtualThreads(true);
+        return scheduler;
+    }
+
+    /**
+     * Executor for the STOMP client channels when they run on virtual threads.
+     */
+    static SimpleAsyncTaskExecutor virtualChannelExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
@@ -0,0 +1,61 @@
+package com.pookietalk.config;
+
+import com.pookietalk.services.JwtService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authenticates STOMP sessions from the {@code Authorization: Bearer <jwt>} header of the
+ * CONNECT frame. A CONNECT without a valid token is refused, so every session has a user;
+ * what that user may subscribe and send to is checked by {@link DestinationAuthorizationInterceptor}.
+ */
+@Component
+public class WebSocketAuthInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketAuthInterceptor.class);
+
+    private final JwtService jwtService;
+    private final JwtAuthenticationResolver jwtAuthenticationResolver;
+
+    public WebSocketAuthInterceptor(JwtService jwtService, JwtAuthenticationResolver jwtAuthenticationResolver) {
+        this.jwtService = jwtService;
+        this.jwtAuthenticationResolver = jwtAuthenticationResolver;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            logger.debug("Rejecting STOMP CONNECT without a bearer token");
+            throw new BadCredentialsException("Authentication is required");
+        }
+
+        String jwt = authHeader.substring(7);
+        try {
+            UsernamePasswordAuthenticationToken authentication = jwtAuthenticationResolver.resolve(jwtService.parseToken(jwt));
+            if (authentication == null) {
+                throw new BadCredentialsException("Invalid JWT");
+            }
+            accessor.setUser(authentication);
+        } catch (RuntimeException e) {
+            logger.debug("Rejecting STOMP CONNECT: {}", e.getMessage());
+            throw new BadCredentialsException("Invalid JWT", e);
+        }
+        return message;
+    }
+}
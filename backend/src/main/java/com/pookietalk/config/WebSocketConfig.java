@@ -1,11 +1,20 @@
 package com.pookietalk.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -14,14 +23,117 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Value("${cors.allowed-origins}")
     private String allowedOrigins;
 
+    // simple: in-memory broker, subscribers only see messages published on the same node
+    // relay: every node relays /topic and /queue to an external STOMP broker, for multi-node fan-out
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${chat.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${chat.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${chat.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    // Heart-beat interval the simple broker offers clients; presence relies on it to see idle sessions
+    @Value("${presence.heartbeat-ms:10000}")
+    private long heartbeatMillis;
+
+    @Value("${threads.virtual.websocket-inbound:false}")
+    private boolean virtualInbound;
+
+    @Value("${threads.virtual.websocket-outbound:false}")
+    private boolean virtualOutbound;
+
+    private final WebSocketAuthInterceptor webSocketAuthInterceptor;
+    private final DestinationAuthorizationInterceptor destinationAuthorizationInterceptor;
+    private final PresenceChannelInterceptor presenceChannelInterceptor;
+    private final WireFormatNegotiator wireFormatNegotiator;
+    private final TaskScheduler messageBrokerTaskScheduler;
+
+    public WebSocketConfig(WebSocketAuthInterceptor webSocketAuthInterceptor,
+                           DestinationAuthorizationInterceptor destinationAuthorizationInterceptor,
+                           PresenceChannelInterceptor presenceChannelInterceptor,
+                           WireFormatNegotiator wireFormatNegotiator,
+                           @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler) {
+        this.webSocketAuthInterceptor = webSocketAuthInterceptor;
+        this.destinationAuthorizationInterceptor = destinationAuthorizationInterceptor;
+        this.presenceChannelInterceptor = presenceChannelInterceptor;
+        this.wireFormatNegotiator = wireFormatNegotiator;
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic");
+        // /topic carries chat fan-out, /queue carries per-user replies such as send errors
+        switch (brokerMode) {
+            case "simple" -> registry.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[]{heartbeatMillis, heartbeatMillis})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+            case "relay" -> {
+                StompBrokerRelayRegistration relay = registry.enableStompBrokerRelay("/topic", "/queue")
+                        .setRelayHost(relayHost)
+                        .setRelayPort(relayPort)
+                        .setClientLogin(relayLogin)
+                        .setClientPasscode(relayPasscode)
+                        .setSystemLogin(relayLogin)
+                        .setSystemPasscode(relayPasscode)
+                        // Let /user/queue/errors reach a session connected to another node
+                        .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                        .setUserRegistryBroadcast("/topic/simp-user-registry");
+                if (!relayVirtualHost.isBlank()) {
+                    relay.setVirtualHost(relayVirtualHost);
+                }
+            }
+            default -> throw new IllegalStateException(
+                    "Unknown chat.broker.mode '" + brokerMode + "', expected 'simple' or 'relay'");
+        }
         registry.setApplicationDestinationPrefixes("/app");
+        // A thread per message no longer keeps a session's frames in order, so ask for it explicitly
+        registry.setPreservePublishOrder(virtualOutbound);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(webSocketAuthInterceptor, destinationAuthorizationInterceptor,
+                presenceChannelInterceptor);
+        if (virtualInbound) {
+            registration.executor(ThreadingConfig.virtualChannelExecutor("ws-inbound-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(wireFormatNegotiator);
+        if (virtualOutbound) {
+            registration.executor(ThreadingConfig.virtualChannelExecutor("ws-outbound-"));
+        }
+    }
+
+    // JSON stays the default; the CBOR converter only reads frames labelled application/cbor
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(wireFormatNegotiator.cborMessageConverter());
+        return true;
+    }
+
+    // Lets sessions that negotiated CBOR send binary WebSocket frames
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(wireFormatNegotiator);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.setPreserveReceiveOrder(virtualInbound);
         registry
             .addEndpoint("/ws")
             .setAllowedOrigins(allowedOrigins.split(","))
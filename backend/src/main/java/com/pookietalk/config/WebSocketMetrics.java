@@ -0,0 +1,76 @@
+package com.pookietalk.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * STOMP gauges, read on each scrape:
+ * <ul>
+ *     <li>{@code websocket.sessions{transport}}: open sessions on this node, by SockJS transport</li>
+ *     <li>{@code websocket.subscriptions}: subscriptions held by the user registry. In relay mode
+ *     the registry also lists sessions of the other nodes.</li>
+ * </ul>
+ * Queue depths of the channel executors need no binder here. Spring Boot publishes every pooled
+ * executor bean as {@code executor.*{name}}, e.g. {@code executor.queued{name=clientInboundChannelExecutor}}.
+ * A channel running on virtual threads has no pool and therefore no such series.
+ */
+@Component
+public class WebSocketMetrics implements MeterBinder {
+
+    private final ObjectProvider<WebSocketHandler> subProtocolWebSocketHandler;
+    private final ObjectProvider<SimpUserRegistry> userRegistry;
+
+    // Providers, because meter binders are created before the broker configuration is
+    public WebSocketMetrics(@Qualifier("subProtocolWebSocketHandler") ObjectProvider<WebSocketHandler> subProtocolWebSocketHandler,
+                            ObjectProvider<SimpUserRegistry> userRegistry) {
+        this.subProtocolWebSocketHandler = subProtocolWebSocketHandler;
+        this.userRegistry = userRegistry;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        if (subProtocolWebSocketHandler.getIfAvailable() instanceof SubProtocolWebSocketHandler handler) {
+            SubProtocolWebSocketHandler.Stats stats = handler.getStats();
+            sessions(registry, "websocket", stats, SubProtocolWebSocketHandler.Stats::getWebSocketSessions);
+            sessions(registry, "http_streaming", stats, SubProtocolWebSocketHandler.Stats::getHttpStreamingSessions);
+            sessions(registry, "http_polling", stats, SubProtocolWebSocketHandler.Stats::getHttpPollingSessions);
+        }
+
+        SimpUserRegistry users = userRegistry.getIfAvailable();
+        if (users != null) {
+            Gauge.builder("websocket.subscriptions", users, WebSocketMetrics::countSubscriptions)
+                    .description("STOMP subscriptions held by the user registry")
+                    .register(registry);
+        }
+    }
+
+    private static void sessions(MeterRegistry registry, String transport, SubProtocolWebSocketHandler.Stats stats,
+                                 ToDoubleFunction<SubProtocolWebSocketHandler.Stats> value) {
+        Gauge.builder("websocket.sessions", stats, value)
+                .description("Open STOMP sessions on this node")
+                .tag("transport", transport)
+                .register(registry);
+    }
+
+    private static double countSubscriptions(SimpUserRegistry users) {
+        long count = 0;
+        for (SimpUser user : users.getUsers()) {
+            for (SimpSession session : user.getSessions()) {
+                count += session.getSubscriptions().size();
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,180 @@
+package com.pookietalk.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pookietalk.utils.CborWireFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.ZoneId;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-session choice between the default JSON payloads and {@link CborWireFormat}. A client opts
+ * in with an {@code accept:application/cbor} header on its STOMP CONNECT frame. Only plain
+ * WebSocket sessions can: SockJS frames are text, so SockJS sessions keep JSON whatever they ask.
+ *
+ * <p>Fan-out still serializes each event once, as JSON, when it is published. Outbound MESSAGE
+ * frames to a CBOR session are transcoded on the outbound channel and carry
+ * {@code content-type:application/cbor}. From CONNECTED on, the session's frames go out as binary
+ * WebSocket frames. The simple broker hands every subscriber the same payload array, so the
+ * transcoded copy is cached by payload identity and each event is transcoded once per node,
+ * however many CBOR sessions receive it.
+ *
+ * <p>Inbound, a SEND frame with {@code content-type:application/cbor} is read with
+ * {@link #cborMessageConverter()}, whether or not its session opted in.
+ */
+@Component
+public class WireFormatNegotiator implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(WireFormatNegotiator.class);
+
+    // Fields of the pushed DTOs that hold a LocalDateTime
+    private static final Set<String> TIMESTAMP_FIELDS = Set.of("timestamp");
+
+    private final boolean enabled;
+    private final CborWireFormat cborWireFormat = new CborWireFormat(TIMESTAMP_FIELDS, ZoneId.systemDefault());
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+    // Weak keys compare by identity, and entries go once the broker drops the JSON payload
+    private final Cache<byte[], byte[]> transcoded;
+
+    public WireFormatNegotiator(@Value("${chat.wire-format.cbor.enabled:true}") boolean enabled,
+                                @Value("${chat.wire-format.cbor.cache-size:1024}") long cacheSize) {
+        this.enabled = enabled;
+        this.transcoded = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    /**
+     * Reads SEND frames labelled {@code application/cbor}. Strict content-type matching keeps it
+     * out of the way of everything else, so JSON stays the default wherever it is registered.
+     */
+    public MessageConverter cborMessageConverter() {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(CborWireFormat.MIME_TYPE);
+        converter.setObjectMapper(cborWireFormat.newObjectMapper());
+        converter.setStrictContentTypeMatch(true);
+        return converter;
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        String accept = StompHeaderAccessor.wrap(event.getMessage()).getFirstNativeHeader("accept");
+        if (enabled && sessionId != null && accept != null && binarySessions.contains(sessionId) && acceptsCbor(accept)) {
+            cborSessions.add(sessionId);
+        }
+    }
+
+    private static boolean acceptsCbor(String accept) {
+        try {
+            // Exact match: a wildcard is no reason to switch a client to binary
+            return MimeTypeUtils.parseMimeTypes(accept).stream()
+                    .anyMatch(mimeType -> mimeType.equalsTypeAndSubtype(CborWireFormat.MIME_TYPE));
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        if (cborSessions.isEmpty()
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] json)
+                || !cborSessions.contains(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()))) {
+            return message;
+        }
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        MimeType contentType = accessor.getContentType();
+        if (contentType == null || !MimeTypeUtils.APPLICATION_JSON.equalsTypeAndSubtype(contentType)) {
+            return message;
+        }
+        byte[] cbor;
+        try {
+            cbor = transcoded.get(json, cborWireFormat::transcode);
+        } catch (UncheckedIOException e) {
+            logger.debug("Sending JSON to a CBOR session, the payload could not be transcoded: {}", e.getMessage());
+            return message;
+        }
+        accessor.setContentType(CborWireFormat.MIME_TYPE);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    @Override
+    @NonNull
+    public WebSocketHandler decorate(@NonNull WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+                if (session instanceof SockJsSession) {
+                    super.afterConnectionEstablished(session);
+                    return;
+                }
+                binarySessions.add(session.getId());
+                super.afterConnectionEstablished(new BinaryFrameSession(session));
+            }
+
+            @Override
+            public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus)
+                    throws Exception {
+                binarySessions.remove(session.getId());
+                cborSessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Sends the STOMP frames of a CBOR session as binary WebSocket frames. The STOMP handler only
+     * chooses binary for {@code application/octet-stream} content. As text, the CBOR body would be
+     * mangled by UTF-8 decoding.
+     */
+    private final class BinaryFrameSession extends WebSocketSessionDecorator {
+
+        BinaryFrameSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(@NonNull WebSocketMessage<?> message) throws IOException {
+            if (message instanceof TextMessage text && cborSessions.contains(getId())) {
+                super.sendMessage(new BinaryMessage(text.asBytes()));
+            } else {
+                super.sendMessage(message);
+            }
+        }
+    }
+}
@@ -2,10 +2,17 @@ package com.pookietalk.controllers;
 
 import com.pookietalk.dto.AuthRequestDTO;
 import com.pookietalk.dto.AuthResponseDTO;
+import com.pookietalk.dto.AvailabilityDTO;
 import com.pookietalk.exceptions.ValidationException;
+import com.pookietalk.models.User;
 import com.pookietalk.services.AuthService;
+import com.pookietalk.services.AvailabilityRateLimiter;
+import com.pookietalk.services.TokenEpochService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,9 +24,14 @@ import java.util.Map;
 public class AuthController {
 
     private final AuthService authService;
+    private final TokenEpochService tokenEpochService;
+    private final AvailabilityRateLimiter availabilityRateLimiter;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, TokenEpochService tokenEpochService,
+                          AvailabilityRateLimiter availabilityRateLimiter) {
         this.authService = authService;
+        this.tokenEpochService = tokenEpochService;
+        this.availabilityRateLimiter = availabilityRateLimiter;
     }
 
     @PostMapping("/login")
@@ -46,6 +58,38 @@ public class AuthController {
         return ResponseEntity.ok(authService.register(request));
     }
 
+    /**
+     * Tells a sign-up form whether a username and/or email is still free, e.g.
+     * {@code GET /api/auth/availability?username=alice&email=alice@example.com}. Anonymous, so
+     * throttled per client address by {@link AvailabilityRateLimiter}.
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<AvailabilityDTO> availability(@RequestParam(required = false) String username,
+                                                        @RequestParam(required = false) String email,
+                                                        HttpServletRequest request) {
+        availabilityRateLimiter.acquire(request.getRemoteAddr());
+        if ((username == null || username.isBlank()) && (email == null || email.isBlank())) {
+            throw new ValidationException(Map.of("username", "A username or email is required"));
+        }
+        return ResponseEntity.ok(authService.checkAvailability(blankToNull(username), blankToNull(email)));
+    }
+
+    /**
+     * Invalidates every token issued to the calling user, including the one used for this request.
+     */
+    @PostMapping("/logout-all")
+    public ResponseEntity<Void> logoutEverywhere(@AuthenticationPrincipal User user) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        tokenEpochService.revokeTokens(user.getId());
+        return ResponseEntity.noContent().build();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
     private Map<String, String> getValidationErrors(BindingResult result) {
         Map<String, String> errors = new HashMap<>();
         result.getFieldErrors().forEach(error -> 
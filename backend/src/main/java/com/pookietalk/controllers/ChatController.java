@@ -1,11 +1,22 @@
 package com.pookietalk.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.pookietalk.dto.ChatDTO;
-import com.pookietalk.models.Chat;
+import com.pookietalk.dto.CursorPageDTO;
+import com.pookietalk.dto.ReadReceiptDTO;
+import com.pookietalk.models.User;
 import com.pookietalk.services.ChatService;
+import com.pookietalk.services.ReadStateService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -13,9 +24,13 @@ import java.util.List;
 public class ChatController {
 
     private final ChatService chatService;
+    private final ReadStateService readStateService;
+    private final ObjectMapper objectMapper;
 
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService, ReadStateService readStateService, ObjectMapper objectMapper) {
         this.chatService = chatService;
+        this.readStateService = readStateService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/user/{username}")
@@ -29,12 +44,48 @@ public class ChatController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Chat> getChatById(@PathVariable Long id) {
+    public ResponseEntity<ChatDTO> getChatById(@PathVariable Long id) {
         return ResponseEntity.ok(chatService.getChatById(id));
     }
 
+    // Also pushed to /topic/chats/{chatId}/read as a read receipt
+    @PostMapping("/{chatId}/read")
+    public ResponseEntity<ReadReceiptDTO> markRead(@AuthenticationPrincipal User user,
+                                                   @PathVariable Long chatId,
+                                                   @RequestBody ReadReceiptDTO request) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(readStateService.markRead(chatId, user.getId(), request.getLastReadMessageId()));
+    }
+
     @GetMapping
     public ResponseEntity<List<ChatDTO>> getAllChats() {
         return ResponseEntity.ok(chatService.getAllChats());
     }
+
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDTO<ChatDTO>> getChatPage(@RequestParam(required = false) Long after,
+                                                              @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(chatService.getChatPage(after, limit));
+    }
+
+    // One JSON object per line, written as rows arrive from the database cursor
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamChats() {
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writerFor(ChatDTO.class)
+                    .withRootValueSeparator("\n")
+                    .writeValues(out)) {
+                chatService.streamAllChats(chat -> {
+                    try {
+                        writer.write(chat);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
 }
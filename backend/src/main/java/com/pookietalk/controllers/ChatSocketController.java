@@ -0,0 +1,157 @@
+package com.pookietalk.controllers;
+
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.dto.ReadReceiptDTO;
+import com.pookietalk.exceptions.ChatNotFoundException;
+import com.pookietalk.exceptions.ErrorResponse;
+import com.pookietalk.exceptions.MessageQueueFullException;
+import com.pookietalk.exceptions.NotChatMemberException;
+import com.pookietalk.exceptions.PasswordHashingBusyException;
+import com.pookietalk.exceptions.RateLimitExceededException;
+import com.pookietalk.exceptions.UserNotFoundException;
+import com.pookietalk.exceptions.ValidationException;
+import com.pookietalk.models.Role;
+import com.pookietalk.models.User;
+import com.pookietalk.services.MessageService;
+import com.pookietalk.services.ReadStateService;
+import com.pookietalk.services.SendRateLimiter;
+import com.pookietalk.services.TypingIndicatorService;
+import com.pookietalk.services.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+
+/**
+ * STOMP entry points under the {@code /app} prefix. Sent messages go through the same
+ * {@link MessageService#sendMessage} path as the REST API, which fans them out to
+ * {@code /topic/chats/{chatId}} once saved.
+ */
+@Controller
+public class ChatSocketController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatSocketController.class);
+
+    private final MessageService messageService;
+    private final UserService userService;
+    private final TypingIndicatorService typingIndicatorService;
+    private final ReadStateService readStateService;
+    private final SendRateLimiter sendRateLimiter;
+
+    public ChatSocketController(MessageService messageService, UserService userService,
+                                TypingIndicatorService typingIndicatorService, ReadStateService readStateService,
+                                SendRateLimiter sendRateLimiter) {
+        this.messageService = messageService;
+        this.userService = userService;
+        this.typingIndicatorService = typingIndicatorService;
+        this.readStateService = readStateService;
+        this.sendRateLimiter = sendRateLimiter;
+    }
+
+    @MessageMapping("/chats/{chatId}/send")
+    public void sendMessage(@DestinationVariable Long chatId, @Payload MessageDTO messageDTO, Principal principal) {
+        if (principal == null) {
+            throw new AccessDeniedException("Authentication is required to send messages");
+        }
+        // The session's authenticated user is the sender, whatever the frame claims
+        Long senderId = senderId(principal);
+        sendRateLimiter.acquire(senderId, role(principal));
+        messageDTO.setChatId(chatId);
+        messageDTO.setSenderId(senderId);
+        messageService.sendMessage(messageDTO);
+    }
+
+    // Throttled and coalesced before fan-out to /topic/chats/{chatId}/typing; never persisted
+    @MessageMapping("/chats/{chatId}/typing")
+    public void typing(@DestinationVariable Long chatId, Principal principal) {
+        if (principal == null) {
+            throw new AccessDeniedException("Authentication is required to send typing indicators");
+        }
+        typingIndicatorService.onTyping(chatId, senderId(principal));
+    }
+
+    // Fanned out to /topic/chats/{chatId}/read; counters are persisted in the background
+    @MessageMapping("/chats/{chatId}/read")
+    public void markRead(@DestinationVariable Long chatId, @Payload ReadReceiptDTO receipt, Principal principal) {
+        if (principal == null) {
+            throw new AccessDeniedException("Authentication is required to send read receipts");
+        }
+        readStateService.markRead(chatId, senderId(principal), receipt.getLastReadMessageId());
+    }
+
+    private Long senderId(Principal principal) {
+        if (principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return userService.getUserByUsername(principal.getName()).getId();
+    }
+
+    private Role role(Principal principal) {
+        if (principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user) {
+            return user.getRole();
+        }
+        return Role.USER;
+    }
+
+    // Errors go to the sender's /user/queue/errors, with the status REST would give them
+
+    @MessageExceptionHandler({AccessDeniedException.class, NotChatMemberException.class})
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleForbidden(RuntimeException ex) {
+        return rejected(ex.getMessage(), HttpStatus.FORBIDDEN);
+    }
+
+    @MessageExceptionHandler({ChatNotFoundException.class, UserNotFoundException.class})
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleNotFound(RuntimeException ex) {
+        return rejected(ex.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    @MessageExceptionHandler
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleRateLimitExceeded(RateLimitExceededException ex) {
+        return rejected(ex.getMessage(), HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @MessageExceptionHandler
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleValidation(ValidationException ex) {
+        return rejected(ex.getMessage() + ": " + ex.getErrors(), HttpStatus.BAD_REQUEST);
+    }
+
+    // Malformed frames, and arguments the services refuse
+    @MessageExceptionHandler({IllegalArgumentException.class, MessageConversionException.class})
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleBadRequest(RuntimeException ex) {
+        return rejected(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @MessageExceptionHandler({MessageQueueFullException.class, PasswordHashingBusyException.class})
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleBusy(RuntimeException ex) {
+        return rejected(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // Server faults: the detail (SQL text included) stays in the log, as with GlobalExceptionHandler
+    @MessageExceptionHandler
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleException(Exception ex) {
+        logger.error("STOMP message handling failed", ex);
+        return new ErrorResponse("An unexpected error occurred.", HttpStatus.INTERNAL_SERVER_ERROR.value());
+    }
+
+    private static ErrorResponse rejected(String message, HttpStatus status) {
+        logger.debug("STOMP message rejected with {}: {}", status.value(), message);
+        return new ErrorResponse(message, status.value());
+    }
+}
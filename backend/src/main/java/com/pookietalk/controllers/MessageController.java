@@ -1,8 +1,15 @@
 package com.pookietalk.controllers;
 
 import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.dto.MessagePageDTO;
+import com.pookietalk.dto.SyncRequestDTO;
+import com.pookietalk.dto.SyncResponseDTO;
+import com.pookietalk.models.User;
 import com.pookietalk.services.MessageService;
+import com.pookietalk.services.SendRateLimiter;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -12,9 +19,11 @@ import java.util.List;
 public class MessageController {
 
     private final MessageService messageService;
+    private final SendRateLimiter sendRateLimiter;
 
-    public MessageController(MessageService messageService) {
+    public MessageController(MessageService messageService, SendRateLimiter sendRateLimiter) {
         this.messageService = messageService;
+        this.sendRateLimiter = sendRateLimiter;
     }
 
     @GetMapping("/chat/{chatId}")
@@ -22,8 +31,38 @@ public class MessageController {
         return ResponseEntity.ok(messageService.getMessagesByChat(chatId));
     }
 
+    @GetMapping("/chat/{chatId}/history")
+    public ResponseEntity<MessagePageDTO> getMessageHistory(@AuthenticationPrincipal User user,
+                                                            @PathVariable Long chatId,
+                                                            @RequestParam(required = false) Long before,
+                                                            @RequestParam(required = false) Long after,
+                                                            @RequestParam(required = false) Integer limit) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(messageService.getMessagePage(chatId, user.getId(), before, after, limit));
+    }
+
+    // One round trip for a reconnecting client: everything missed across its chats
+    @PostMapping("/sync")
+    public ResponseEntity<SyncResponseDTO> syncMessages(@AuthenticationPrincipal User user,
+                                                        @RequestBody SyncRequestDTO request) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(messageService.syncMessages(user.getId(), request.getLastSeen()));
+    }
+
     @PostMapping
-    public ResponseEntity<MessageDTO> sendMessage(@RequestBody MessageDTO messageDTO) {
+    public ResponseEntity<MessageDTO> sendMessage(@AuthenticationPrincipal User user,
+                                                  @RequestBody MessageDTO messageDTO) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        // Checked before any database work so a flooding client cannot hold connections
+        sendRateLimiter.acquire(user.getId(), user.getRole());
+        // The authenticated user is the sender, whatever the body claims
+        messageDTO.setSenderId(user.getId());
         return ResponseEntity.ok(messageService.sendMessage(messageDTO));
     }
 }
@@ -0,0 +1,28 @@
+package com.pookietalk.controllers;
+
+import com.pookietalk.services.PresenceService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/presence")
+public class PresenceController {
+
+    private final PresenceService presenceService;
+
+    public PresenceController(PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
+
+    // Initial state for a contact list; changes then arrive on /topic/presence/{userId}
+    @GetMapping
+    public ResponseEntity<Set<Long>> getOnlineUsers(@RequestParam List<Long> userIds) {
+        return ResponseEntity.ok(presenceService.getOnlineUsers(userIds));
+    }
+}
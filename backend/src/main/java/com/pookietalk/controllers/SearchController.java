@@ -0,0 +1,44 @@
+package com.pookietalk.controllers;
+
+import com.pookietalk.dto.CursorPageDTO;
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.models.User;
+import com.pookietalk.services.MessageSearchService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/search")
+@ConditionalOnProperty(prefix = "chat.search", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SearchController {
+
+    private final MessageSearchService messageSearchService;
+
+    public SearchController(MessageSearchService messageSearchService) {
+        this.messageSearchService = messageSearchService;
+    }
+
+    // Newest matches first; pass nextCursor back as ?before= for older matches
+    @GetMapping("/messages")
+    public ResponseEntity<CursorPageDTO<MessageDTO>> searchMessages(@AuthenticationPrincipal User user,
+                                                                    @RequestParam String q,
+                                                                    @RequestParam(required = false) Long chatId,
+                                                                    @RequestParam(required = false) Long before,
+                                                                    @RequestParam(required = false) Integer limit) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(messageSearchService.search(user.getId(), q, chatId, before, limit));
+    }
+
+    // Admin only (see SecurityConfig); progress is logged
+    @PostMapping("/reindex")
+    public ResponseEntity<Void> reindex() {
+        return messageSearchService.startReindex()
+                ? ResponseEntity.status(HttpStatus.ACCEPTED).build()
+                : ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+}
@@ -0,0 +1,14 @@
+package com.pookietalk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityDTO {
+    // Null when the value was not asked about
+    private Boolean usernameAvailable;
+    private Boolean emailAvailable;
+}
@@ -11,4 +11,6 @@ public class ChatDTO {
     private Long id;
     private String chatName;
     private Set<Long> participantIds;
+    // Only filled in for listings of one user's chats
+    private Integer unreadCount;
 }
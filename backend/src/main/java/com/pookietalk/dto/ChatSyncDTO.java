@@ -0,0 +1,18 @@
+package com.pookietalk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSyncDTO {
+    // Messages from shortly before the client's last-seen id, oldest first; empty when tooFarBehind.
+    // The overlap may repeat messages the client already has, so merge by id.
+    private List<MessageDTO> messages;
+    // More was missed than one sync returns; refetch the latest history page instead
+    private boolean tooFarBehind;
+}
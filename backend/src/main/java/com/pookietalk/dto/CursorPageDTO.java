@@ -0,0 +1,18 @@
+package com.pookietalk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    // Ascending by id
+    private List<T> items;
+    // Pass back as "after" to fetch the next page; null when exhausted
+    private Long nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,18 @@
+package com.pookietalk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessagePageDTO {
+    // Oldest first, regardless of paging direction
+    private List<MessageDTO> messages;
+    // Pass back as "before" (or "after" when paging forward) to fetch the next page; null when exhausted
+    private Long nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,13 @@
+package com.pookietalk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceEventDTO {
+    private Long userId;
+    private boolean online;
+}
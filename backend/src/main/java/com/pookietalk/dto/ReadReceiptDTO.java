@@ -0,0 +1,16 @@
+package com.pookietalk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadReceiptDTO {
+    private Long chatId;
+    private Long userId;
+    // Newest message the user has read; everything up to and including it counts as read
+    private Long lastReadMessageId;
+    private Integer unreadCount;
+}
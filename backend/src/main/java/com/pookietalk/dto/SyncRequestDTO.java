@@ -0,0 +1,15 @@
+package com.pookietalk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncRequestDTO {
+    // chatId -> id of the newest message the client already has (0 if none)
+    private Map<Long, Long> lastSeen;
+}
@@ -0,0 +1,15 @@
+package com.pookietalk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncResponseDTO {
+    // Only chats the caller is a member of; unknown or foreign chat ids are left out
+    private Map<Long, ChatSyncDTO> chats;
+}
@@ -0,0 +1,16 @@
+package com.pookietalk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypingEventDTO {
+    private Long chatId;
+    // Users who started or kept typing since the previous event for this chat
+    private Set<Long> userIds;
+}
@@ -1,10 +1,12 @@
 package com.pookietalk.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
+@AllArgsConstructor
 public class UserDTO {
     private Long id;
     private String username;
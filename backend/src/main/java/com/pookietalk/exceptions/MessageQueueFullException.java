@@ -0,0 +1,7 @@
+package com.pookietalk.exceptions;
+
+public class MessageQueueFullException extends RuntimeException {
+    public MessageQueueFullException(String message) {
+        super(message);
+    }
+}
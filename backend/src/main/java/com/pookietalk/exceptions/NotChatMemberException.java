@@ -0,0 +1,7 @@
+package com.pookietalk.exceptions;
+
+public class NotChatMemberException extends RuntimeException {
+    public NotChatMemberException(String message) {
+        super(message);
+    }
+}
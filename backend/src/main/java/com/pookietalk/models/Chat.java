@@ -14,18 +14,21 @@ import java.util.Set;
 public class Chat implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @Column(name = "chat_name", nullable = false)
     private String chatName;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    // Lazy: listings read participant ids through ChatRepository projections instead
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "chat_participants",
         joinColumns = @JoinColumn(name = "chat_id"),
         inverseJoinColumns = @JoinColumn(name = "user_id")
     )
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Set<User> participants = new HashSet<>();
 
     // Constructor for setting only ID
@@ -0,0 +1,54 @@
+package com.pookietalk.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Persisted read position of one user in one chat. Reads and writes go through
+ * {@link com.pookietalk.repositories.ReadStateRepository}; the mapping keeps the table in
+ * Hibernate's schema.
+ */
+@Entity
+@Table(name = "chat_read_state")
+@IdClass(ChatReadState.Key.class)
+@Data
+@NoArgsConstructor
+public class ChatReadState {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "chat_id")
+    private Long chatId;
+
+    @Column(name = "last_read_message_id", nullable = false)
+    private long lastReadMessageId;
+
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    // Set by the database on every upsert
+    @Column(name = "updated_at", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3)")
+    private LocalDateTime updatedAt;
+
+    public ChatReadState(Long userId, Long chatId, long lastReadMessageId, int unreadCount) {
+        this.userId = userId;
+        this.chatId = chatId;
+        this.lastReadMessageId = lastReadMessageId;
+        this.unreadCount = unreadCount;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private Long chatId;
+    }
+}
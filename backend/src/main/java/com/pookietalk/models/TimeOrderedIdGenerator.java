@@ -0,0 +1,36 @@
+package com.pookietalk.models;
+
+import com.pookietalk.utils.IdGenerator;
+import com.pookietalk.utils.SnowflakeIdGenerator;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+
+/**
+ * Hibernate adapter for {@link TimeOrderedId}. Delegates to the {@link IdGenerator} found
+ * in the Hibernate settings under {@link #GENERATOR_SETTING} (registered by
+ * {@code IdGeneratorConfig}), so the whole application shares one generator and one node id.
+ */
+public class TimeOrderedIdGenerator implements IdentifierGenerator {
+
+    public static final String GENERATOR_SETTING = "pookietalk.id.generator";
+
+    private final IdGenerator idGenerator;
+
+    public TimeOrderedIdGenerator(TimeOrderedId config, Member member, CustomIdGeneratorCreationContext context) {
+        Object configured = context.getServiceRegistry()
+                .getService(ConfigurationService.class)
+                .getSettings()
+                .get(GENERATOR_SETTING);
+        // Outside the Spring context (e.g. JPA slice tests) fall back to a node-0 generator
+        this.idGenerator = configured instanceof IdGenerator generator ? generator : new SnowflakeIdGenerator(0);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return idGenerator.nextId();
+    }
+}
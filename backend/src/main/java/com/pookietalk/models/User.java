@@ -23,7 +23,7 @@ import java.util.Set;
 public class User implements UserDetails {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @NotBlank(message = "Username is required")
@@ -38,6 +38,7 @@ public class User implements UserDetails {
     @Pattern(regexp = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=]).*$",
             message = "Password must contain at least one digit, one lowercase, one uppercase letter and one special character")
     @Column(nullable = false)
+    @ToString.Exclude
     private String password;
 
     @NotBlank(message = "Email is required")
@@ -50,8 +51,12 @@ public class User implements UserDetails {
     private Role role;
 
     // Added @Builder.Default for initialized collection
+    // Excluded from toString/equals/hashCode: the user is used as the security principal,
+    // which must not touch this lazy collection outside a session
     @Builder.Default
     @ManyToMany(mappedBy = "participants")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Set<Chat> chats = new HashSet<>();
 
     // Added @Builder.Default for initialized booleans
@@ -71,6 +76,11 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private boolean enabled = true;
 
+    // Bumped to invalidate every token issued to this user (see TokenEpochService)
+    @Builder.Default
+    @Column(name = "token_epoch", nullable = false)
+    private long tokenEpoch = 0;
+
     @Transient
     private String confirmPassword; // Often used in DTOs, ensure it's needed here
 
@@ -1,11 +1,60 @@
 package com.pookietalk.repositories;
 
 import com.pookietalk.models.Chat;
-import com.pookietalk.models.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ChatRepository extends JpaRepository<Chat, Long> {
-    List<Chat> findByParticipantsContaining(User user);
+
+    // Projections for chat listings: only ids and names are read, never users rows
+
+    interface ChatSummary {
+        Long getId();
+        String getChatName();
+    }
+
+    interface ParticipantRow {
+        Long getChatId();
+        Long getUserId();
+    }
+
+    @Query("select c.id as id, c.chatName as chatName from Chat c where c.id = :id")
+    Optional<ChatSummary> findSummaryById(@Param("id") Long id);
+
+    @Query("select c.id as id, c.chatName as chatName from Chat c order by c.id")
+    List<ChatSummary> findAllSummaries();
+
+    @Query("select c.id as id, c.chatName as chatName from Chat c where c.id > :after order by c.id")
+    List<ChatSummary> findSummariesAfter(@Param("after") Long after, Limit limit);
+
+    @Query(value = "SELECT c.id AS id, c.chat_name AS chatName FROM chats c "
+            + "JOIN chat_participants cp ON cp.chat_id = c.id "
+            + "WHERE cp.user_id = :userId ORDER BY c.id", nativeQuery = true)
+    List<ChatSummary> findSummariesByParticipant(@Param("userId") Long userId);
+
+    @Query(value = "SELECT chat_id AS chatId, user_id AS userId FROM chat_participants", nativeQuery = true)
+    List<ParticipantRow> findAllParticipantRows();
+
+    @Query(value = "SELECT chat_id AS chatId, user_id AS userId FROM chat_participants "
+            + "WHERE chat_id IN (:chatIds)", nativeQuery = true)
+    List<ParticipantRow> findParticipantRowsByChatIds(@Param("chatIds") Collection<Long> chatIds);
+
+    // Every participant of every chat the given user belongs to
+    @Query(value = "SELECT cp.chat_id AS chatId, cp.user_id AS userId FROM chat_participants me "
+            + "JOIN chat_participants cp ON cp.chat_id = me.chat_id "
+            + "WHERE me.user_id = :userId", nativeQuery = true)
+    List<ParticipantRow> findParticipantRowsByMember(@Param("userId") Long userId);
+
+    // Reads the join table only; no users rows are loaded
+    @Query(value = "SELECT user_id FROM chat_participants WHERE chat_id = :chatId", nativeQuery = true)
+    List<Long> findParticipantIds(@Param("chatId") Long chatId);
+
+    @Query(value = "SELECT chat_id FROM chat_participants WHERE user_id = :userId", nativeQuery = true)
+    List<Long> findChatIdsByParticipant(@Param("userId") Long userId);
 }
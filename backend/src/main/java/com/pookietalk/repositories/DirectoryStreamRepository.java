@@ -0,0 +1,94 @@
+package com.pookietalk.repositories;
+
+import com.pookietalk.dto.ChatDTO;
+import com.pookietalk.dto.UserDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.function.Consumer;
+
+/**
+ * Forward-only JDBC cursors over the users and chats tables for export-style listings.
+ * Rows are handed to the consumer one at a time as they arrive (see {@link StreamingStatements}),
+ * so memory use does not depend on table size.
+ *
+ * <p>Each listing holds a pooled connection until the consumer, typically an HTTP client, has
+ * taken the last row. A listing still running after {@code directory.stream.max-duration} is
+ * aborted, so a slow client cannot keep a connection indefinitely.
+ */
+@Repository
+public class DirectoryStreamRepository {
+
+    private static final String USERS_SQL = "SELECT id, username, email FROM users ORDER BY id";
+
+    // Ordered by chat so each chat's participant rows arrive together
+    private static final String CHATS_SQL = "SELECT c.id, c.chat_name, cp.user_id FROM chats c "
+            + "LEFT JOIN chat_participants cp ON cp.chat_id = c.id ORDER BY c.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+    private final Duration maxDuration;
+
+    public DirectoryStreamRepository(JdbcTemplate jdbcTemplate,
+                                     @Value("${directory.stream.fetch-size:1000}") int fetchSize,
+                                     @Value("${directory.stream.max-duration:PT5M}") Duration maxDuration) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+        this.maxDuration = maxDuration;
+    }
+
+    /**
+     * @throws QueryTimeoutException if the consumer has not taken every row within the maximum duration
+     */
+    public void streamUsers(Consumer<UserDTO> consumer) {
+        long deadline = deadline();
+        jdbcTemplate.query(StreamingStatements.forwardOnly(USERS_SQL, fetchSize), (ResultSet rs) -> {
+            checkDeadline(deadline);
+            consumer.accept(new UserDTO(rs.getLong(1), rs.getString(2), rs.getString(3)));
+        });
+    }
+
+    /**
+     * @throws QueryTimeoutException if the consumer has not taken every row within the maximum duration
+     */
+    public void streamChats(Consumer<ChatDTO> consumer) {
+        long deadline = deadline();
+        ChatDTO[] current = new ChatDTO[1];
+        jdbcTemplate.query(StreamingStatements.forwardOnly(CHATS_SQL, fetchSize), (ResultSet rs) -> {
+            checkDeadline(deadline);
+            long chatId = rs.getLong(1);
+            if (current[0] == null || current[0].getId() != chatId) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
+                }
+                ChatDTO chat = new ChatDTO();
+                chat.setId(chatId);
+                chat.setChatName(rs.getString(2));
+                chat.setParticipantIds(new HashSet<>());
+                current[0] = chat;
+            }
+            long userId = rs.getLong(3);
+            if (!rs.wasNull()) {
+                current[0].getParticipantIds().add(userId);
+            }
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
+
+    private long deadline() {
+        return System.nanoTime() + maxDuration.toNanos();
+    }
+
+    private void checkDeadline(long deadline) {
+        if (System.nanoTime() - deadline > 0) {
+            throw new QueryTimeoutException("Listing not consumed within " + maxDuration + ", aborted");
+        }
+    }
+}
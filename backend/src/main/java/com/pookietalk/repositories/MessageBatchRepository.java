@@ -0,0 +1,107 @@
+package com.pookietalk.repositories;
+
+import com.pookietalk.dto.MessageDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access to the messages table for bulk writes that bypass the persistence context.
+ */
+@Repository
+public class MessageBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (id, chat_id, sender_id, content, timestamp) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SELECT_ALL_SQL =
+            "SELECT id, chat_id, sender_id, content, timestamp FROM messages ORDER BY id";
+
+    private static final String SELECT_CHATS_BEFORE_SQL = "SELECT DISTINCT chat_id FROM messages WHERE id < ? AND timestamp < ?";
+
+    // Range scans on the (chat_id, id) index
+    private static final String SELECT_CHAT_RANGE_SQL = "SELECT id, chat_id, sender_id, content, timestamp FROM messages "
+            + "WHERE chat_id = ? AND id > ? AND id < ? ORDER BY id LIMIT ?";
+
+    private static final String DELETE_CHAT_UP_TO_SQL = "DELETE FROM messages WHERE chat_id = ? AND id <= ? LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MessageBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts the given messages as one JDBC batch. With {@code rewriteBatchedStatements=true}
+     * on the MySQL URL the driver sends this as a single multi-row INSERT.
+     *
+     * @param messages messages with their ids already assigned
+     */
+    public void insertBatch(List<MessageDTO> messages) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, messages, messages.size(), (ps, message) -> {
+            ps.setLong(1, message.getId());
+            ps.setLong(2, message.getChatId());
+            ps.setLong(3, message.getSenderId());
+            ps.setString(4, message.getContent());
+            ps.setTimestamp(5, Timestamp.valueOf(message.getTimestamp()));
+        });
+    }
+
+    /**
+     * Hands every message to the consumer in id order through a forward-only cursor, so the
+     * table is never held in memory (see {@link StreamingStatements}).
+     */
+    public void streamAll(int fetchSize, Consumer<MessageDTO> consumer) {
+        jdbcTemplate.query(StreamingStatements.forwardOnly(SELECT_ALL_SQL, fetchSize), (ResultSet rs) -> {
+            consumer.accept(toMessage(rs));
+        });
+    }
+
+    /**
+     * @return ids of chats that have at least one message with an id below {@code beforeId} and
+     *         a timestamp before {@code before}
+     */
+    public List<Long> findChatIdsWithMessagesBefore(long beforeId, LocalDateTime before) {
+        return jdbcTemplate.queryForList(SELECT_CHATS_BEFORE_SQL, Long.class, beforeId, Timestamp.valueOf(before));
+    }
+
+    /**
+     * @return up to {@code limit} messages of the chat with ids strictly between the bounds, oldest first
+     */
+    public List<MessageDTO> findChatRange(long chatId, long afterId, long beforeId, int limit) {
+        return jdbcTemplate.query(SELECT_CHAT_RANGE_SQL, (rs, rowNum) -> toMessage(rs), chatId, afterId, beforeId, limit);
+    }
+
+    /**
+     * Deletes the chat's messages up to and including {@code upToId}, at most {@code chunkSize}
+     * rows per statement so no single transaction holds many row locks.
+     *
+     * @return the number of rows deleted
+     */
+    public long deleteChatUpTo(long chatId, long upToId, int chunkSize) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(DELETE_CHAT_UP_TO_SQL, chatId, upToId, chunkSize);
+            total += deleted;
+        } while (deleted == chunkSize);
+        return total;
+    }
+
+    private static MessageDTO toMessage(ResultSet rs) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(5);
+        return MessageDTO.builder()
+                .id(rs.getLong(1))
+                .chatId(rs.getLong(2))
+                .senderId(rs.getLong(3))
+                .content(rs.getString(4))
+                .timestamp(timestamp == null ? null : timestamp.toLocalDateTime())
+                .build();
+    }
+}
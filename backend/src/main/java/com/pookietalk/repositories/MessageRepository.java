@@ -1,10 +1,33 @@
 package com.pookietalk.repositories;
 
 import com.pookietalk.models.Message;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
+
+    // Count and newest id of the messages after a read position, read in one statement so both describe the same rows
+    interface MessagesAfter {
+        long getCount();
+        Long getNewestId();
+    }
+
     List<Message> findByChatId(Long chatId);
+
+    // Keyset queries below are served by the (chat_id, id) index
+    List<Message> findByChatIdOrderByIdDesc(Long chatId, Limit limit);
+
+    List<Message> findByChatIdAndIdLessThanOrderByIdDesc(Long chatId, Long id, Limit limit);
+
+    List<Message> findByChatIdAndIdGreaterThanOrderByIdAsc(Long chatId, Long id, Limit limit);
+
+    @Query("select count(m) as count, max(m.id) as newestId from Message m where m.chat.id = :chatId and m.id > :afterId")
+    MessagesAfter countAfter(@Param("chatId") Long chatId, @Param("afterId") Long afterId);
+
+    @Query("select max(m.id) from Message m where m.chat.id = :chatId")
+    Long findNewestId(@Param("chatId") Long chatId);
 }
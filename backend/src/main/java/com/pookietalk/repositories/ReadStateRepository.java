@@ -0,0 +1,83 @@
+package com.pookietalk.repositories;
+
+import com.pookietalk.models.ChatReadState;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access to {@code chat_read_state} for the batched flushes, the startup load and
+ * the multi-node refresh of ReadStateService.
+ */
+@Repository
+public class ReadStateRepository {
+
+    private static final String SELECT_ALL_SQL =
+            "SELECT user_id, chat_id, last_read_message_id, unread_count FROM chat_read_state";
+
+    private static final String SELECT_CHANGED_SQL = SELECT_ALL_SQL + " WHERE updated_at >= ?";
+
+    private static final String SELECT_NOW_SQL = "SELECT CURRENT_TIMESTAMP(3)";
+
+    // A row whose last-read position moved forward replaces the count; otherwise the new unread
+    // messages are added, so several nodes can flush into the same row without losing counts.
+    // unread_count is assigned first so it still compares against the old last_read_message_id.
+    // CASE rather than IF() so the statement also runs on H2 in MySQL mode (load tests).
+    // updated_at is database time, so nodes with skewed clocks agree on it.
+    private static final String UPSERT_SQL =
+            "INSERT INTO chat_read_state (user_id, chat_id, last_read_message_id, unread_count, updated_at) "
+                    + "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP(3)) "
+                    + "ON DUPLICATE KEY UPDATE "
+                    + "unread_count = CASE WHEN VALUES(last_read_message_id) > last_read_message_id "
+                    + "THEN VALUES(unread_count) ELSE unread_count + VALUES(unread_count) END, "
+                    + "last_read_message_id = GREATEST(last_read_message_id, VALUES(last_read_message_id)), "
+                    + "updated_at = CURRENT_TIMESTAMP(3)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReadStateRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void streamAll(Consumer<ChatReadState> consumer) {
+        jdbcTemplate.query(StreamingStatements.forwardOnly(SELECT_ALL_SQL, 1000), (ResultSet rs) -> {
+            consumer.accept(row(rs));
+        });
+    }
+
+    /**
+     * @param since database time, as returned by {@link #currentTime()}
+     */
+    public void streamChangedSince(LocalDateTime since, Consumer<ChatReadState> consumer) {
+        jdbcTemplate.query(SELECT_CHANGED_SQL, (ResultSet rs) -> {
+            consumer.accept(row(rs));
+        }, Timestamp.valueOf(since));
+    }
+
+    public LocalDateTime currentTime() {
+        return jdbcTemplate.queryForObject(SELECT_NOW_SQL, Timestamp.class).toLocalDateTime();
+    }
+
+    /**
+     * @param changes per row: the last-read id if it moved since the previous flush (otherwise 0)
+     *                and the unread messages to add, or the new total when the last-read id moved
+     */
+    public void upsertBatch(List<ChatReadState> changes) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, changes, changes.size(), (ps, change) -> {
+            ps.setLong(1, change.getUserId());
+            ps.setLong(2, change.getChatId());
+            ps.setLong(3, change.getLastReadMessageId());
+            ps.setInt(4, change.getUnreadCount());
+        });
+    }
+
+    private static ChatReadState row(ResultSet rs) throws SQLException {
+        return new ChatReadState(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getInt(4));
+    }
+}
@@ -0,0 +1,39 @@
+package com.pookietalk.repositories;
+
+import org.springframework.jdbc.core.PreparedStatementCreator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Forward-only statements whose rows are read as they arrive rather than buffered. MySQL
+ * Connector/J buffers the whole result unless the fetch size is {@link Integer#MIN_VALUE}, which
+ * makes it stream row by row, so that is applied per statement here instead of turning on
+ * {@code useCursorFetch} (server-side prepared statements) for every query on the pool. Other
+ * databases get the given fetch size.
+ *
+ * <p>While such a result is open its connection can run nothing else, and the server aborts it
+ * if the rows are not read for {@code netTimeoutForStreamingResults} seconds (see the datasource
+ * URL).
+ */
+final class StreamingStatements {
+
+    private static final int MYSQL_ROW_STREAMING = Integer.MIN_VALUE;
+
+    private StreamingStatements() {
+    }
+
+    static PreparedStatementCreator forwardOnly(String sql, int fetchSize) {
+        return connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(isMySql(connection) ? MYSQL_ROW_STREAMING : fetchSize);
+            return ps;
+        };
+    }
+
+    private static boolean isMySql(Connection connection) throws SQLException {
+        return "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+    }
+}
@@ -1,10 +1,35 @@
 package com.pookietalk.repositories;
 
+import com.pookietalk.dto.UserDTO;
 import com.pookietalk.models.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
+    boolean existsByUsername(String username);
+    boolean existsByEmail(String email);
+
+    // Keyset page over the primary key; reads only the columns UserDTO exposes
+    @Query("select new com.pookietalk.dto.UserDTO(u.id, u.username, u.email) from User u "
+            + "where u.id > :after order by u.id")
+    List<UserDTO> findPageAfter(@Param("after") Long after, Limit limit);
+
+    // Empty for unknown, disabled, locked or expired accounts
+    @Query("select u.tokenEpoch from User u where u.id = :id and u.enabled = true "
+            + "and u.accountNonLocked = true and u.accountNonExpired = true")
+    Optional<Long> findActiveTokenEpoch(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.tokenEpoch = u.tokenEpoch + 1 where u.id = :id")
+    int incrementTokenEpoch(@Param("id") Long id);
 }
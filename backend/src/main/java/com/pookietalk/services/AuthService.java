@@ -2,15 +2,17 @@ package com.pookietalk.services;
 
 import com.pookietalk.dto.AuthRequestDTO;
 import com.pookietalk.dto.AuthResponseDTO;
+import com.pookietalk.dto.AvailabilityDTO;
 import com.pookietalk.models.Role;
 import com.pookietalk.models.User;
 import com.pookietalk.repositories.UserRepository;
 import com.pookietalk.utils.PasswordUtil;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -26,30 +28,34 @@ public class AuthService {
     private JwtService jwtService;
 
     @Autowired
-    private UserService userService;
+    private PasswordUtil passwordUtil;
 
     @Autowired
-    private PasswordUtil passwordUtil;
+    private UserAvailabilityFilter userAvailabilityFilter;
 
+    /**
+     * Checks the credentials and issues a token. The user loaded by the authentication manager
+     * is reused for the token and the response, so a login reads the user once.
+     */
+    @Timed(value = "auth.authenticate", description = "Logins, including password hashing", histogram = true)
     public AuthResponseDTO authenticate(AuthRequestDTO request) {
-        authenticationManager.authenticate(
+        Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
         );
 
-        UserDetails userDetails = userService.loadUserByUsername(request.getUsername());
-
-        User user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
-
-        String token = jwtService.generateToken(userDetails);
+        User user = (User) authentication.getPrincipal();
+        String token = jwtService.generateToken(user);
 
         return new AuthResponseDTO(token, user.getId(), user.getUsername(), user.getEmail());
     }
 
     public AuthResponseDTO register(AuthRequestDTO request) {
-        if (userRepository.findByUsername(request.getUsername()).isPresent()) {
+        if (isUsernameTaken(request.getUsername())) {
             throw new IllegalArgumentException("Username already exists.");
         }
+        if (isEmailTaken(request.getEmail())) {
+            throw new IllegalArgumentException("Email already exists.");
+        }
 
         User user = new User();
         user.setUsername(request.getUsername());
@@ -57,11 +63,38 @@ public class AuthService {
         user.setEmail(request.getEmail());
         user.setRole(Role.USER);
 
-        User savedUser = userRepository.save(user); // fix: get user ID after save
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user); // fix: get user ID after save
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent registration, possibly on another backend, took the name or email first
+            throw new IllegalArgumentException("Username or email already exists.");
+        }
+        userAvailabilityFilter.add(savedUser.getUsername(), savedUser.getEmail());
 
-        UserDetails userDetails = userService.loadUserByUsername(savedUser.getUsername());
-        String token = jwtService.generateToken(userDetails);
+        String token = jwtService.generateToken(savedUser);
 
         return new AuthResponseDTO(token, savedUser.getId(), savedUser.getUsername(), savedUser.getEmail());
     }
+
+    /**
+     * Reports whether a username and/or email could still be registered. Values the
+     * availability filter has never seen are answered without a query.
+     *
+     * @param username may be null if only the email is checked
+     * @param email    may be null if only the username is checked
+     */
+    public AvailabilityDTO checkAvailability(String username, String email) {
+        Boolean usernameAvailable = username == null ? null : !isUsernameTaken(username);
+        Boolean emailAvailable = email == null ? null : !isEmailTaken(email);
+        return new AvailabilityDTO(usernameAvailable, emailAvailable);
+    }
+
+    private boolean isUsernameTaken(String username) {
+        return userAvailabilityFilter.mightHaveUsername(username) && userRepository.existsByUsername(username);
+    }
+
+    private boolean isEmailTaken(String email) {
+        return userAvailabilityFilter.mightHaveEmail(email) && userRepository.existsByEmail(email);
+    }
 }
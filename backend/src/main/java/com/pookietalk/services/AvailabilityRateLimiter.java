@@ -0,0 +1,57 @@
+package com.pookietalk.services;
+
+import com.pookietalk.exceptions.RateLimitExceededException;
+import com.pookietalk.utils.TokenBuckets;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-client token bucket for {@code GET /api/auth/availability}. The endpoint is open to
+ * anonymous callers, so without a limit it would let anyone test lists of emails against the
+ * users table. Clients are keyed by remote address; behind a reverse proxy that needs
+ * {@code server.forward-headers-strategy} so the address is the caller's, not the proxy's.
+ *
+ * <p>The rate is {@code users.availability.rate-limit.per-minute} with a burst of
+ * {@code users.availability.rate-limit.burst}, kept in {@link TokenBuckets}. Rejections are
+ * counted in {@code users.availability.rate_limited}.
+ */
+@Component
+public class AvailabilityRateLimiter {
+
+    private final boolean enabled;
+    private final TokenBuckets.Limit limit;
+    private final Counter rejections;
+    private final TokenBuckets<String> buckets;
+
+    public AvailabilityRateLimiter(@Value("${users.availability.rate-limit.enabled:true}") boolean enabled,
+                                   @Value("${users.availability.rate-limit.per-minute:30}") double perMinute,
+                                   @Value("${users.availability.rate-limit.burst:10}") int burst,
+                                   @Value("${users.availability.rate-limit.max-tracked-clients:100000}") long maxTrackedClients,
+                                   MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.limit = TokenBuckets.Limit.of(perMinute / 60, burst);
+        this.buckets = new TokenBuckets<>(maxTrackedClients, limit);
+        buckets.monitor(meterRegistry, "users.availability.rate-limit");
+        this.rejections = Counter.builder("users.availability.rate_limited")
+                .description("Availability checks rejected by the per-client rate limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes one check from the client's bucket.
+     *
+     * @throws RateLimitExceededException if the bucket is empty
+     */
+    public void acquire(String clientAddress) {
+        if (!enabled) {
+            return;
+        }
+        long retryAfterSeconds = buckets.tryAcquire(clientAddress, limit);
+        if (retryAfterSeconds > 0) {
+            rejections.increment();
+            throw new RateLimitExceededException("Too many availability checks, please slow down", retryAfterSeconds);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.pookietalk.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pookietalk.exceptions.ChatNotFoundException;
+import com.pookietalk.exceptions.NotChatMemberException;
+import com.pookietalk.repositories.ChatRepository;
+import com.pookietalk.utils.CacheLoads;
+import com.pookietalk.utils.LongSortedSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * In-memory index of chat id to participant user ids. It answers "does this chat exist",
+ * "is this user a member" and "who receives this message" without a database query.
+ *
+ * <p>ChatService fills in the entry of each chat it creates; any other chat is loaded lazily
+ * from {@code chat_participants} on first use. Chats have no API to change members or to be
+ * deleted, so entries are never patched. The index is bounded by the total number of member
+ * ids it holds ({@code chat.membership.max-member-ids}). Cold chats are evicted and reloaded
+ * on their next use.
+ */
+@Component
+public class ChatMembershipIndex {
+
+    private final ChatRepository chatRepository;
+    private final Cache<Long, LongSortedSet> members;
+
+    public ChatMembershipIndex(ChatRepository chatRepository,
+                               @Value("${chat.membership.max-member-ids:5000000}") long maxMemberIds,
+                               MeterRegistry meterRegistry) {
+        this.chatRepository = chatRepository;
+        this.members = Caffeine.newBuilder()
+                .maximumWeight(maxMemberIds)
+                .weigher((Long chatId, LongSortedSet ids) -> ids.size() + 1)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, members, "chats.membership");
+    }
+
+    /**
+     * @param chatId the chat to look up
+     * @return the chat's participant ids
+     * @throws ChatNotFoundException if the chat does not exist
+     */
+    public LongSortedSet getMembers(Long chatId) {
+        LongSortedSet ids = CacheLoads.getOrLoad(members, chatId, this::load);
+        if (ids == null) {
+            throw new ChatNotFoundException("Chat not found with id: " + chatId);
+        }
+        return ids;
+    }
+
+    public void requireChat(Long chatId) {
+        getMembers(chatId);
+    }
+
+    /**
+     * @throws ChatNotFoundException  if the chat does not exist
+     * @throws NotChatMemberException if the user is not a participant
+     */
+    public void requireMember(Long chatId, Long userId) {
+        if (!getMembers(chatId).contains(userId)) {
+            throw new NotChatMemberException("User " + userId + " is not a member of chat " + chatId);
+        }
+    }
+
+    public void onChatCreated(Long chatId, Collection<Long> participantIds) {
+        members.put(chatId, LongSortedSet.of(participantIds));
+    }
+
+    private LongSortedSet load(Long chatId) {
+        if (!chatRepository.existsById(chatId)) {
+            // Not cached, so a chat created on another node is found on the next call
+            return null;
+        }
+        return LongSortedSet.of(chatRepository.findParticipantIds(chatId));
+    }
+}
@@ -1,16 +1,26 @@
 package com.pookietalk.services;
 
 import com.pookietalk.dto.ChatDTO;
+import com.pookietalk.dto.CursorPageDTO;
 import com.pookietalk.exceptions.ChatNotFoundException;
 import com.pookietalk.exceptions.UserNotFoundException;
 import com.pookietalk.models.Chat;
 import com.pookietalk.models.User;
 import com.pookietalk.repositories.ChatRepository;
+import com.pookietalk.repositories.ChatRepository.ChatSummary;
+import com.pookietalk.repositories.ChatRepository.ParticipantRow;
+import com.pookietalk.repositories.DirectoryStreamRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,6 +32,21 @@ public class ChatService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ChatMembershipIndex chatMembershipIndex;
+
+    @Autowired
+    private DirectoryStreamRepository directoryStreamRepository;
+
+    @Autowired
+    private ReadStateService readStateService;
+
+    @Value("${chat.page.default-size:100}")
+    private int defaultPageSize = 100;
+
+    @Value("${chat.page.max-size:1000}")
+    private int maxPageSize = 1000;
+
     public ChatDTO createChat(ChatDTO chatDTO) {
         Chat chat = new Chat();
         chat.setChatName(chatDTO.getChatName());
@@ -34,32 +59,84 @@ public class ChatService {
         chat.setParticipants(participants);
         chat = chatRepository.save(chat);
 
-        return convertToDTO(chat);
+        ChatDTO saved = convertToDTO(chat);
+        chatMembershipIndex.onChatCreated(saved.getId(), saved.getParticipantIds());
+        return saved;
     }
 
-    public Chat getChatById(Long id) {
-        return chatRepository.findById(id)
+    public ChatDTO getChatById(Long id) {
+        ChatSummary summary = chatRepository.findSummaryById(id)
                 .orElseThrow(() -> new ChatNotFoundException("Chat not found with id: " + id));
+        Set<Long> participantIds = chatMembershipIndex.getMembers(id).stream()
+                .boxed()
+                .collect(Collectors.toSet());
+        return toDTO(summary, participantIds);
     }
 
     public List<ChatDTO> getAllChats() {
-        return chatRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return assemble(chatRepository.findAllSummaries(), chatRepository.findAllParticipantRows());
+    }
+
+    /**
+     * Returns one page of chats ordered by id, using the id as a keyset cursor. Costs two
+     * statements: the chat page and the participants of just those chats.
+     *
+     * @param after only return chats with an id higher than this (may be null for the first page)
+     * @param limit requested page size, clamped to the configured maximum (may be null)
+     */
+    public CursorPageDTO<ChatDTO> getChatPage(Long after, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        List<ChatSummary> rows = chatRepository.findSummariesAfter(after == null ? Long.MIN_VALUE : after, Limit.of(pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatSummary> summaries = hasMore ? rows.subList(0, pageSize) : rows;
+        List<ChatDTO> chats = summaries.isEmpty()
+                ? List.of()
+                : assemble(summaries, chatRepository.findParticipantRowsByChatIds(
+                        summaries.stream().map(ChatSummary::getId).toList()));
+        Long nextCursor = hasMore ? chats.get(chats.size() - 1).getId() : null;
+        return new CursorPageDTO<>(chats, nextCursor, hasMore);
+    }
+
+    /**
+     * Hands every chat to the consumer in id order without materializing the table.
+     */
+    public void streamAllChats(Consumer<ChatDTO> consumer) {
+        directoryStreamRepository.streamChats(consumer);
     }
 
     public List<ChatDTO> getUserChats(String username) {
         try {
             Long userId = userService.getUserByUsername(username).getId();
-            User user = new User(userId);
-            return chatRepository.findByParticipantsContaining(user).stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            List<ChatDTO> chats = assemble(chatRepository.findSummariesByParticipant(userId),
+                    chatRepository.findParticipantRowsByMember(userId));
+            // Counters live in memory, so unread counts add no statements
+            chats.forEach(chat -> chat.setUnreadCount(readStateService.getUnreadCount(userId, chat.getId())));
+            return chats;
         } catch (Exception e) {
             throw new UserNotFoundException("User not found with username: " + username);
         }
     }
 
+    // Two statements per listing regardless of how many chats or participants there are
+    private List<ChatDTO> assemble(List<ChatSummary> summaries, List<ParticipantRow> participantRows) {
+        Map<Long, Set<Long>> participantsByChat = new HashMap<>();
+        for (ParticipantRow row : participantRows) {
+            participantsByChat.computeIfAbsent(row.getChatId(), id -> new HashSet<>()).add(row.getUserId());
+        }
+        return summaries.stream()
+                .map(summary -> toDTO(summary, participantsByChat.getOrDefault(summary.getId(), new HashSet<>())))
+                .collect(Collectors.toList());
+    }
+
+    private ChatDTO toDTO(ChatSummary summary, Set<Long> participantIds) {
+        ChatDTO dto = new ChatDTO();
+        dto.setId(summary.getId());
+        dto.setChatName(summary.getChatName());
+        dto.setParticipantIds(participantIds);
+        return dto;
+    }
+
     private ChatDTO convertToDTO(Chat chat) {
         ChatDTO dto = new ChatDTO();
         dto.setId(chat.getId());
@@ -1,17 +1,24 @@
 package com.pookietalk.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.pookietalk.models.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 // import io.jsonwebtoken.SignatureAlgorithm; // No longer needed for HS256 constant
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger; // Optional: For logging errors
 import org.slf4j.LoggerFactory; // Optional: For logging errors
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey; // Use SecretKey for type safety with HMAC
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -23,12 +30,46 @@ public class JwtService {
     // Optional: Logger for better error handling
     private static final Logger logger = LoggerFactory.getLogger(JwtService.class);
 
+    // Signed claims that let the request filter rebuild the principal without a user lookup
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_TOKEN_EPOCH = "epoch";
+
     @Value("${spring.security.jwt.secret}")
     private String secretKey; // Your secret key from properties (ensure it's Base64 encoded and secure)
 
     @Value("${spring.security.jwt.expiration}")
     private long jwtExpiration; // e.g., 86400000 = 1 day in milliseconds
 
+    @Value("${spring.security.jwt.cache.max-size:10000}")
+    private long verifiedTokenCacheSize; // 0 disables the verified-token cache
+
+    @Value("${spring.security.jwt.cache.max-ttl:PT5M}")
+    private Duration verifiedTokenCacheTtl; // Upper bound on how long a verified token is trusted without re-checking
+
+    // Built once in init(); both are immutable and thread-safe
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+    private Cache<String, Claims> verifiedTokens;
+
+    /**
+     * Decodes the secret and builds the signing key and parser once, instead of on every
+     * token operation, and sets up the bounded cache of recently verified tokens.
+     */
+    @PostConstruct
+    void init() {
+        signingKey = getSignInKey();
+        jwtParser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        if (verifiedTokenCacheSize > 0) {
+            verifiedTokens = Caffeine.newBuilder()
+                    .maximumSize(verifiedTokenCacheSize)
+                    .expireAfter(new TokenExpiry(verifiedTokenCacheTtl))
+                    .build();
+        }
+    }
+
     /**
      * Extracts the username (subject) from the JWT token.
      *
@@ -39,6 +80,27 @@ public class JwtService {
         return extractClaim(token, Claims::getSubject);
     }
 
+    /**
+     * Verifies the token signature and expiry and returns its claims. Recently verified
+     * tokens are served from a bounded cache until the earlier of their own expiry and the
+     * configured cache TTL, so a client re-sending the same token is only verified once.
+     *
+     * @param token The JWT token.
+     * @return The verified claims.
+     * @throws io.jsonwebtoken.JwtException if parsing or verification fails.
+     */
+    public Claims parseToken(String token) {
+        if (verifiedTokens == null) {
+            return extractAllClaims(token);
+        }
+        Claims claims = verifiedTokens.getIfPresent(token);
+        if (claims == null) {
+            claims = extractAllClaims(token);
+            verifiedTokens.put(token, claims);
+        }
+        return claims;
+    }
+
     /**
      * Extracts a specific claim from the JWT token using a claims resolver function.
      *
@@ -48,7 +110,7 @@ public class JwtService {
      * @return The extracted claim.
      */
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
@@ -64,20 +126,26 @@ public class JwtService {
 
     /**
      * Generates a JWT token for the given UserDetails with additional claims.
-     * Uses the modern JJWT builder API.
+     * Uses the modern JJWT builder API. When the user is a {@link User} entity, its id,
+     * role and token epoch are added as claims for stateless principal reconstruction.
      *
      * @param extraClaims Additional claims to include in the token.
      * @param userDetails The user details.
      * @return The generated JWT token.
      */
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        SecretKey key = getSignInKey(); // Get the signing key
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        if (userDetails instanceof User user && user.getId() != null && user.getRole() != null) {
+            claims.put(CLAIM_USER_ID, user.getId());
+            claims.put(CLAIM_ROLE, user.getRole().name());
+            claims.put(CLAIM_TOKEN_EPOCH, user.getTokenEpoch());
+        }
         String token = Jwts.builder()
-                .claims(extraClaims) // Use claims() instead of setClaims()
+                .claims(claims) // Use claims() instead of setClaims()
                 .subject(userDetails.getUsername()) // Use subject() instead of setSubject()
                 .issuedAt(new Date(System.currentTimeMillis())) // Use issuedAt() instead of setIssuedAt()
                 .expiration(new Date(System.currentTimeMillis() + jwtExpiration)) // Use expiration() instead of setExpiration()
-                .signWith(key, Jwts.SIG.HS256) // Use signWith(SecretKey, Algorithm) and Jwts.SIG constants
+                .signWith(signingKey, Jwts.SIG.HS256) // Use signWith(SecretKey, Algorithm) and Jwts.SIG constants
                 .compact();
 
         // Optional debug log — remove in production or use logger
@@ -106,6 +174,20 @@ public class JwtService {
         }
     }
 
+    /**
+     * Validates already-parsed claims against the UserDetails. Lets callers that needed the
+     * claims anyway (e.g. to read the subject) avoid parsing the token a second time.
+     *
+     * @param claims      Claims returned by {@link #parseToken(String)}.
+     * @param userDetails The user details to validate against.
+     * @return True if the claims belong to the user and have not expired.
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        Date expiration = claims.getExpiration();
+        return userDetails.getUsername().equals(claims.getSubject())
+                && expiration != null && expiration.after(new Date());
+    }
+
     /**
      * Checks if the JWT token has expired.
      *
@@ -142,10 +224,7 @@ public class JwtService {
      * @throws io.jsonwebtoken.JwtException if parsing or verification fails.
      */
     private Claims extractAllClaims(String token) {
-        SecretKey key = getSignInKey(); // Get the verification key
-        return Jwts.parser() // Use the simpler parser() entry point
-                .verifyWith(key) // Specify the key for verification
-                .build()
+        return jwtParser
                 .parseSignedClaims(token) // Parse and verify the token
                 .getPayload(); // Get the claims payload
     }
@@ -171,15 +250,10 @@ public class JwtService {
      * @throws RuntimeException if the token cannot be refreshed (e.g., malformed, invalid signature).
      */
     public String refreshToken(String token) {
-        SecretKey key = getSignInKey(); // Get the signing key
         Claims claims;
         try {
             // Try parsing normally first
-            claims = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            claims = extractAllClaims(token);
         } catch (io.jsonwebtoken.ExpiredJwtException eje) {
             // If token is expired, extract claims from the exception
             logger.warn("Token expired, attempting refresh based on claims. User: {}", eje.getClaims().getSubject());
@@ -196,7 +270,39 @@ public class JwtService {
                 // .subject(claims.getSubject()) // Subject is already in claims map
                 .issuedAt(new Date(System.currentTimeMillis())) // Set new issuedAt time
                 .expiration(new Date(System.currentTimeMillis() + jwtExpiration)) // Set new expiration time
-                .signWith(key, Jwts.SIG.HS256) // Sign with the key and algorithm
+                .signWith(signingKey, Jwts.SIG.HS256) // Sign with the key and algorithm
                 .compact();
     }
+
+    /**
+     * Expires cached tokens at their own expiration time, capped at the configured TTL.
+     */
+    private static final class TokenExpiry implements Expiry<String, Claims> {
+
+        private final long maxTtlNanos;
+
+        private TokenExpiry(Duration maxTtl) {
+            this.maxTtlNanos = maxTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String token, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return maxTtlNanos;
+            }
+            long untilExpiry = Duration.ofMillis(expiration.getTime() - System.currentTimeMillis()).toNanos();
+            return Math.max(0, Math.min(untilExpiry, maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
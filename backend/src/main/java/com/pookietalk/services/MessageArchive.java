@@ -0,0 +1,167 @@
+package com.pookietalk.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.utils.CacheLoads;
+import com.pookietalk.utils.MessageSegment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier of chat history. Each chat's archived messages live in immutable
+ * {@link MessageSegment} files under {@code chat.archive.dir/{chatId}/}, named by their id range
+ * so a directory listing sorts them oldest first. Every archived id is lower than every id still
+ * in the messages table of that chat.
+ *
+ * <p>Mapped segments of recently read chats stay open, bounded by
+ * {@code chat.archive.max-open-chats}; cache statistics are published as
+ * {@code cache.*{cache=messages.archive}}. The directory is local to the node, so with several
+ * backends it must be shared storage and archiving must run on only one of them.
+ */
+@Component
+@ConditionalOnProperty(prefix = "chat.archive", name = "enabled", havingValue = "true")
+public class MessageArchive {
+
+    private static final String SUFFIX = ".seg";
+
+    private final Path root;
+    private final int blockSize;
+    private final Cache<Long, List<MessageSegment>> segments;
+
+    public MessageArchive(@Value("${chat.archive.dir:data/archive}") Path root,
+                          @Value("${chat.archive.block-size:128}") int blockSize,
+                          @Value("${chat.archive.max-open-chats:10000}") long maxOpenChats,
+                          MeterRegistry meterRegistry) {
+        this.root = root;
+        this.blockSize = blockSize;
+        this.segments = Caffeine.newBuilder()
+                .maximumSize(maxOpenChats)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, segments, "messages.archive");
+    }
+
+    /**
+     * @return the highest archived message id of the chat, or 0 if nothing is archived
+     */
+    public long getLastArchivedId(Long chatId) {
+        List<MessageSegment> chatSegments = segmentsOf(chatId);
+        return chatSegments.isEmpty() ? 0L : chatSegments.get(chatSegments.size() - 1).getLastId();
+    }
+
+    /**
+     * @return ids of the chats that have archived messages, in no particular order
+     */
+    public List<Long> getChatIds() {
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> dirs = Files.list(root)) {
+            return dirs.map(dir -> dir.getFileName().toString())
+                    .filter(name -> name.chars().allMatch(Character::isDigit))
+                    .map(Long::valueOf)
+                    .filter(this::hasMessages)
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean hasMessages(Long chatId) {
+        return !segmentsOf(chatId).isEmpty();
+    }
+
+    public List<MessageDTO> readAll(Long chatId) {
+        List<MessageDTO> messages = new ArrayList<>();
+        for (MessageSegment segment : segmentsOf(chatId)) {
+            messages.addAll(segment.readAll());
+        }
+        return messages;
+    }
+
+    /**
+     * @return up to {@code limit} archived messages with an id below {@code beforeId}, newest first
+     */
+    public List<MessageDTO> readBefore(Long chatId, long beforeId, int limit) {
+        List<MessageSegment> chatSegments = segmentsOf(chatId);
+        List<MessageDTO> messages = new ArrayList<>();
+        for (int i = chatSegments.size() - 1; i >= 0 && messages.size() < limit; i--) {
+            MessageSegment segment = chatSegments.get(i);
+            if (segment.getFirstId() < beforeId) {
+                messages.addAll(segment.readBefore(beforeId, limit - messages.size()));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * @return up to {@code limit} archived messages with an id above {@code afterId}, oldest first
+     */
+    public List<MessageDTO> readAfter(Long chatId, long afterId, int limit) {
+        List<MessageDTO> messages = new ArrayList<>();
+        for (MessageSegment segment : segmentsOf(chatId)) {
+            if (messages.size() >= limit) {
+                break;
+            }
+            if (segment.getLastId() > afterId) {
+                messages.addAll(segment.readAfter(afterId, limit - messages.size()));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Writes the messages as a new segment after the chat's existing ones.
+     *
+     * @param oldestFirst messages in ascending id order, all newer than {@link #getLastArchivedId}
+     */
+    public void append(Long chatId, List<MessageDTO> oldestFirst) {
+        if (oldestFirst.get(0).getId() <= getLastArchivedId(chatId)) {
+            throw new IllegalArgumentException("Chat " + chatId + " already has archived messages up to "
+                    + getLastArchivedId(chatId));
+        }
+        try {
+            Path dir = Files.createDirectories(root.resolve(Long.toString(chatId)));
+            String name = String.format("%020d-%020d%s", oldestFirst.get(0).getId(),
+                    oldestFirst.get(oldestFirst.size() - 1).getId(), SUFFIX);
+            MessageSegment.write(dir.resolve(name), chatId, oldestFirst, blockSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Replaced rather than invalidated: a reader that listed the directory before the write
+        // can then no longer cache its stale list with putIfAbsent
+        segments.put(chatId, open(chatId));
+    }
+
+    private List<MessageSegment> segmentsOf(Long chatId) {
+        return CacheLoads.getOrLoad(segments, chatId, this::open);
+    }
+
+    private List<MessageSegment> open(Long chatId) {
+        Path dir = root.resolve(Long.toString(chatId));
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            List<MessageSegment> opened = new ArrayList<>();
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(SUFFIX)).sorted().toList()) {
+                opened.add(MessageSegment.open(file));
+            }
+            return List.copyOf(opened);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
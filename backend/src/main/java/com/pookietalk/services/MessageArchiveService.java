@@ -0,0 +1,115 @@
+package com.pookietalk.services;
+
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.repositories.MessageBatchRepository;
+import com.pookietalk.utils.SnowflakeIdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Moves messages older than {@code chat.archive.max-age} out of the messages table into
+ * {@link MessageArchive} segments, one chat at a time. Message ids are time-ordered
+ * ({@link SnowflakeIdGenerator}), so "older than" is an id bound and every query is a range scan
+ * on the (chat_id, id) index. Rows from before time-ordered ids are the exception: their small
+ * auto-increment ids sit below any id bound whatever their age. So a chat is only archived up to
+ * its first message whose timestamp is not yet past the cutoff.
+ *
+ * <p>A segment is written and synced before its rows are deleted. If a run dies in between, the
+ * rows are still in the table but already archived, and the next run deletes them before archiving
+ * anything newer. Readers skip table rows at or below the chat's last archived id, so such
+ * leftovers are never returned twice. A chat is only archived once it has at least
+ * {@code chat.archive.segment-min-messages} cold messages, which keeps segments few and large.
+ */
+@Service
+@ConditionalOnProperty(prefix = "chat.archive", name = "enabled", havingValue = "true")
+public class MessageArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageArchiveService.class);
+
+    @Autowired
+    private MessageArchive messageArchive;
+
+    @Autowired
+    private MessageBatchRepository messageBatchRepository;
+
+    @Value("${chat.archive.max-age:P365D}")
+    private Duration maxAge = Duration.ofDays(365);
+
+    @Value("${chat.archive.segment-max-messages:20000}")
+    private int segmentMaxMessages = 20000;
+
+    @Value("${chat.archive.segment-min-messages:500}")
+    private int segmentMinMessages = 500;
+
+    @Value("${chat.archive.delete-chunk-size:1000}")
+    private int deleteChunkSize = 1000;
+
+    @Scheduled(initialDelayString = "${chat.archive.initial-delay-ms:300000}",
+            fixedDelayString = "${chat.archive.interval-ms:86400000}")
+    public void archiveColdMessages() {
+        Instant cutoff = Instant.now().minus(maxAge);
+        long cutoffId = SnowflakeIdGenerator.lowestIdAt(cutoff);
+        // Message timestamps are stored in the server's zone
+        LocalDateTime cutoffTime = LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault());
+        long started = System.nanoTime();
+        long archived = 0;
+        for (Long chatId : messageBatchRepository.findChatIdsWithMessagesBefore(cutoffId, cutoffTime)) {
+            try {
+                archived += archiveChat(chatId, cutoffId, cutoffTime);
+            } catch (RuntimeException e) {
+                logger.error("Archiving chat {} failed; it is retried on the next run", chatId, e);
+            }
+        }
+        if (archived > 0) {
+            logger.info("Archived {} messages in {} ms", archived, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    /**
+     * Archives the chat's messages with an id below {@code cutoffId}, stopping at the first one
+     * whose timestamp is not before {@code cutoffTime}.
+     *
+     * @return the number of messages moved to the archive
+     */
+    public long archiveChat(Long chatId, long cutoffId, LocalDateTime cutoffTime) {
+        long archivedUpTo = messageArchive.getLastArchivedId(chatId);
+        if (archivedUpTo > 0) {
+            // Leftovers of a run that stopped between writing a segment and deleting its rows
+            messageBatchRepository.deleteChatUpTo(chatId, archivedUpTo, deleteChunkSize);
+        }
+
+        long moved = 0;
+        while (true) {
+            List<MessageDTO> batch = messageBatchRepository.findChatRange(chatId, archivedUpTo, cutoffId, segmentMaxMessages);
+            // Cut at the first recent message rather than skipping it: segments must stay below every table row
+            int cold = 0;
+            while (cold < batch.size() && batch.get(cold).getTimestamp().isBefore(cutoffTime)) {
+                cold++;
+            }
+            boolean reachedRecent = cold < batch.size();
+            batch = batch.subList(0, cold);
+            // Small remainders wait for a later run rather than piling up as tiny segments
+            if (batch.isEmpty() || batch.size() < segmentMinMessages) {
+                return moved;
+            }
+            messageArchive.append(chatId, batch);
+            archivedUpTo = batch.get(batch.size() - 1).getId();
+            messageBatchRepository.deleteChatUpTo(chatId, archivedUpTo, deleteChunkSize);
+            moved += batch.size();
+            if (reachedRecent) {
+                return moved;
+            }
+        }
+    }
+}
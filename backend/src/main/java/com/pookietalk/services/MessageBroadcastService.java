@@ -0,0 +1,31 @@
+package com.pookietalk.services;
+
+import com.pookietalk.dto.MessageDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Pushes chat events to STOMP subscribers through the configured message broker.
+ */
+@Service
+public class MessageBroadcastService {
+
+    public static final String CHAT_TOPIC_PREFIX = "/topic/chats/";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Fans a persisted message out to every subscriber of {@code /topic/chats/{chatId}}.
+     *
+     * @param message the saved message
+     */
+    public void broadcast(MessageDTO message) {
+        messagingTemplate.convertAndSend(chatTopic(message.getChatId()), message);
+    }
+
+    public static String chatTopic(Long chatId) {
+        return CHAT_TOPIC_PREFIX + chatId;
+    }
+}
@@ -0,0 +1,299 @@
+package com.pookietalk.services;
+
+import com.pookietalk.dto.CursorPageDTO;
+import com.pookietalk.dto.MessageDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded Lucene index of message content, kept on local disk under
+ * {@code chat.search.index-dir}. Sent messages are queued by {@link #enqueue} and a single
+ * indexer thread adds them in batches. New messages become searchable within
+ * {@code chat.search.refresh-ms}, and the index is committed to disk every
+ * {@code chat.search.commit-interval-ms}.
+ *
+ * <p>Segments are sorted by message id, newest first. A search restricted to some chats
+ * therefore stops after collecting one page instead of ranking every match. If the queue is
+ * full, messages are dropped from the index (not from the database) and counted in
+ * {@code messages.search.dropped}. A reindex restores them.
+ */
+@Component
+@ConditionalOnProperty(prefix = "chat.search", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MessageSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchIndex.class);
+
+    private static final String KEY = "key";
+    private static final String ID = "id";
+    private static final String CHAT_ID = "chatId";
+    private static final String SENDER_ID = "senderId";
+    private static final String TIMESTAMP = "timestamp";
+    private static final String CONTENT = "content";
+
+    private static final Sort NEWEST_FIRST = new Sort(new SortField(ID, SortField.Type.LONG, true));
+
+    private final Path indexDir;
+    private final BlockingQueue<MessageDTO> queue;
+    private final int batchSize;
+    private final long refreshNanos;
+    private final double ramBufferMb;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Timer searchTimer;
+    private final Counter dropped;
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile boolean running;
+    private Thread indexerThread;
+
+    public MessageSearchIndex(@Value("${chat.search.index-dir:data/search-index}") Path indexDir,
+                              @Value("${chat.search.queue-capacity:100000}") int queueCapacity,
+                              @Value("${chat.search.batch-size:1000}") int batchSize,
+                              @Value("${chat.search.refresh-ms:500}") long refreshMillis,
+                              @Value("${chat.search.ram-buffer-mb:64}") double ramBufferMb,
+                              MeterRegistry meterRegistry) {
+        this.indexDir = indexDir;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+        this.ramBufferMb = ramBufferMb;
+        this.searchTimer = Timer.builder("messages.search")
+                .description("Full-text message searches")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("messages.search.dropped")
+                .description("Sent messages left out of the index because its queue was full")
+                .register(meterRegistry);
+        Gauge.builder("messages.search.queue", queue, BlockingQueue::size)
+                .description("Sent messages waiting to be indexed")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        directory = FSDirectory.open(indexDir);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setIndexSort(NEWEST_FIRST)
+                .setRAMBufferSizeMB(ramBufferMb)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+
+        running = true;
+        indexerThread = new Thread(this::runIndexer, "message-indexer");
+        indexerThread.setDaemon(true);
+        indexerThread.start();
+        logger.info("Message search index opened at {} ({} documents)", indexDir.toAbsolutePath(), writer.getDocStats().numDocs);
+    }
+
+    /**
+     * Queues a saved message for indexing without blocking the sender.
+     */
+    public void enqueue(MessageDTO message) {
+        if (!queue.offer(message)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Indexes the messages synchronously, replacing any earlier version of the same ids. They
+     * become searchable after the next refresh.
+     */
+    public void indexBatch(List<MessageDTO> messages) {
+        try {
+            for (MessageDTO message : messages) {
+                writer.updateDocument(new Term(KEY, Long.toString(message.getId())), toDocument(message));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Makes everything indexed so far visible to searches.
+     */
+    public void refresh() {
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.search.commit-interval-ms:60000}")
+    public void commit() {
+        try {
+            if (writer.isOpen() && writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException e) {
+            logger.warn("Search index commit failed: {}", e.getMessage());
+        }
+    }
+
+    public int getDocumentCount() {
+        return writer.getDocStats().numDocs;
+    }
+
+    /**
+     * Finds messages in the given chats whose content matches {@code text}, newest first.
+     * {@code text} uses simple query syntax: terms are all required, {@code "phrases"},
+     * {@code prefix*}, {@code -exclusions} and {@code a | b}.
+     *
+     * @param chatIds chats to search in; the caller is responsible for access checks
+     * @param before  only return messages with a lower id (may be null for the first page)
+     */
+    public CursorPageDTO<MessageDTO> search(Collection<Long> chatIds, String text, Long before, int limit) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, CONTENT);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query match = parser.parse(text);
+        if (chatIds.isEmpty() || match == null) {
+            return new CursorPageDTO<>(List.of(), null, false);
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+                .add(match, BooleanClause.Occur.MUST)
+                .add(LongPoint.newSetQuery(CHAT_ID, chatIds), BooleanClause.Occur.FILTER);
+        if (before != null) {
+            query.add(LongPoint.newRangeQuery(ID, Long.MIN_VALUE, before - 1), BooleanClause.Occur.FILTER);
+        }
+
+        return searchTimer.record(() -> {
+            try {
+                IndexSearcher searcher = searcherManager.acquire();
+                try {
+                    TopDocs top = searcher.search(query.build(), limit + 1, NEWEST_FIRST);
+                    StoredFields storedFields = searcher.storedFields();
+                    List<MessageDTO> messages = new ArrayList<>(Math.min(limit, top.scoreDocs.length));
+                    for (int i = 0; i < top.scoreDocs.length && i < limit; i++) {
+                        ScoreDoc hit = top.scoreDocs[i];
+                        messages.add(toMessage(storedFields.document(hit.doc)));
+                    }
+                    boolean hasMore = top.scoreDocs.length > limit;
+                    Long nextCursor = hasMore ? messages.get(messages.size() - 1).getId() : null;
+                    return new CursorPageDTO<>(messages, nextCursor, hasMore);
+                } finally {
+                    searcherManager.release(searcher);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void runIndexer() {
+        List<MessageDTO> batch = new ArrayList<>(batchSize);
+        long lastRefresh = System.nanoTime();
+        boolean unrefreshed = false;
+        while (running || !queue.isEmpty()) {
+            try {
+                MessageDTO first = queue.poll(refreshNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown requested; keep looping until the queue is drained
+                running = false;
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    indexBatch(batch);
+                    unrefreshed = true;
+                }
+                if (unrefreshed && System.nanoTime() - lastRefresh >= refreshNanos) {
+                    searcherManager.maybeRefresh();
+                    lastRefresh = System.nanoTime();
+                    unrefreshed = false;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to index {} messages", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    private static Document toDocument(MessageDTO message) {
+        Document document = new Document();
+        document.add(new StringField(KEY, Long.toString(message.getId()), Field.Store.NO));
+        document.add(new LongPoint(ID, message.getId()));
+        document.add(new NumericDocValuesField(ID, message.getId()));
+        document.add(new StoredField(ID, message.getId()));
+        document.add(new LongPoint(CHAT_ID, message.getChatId()));
+        document.add(new StoredField(CHAT_ID, message.getChatId()));
+        document.add(new StoredField(SENDER_ID, message.getSenderId()));
+        if (message.getTimestamp() != null) {
+            document.add(new StoredField(TIMESTAMP, message.getTimestamp().toString()));
+        }
+        document.add(new TextField(CONTENT, message.getContent() == null ? "" : message.getContent(), Field.Store.YES));
+        return document;
+    }
+
+    private static MessageDTO toMessage(Document document) {
+        String timestamp = document.get(TIMESTAMP);
+        return MessageDTO.builder()
+                .id(document.getField(ID).numericValue().longValue())
+                .chatId(document.getField(CHAT_ID).numericValue().longValue())
+                .senderId(document.getField(SENDER_ID).numericValue().longValue())
+                .content(document.get(CONTENT))
+                .timestamp(timestamp == null ? null : LocalDateTime.parse(timestamp))
+                .build();
+    }
+
+    @PreDestroy
+    void stop() throws Exception {
+        running = false;
+        indexerThread.join(TimeUnit.SECONDS.toMillis(30));
+        try {
+            searcherManager.close();
+            writer.close();
+        } finally {
+            directory.close();
+        }
+    }
+}
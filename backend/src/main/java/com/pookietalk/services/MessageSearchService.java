@@ -0,0 +1,150 @@
+package com.pookietalk.services;
+
+import com.pookietalk.dto.CursorPageDTO;
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.exceptions.ValidationException;
+import com.pookietalk.repositories.ChatRepository;
+import com.pookietalk.repositories.MessageBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Message search limited to the chats a user belongs to, plus the job that rebuilds
+ * {@link MessageSearchIndex} from the messages table and, when archiving is enabled, the
+ * {@link MessageArchive} segments.
+ */
+@Service
+@ConditionalOnProperty(prefix = "chat.search", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MessageSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchService.class);
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private ChatMembershipIndex chatMembershipIndex;
+
+    @Autowired
+    private MessageBatchRepository messageBatchRepository;
+
+    // Present only when chat.archive.enabled=true
+    @Autowired(required = false)
+    private MessageArchive messageArchive;
+
+    @Value("${chat.search.page.default-size:20}")
+    private int defaultPageSize = 20;
+
+    @Value("${chat.search.page.max-size:100}")
+    private int maxPageSize = 100;
+
+    @Value("${chat.search.reindex.fetch-size:1000}")
+    private int reindexFetchSize = 1000;
+
+    @Value("${chat.search.reindex.batch-size:5000}")
+    private int reindexBatchSize = 5000;
+
+    private final AtomicBoolean reindexing = new AtomicBoolean();
+
+    /**
+     * @param chatId only search this chat (may be null to search all of the user's chats)
+     * @param before keyset cursor from the previous page (may be null for the first page)
+     * @throws com.pookietalk.exceptions.NotChatMemberException if {@code chatId} is given and
+     *                                                          the user is not a participant
+     */
+    public CursorPageDTO<MessageDTO> search(Long userId, String query, Long chatId, Long before, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException(Map.of("q", "Search text is required"));
+        }
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        List<Long> chatIds;
+        if (chatId != null) {
+            chatMembershipIndex.requireMember(chatId, userId);
+            chatIds = List.of(chatId);
+        } else {
+            chatIds = chatRepository.findChatIdsByParticipant(userId);
+        }
+        return messageSearchIndex.search(chatIds, query, before, pageSize);
+    }
+
+    /**
+     * Starts rebuilding the index from the database in the background. Messages are
+     * re-indexed in place, so searches keep working (and sends keep being indexed) meanwhile.
+     *
+     * @return false if a rebuild is already running
+     */
+    public boolean startReindex() {
+        if (!reindexing.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                reindex();
+            } catch (RuntimeException e) {
+                logger.error("Message reindex failed", e);
+            } finally {
+                reindexing.set(false);
+            }
+        }, "message-reindex");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public boolean isReindexing() {
+        return reindexing.get();
+    }
+
+    // A fresh deployment (or a deleted index directory) is rebuilt without operator action
+    @EventListener(ApplicationReadyEvent.class)
+    public void reindexIfEmpty() {
+        if (messageSearchIndex.getDocumentCount() == 0) {
+            startReindex();
+        }
+    }
+
+    private void reindex() {
+        long started = System.nanoTime();
+        List<MessageDTO> batch = new ArrayList<>(reindexBatchSize);
+        long[] total = new long[1];
+        messageBatchRepository.streamAll(reindexFetchSize, message -> {
+            batch.add(message);
+            if (batch.size() == reindexBatchSize) {
+                messageSearchIndex.indexBatch(batch);
+                total[0] += batch.size();
+                batch.clear();
+            }
+        });
+        messageSearchIndex.indexBatch(batch);
+        total[0] += batch.size();
+        if (messageArchive != null) {
+            // Archived history stays searchable; leftovers also still in the table are re-indexed in place
+            for (Long chatId : messageArchive.getChatIds()) {
+                long afterId = 0;
+                List<MessageDTO> archived;
+                while (!(archived = messageArchive.readAfter(chatId, afterId, reindexBatchSize)).isEmpty()) {
+                    messageSearchIndex.indexBatch(archived);
+                    total[0] += archived.size();
+                    afterId = archived.get(archived.size() - 1).getId();
+                }
+            }
+        }
+        messageSearchIndex.refresh();
+        messageSearchIndex.commit();
+        logger.info("Reindexed {} messages in {} ms", total[0], (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -1,17 +1,31 @@
 package com.pookietalk.services;
 
+import com.pookietalk.dto.ChatSyncDTO;
 import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.dto.MessagePageDTO;
+import com.pookietalk.dto.SyncResponseDTO;
 import com.pookietalk.dto.UserDTO;
+import com.pookietalk.exceptions.ChatNotFoundException;
+import com.pookietalk.exceptions.NotChatMemberException;
+import com.pookietalk.exceptions.ValidationException;
 import com.pookietalk.models.Chat;
 import com.pookietalk.models.Message;
 import com.pookietalk.models.User;
 import com.pookietalk.repositories.MessageRepository;
+import com.pookietalk.utils.SnowflakeIdGenerator;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 public class MessageService {
@@ -20,32 +34,257 @@ public class MessageService {
     private MessageRepository messageRepository;
 
     @Autowired
-    private ChatService chatService;
+    private ChatMembershipIndex chatMembershipIndex;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private MessageBroadcastService messageBroadcastService;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private ReadStateService readStateService;
+
+    // Present only when chat.messages.write-behind.enabled=true
+    @Autowired(required = false)
+    private MessageWriteBehindService messageWriteBehindService;
+
+    // Present only when chat.archive.enabled=true
+    @Autowired(required = false)
+    private MessageArchive messageArchive;
+
+    // Present unless chat.search.enabled=false
+    @Autowired(required = false)
+    private MessageSearchIndex messageSearchIndex;
+
+    @Value("${chat.messages.page.default-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${chat.messages.page.max-size:200}")
+    private int maxPageSize = 200;
+
+    @Value("${chat.messages.sync.max-per-chat:200}")
+    private int syncMaxPerChat = 200;
+
+    @Value("${chat.messages.sync.max-chats:500}")
+    private int syncMaxChats = 500;
+
+    @Value("${chat.messages.sync.overlap:PT5S}")
+    private Duration syncOverlap = Duration.ofSeconds(5);
+
+    @Timed(value = "messages.history", description = "Full chat history reads", histogram = true)
     public List<MessageDTO> getMessagesByChat(Long chatId) {
-        // Validate chat exists
-        chatService.getChatById(chatId);
+        chatMembershipIndex.requireChat(chatId);
 
-        List<Message> messages = messageRepository.findByChatId(chatId);
-        return messages.stream()
+        List<MessageDTO> archived = messageArchive == null ? List.of() : messageArchive.readAll(chatId);
+        long archivedUpTo = archived.isEmpty() ? 0L : archived.get(archived.size() - 1).getId();
+        List<MessageDTO> messages = new ArrayList<>(archived);
+        messageRepository.findByChatId(chatId).stream()
+                .filter(message -> message.getId() > archivedUpTo)
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .forEach(messages::add);
+        return messages;
     }
 
+    /**
+     * Returns one page of chat history using keyset pagination on the message id.
+     * With neither cursor set the newest page is returned; {@code before} pages backwards
+     * in time and {@code after} pages forwards. Each page costs a single range scan on
+     * the (chat_id, id) index, independent of how long the chat is. Pages reaching past the
+     * oldest row of the table continue into the chat's archive segments, if any.
+     *
+     * @param chatId the chat to read
+     * @param userId the reader, who must be a member of the chat
+     * @param before only return messages with an id lower than this (may be null)
+     * @param after  only return messages with an id higher than this (may be null)
+     * @param limit  requested page size, clamped to the configured maximum (may be null)
+     * @return the page in chronological order, plus the cursor for the next page
+     * @throws NotChatMemberException if the user is not a participant
+     */
+    @Timed(value = "messages.page", description = "Paged chat history reads", histogram = true)
+    public MessagePageDTO getMessagePage(Long chatId, Long userId, Long before, Long after, Integer limit) {
+        if (before != null && after != null) {
+            throw new ValidationException(Map.of("cursor", "Only one of 'before' or 'after' may be given"));
+        }
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        chatMembershipIndex.requireMember(chatId, userId);
+
+        if (before == null && after == null && recentMessageCache.covers(pageSize)) {
+            MessagePageDTO cached = recentMessageCache.getLatestPage(chatId, pageSize);
+            if (cached == null) {
+                cached = loadRecentMessages(chatId, pageSize);
+            }
+            // An empty tail with older history means everything left is archived; read it below
+            if (!cached.getMessages().isEmpty() || !cached.isHasMore()) {
+                return cached;
+            }
+        }
+
+        // Fetch one extra row to learn whether another page exists without a COUNT query
+        int fetchSize = pageSize + 1;
+        long archivedUpTo = messageArchive == null ? 0L : messageArchive.getLastArchivedId(chatId);
+        List<MessageDTO> rows = new ArrayList<>(fetchSize);
+        if (after != null) {
+            if (after < archivedUpTo) {
+                rows.addAll(messageArchive.readAfter(chatId, after, fetchSize));
+            }
+            if (rows.size() < fetchSize) {
+                addUnarchived(rows, messageRepository.findByChatIdAndIdGreaterThanOrderByIdAsc(
+                        chatId, Math.max(after, archivedUpTo), Limit.of(fetchSize - rows.size())), archivedUpTo);
+            }
+        } else {
+            addUnarchived(rows, before != null
+                    ? messageRepository.findByChatIdAndIdLessThanOrderByIdDesc(chatId, before, Limit.of(fetchSize))
+                    : messageRepository.findByChatIdOrderByIdDesc(chatId, Limit.of(fetchSize)), archivedUpTo);
+            if (rows.size() < fetchSize && archivedUpTo > 0) {
+                long below = rows.isEmpty() ? (before == null ? Long.MAX_VALUE : before) : rows.get(rows.size() - 1).getId();
+                rows.addAll(messageArchive.readBefore(chatId, Math.min(below, archivedUpTo + 1), fetchSize - rows.size()));
+            }
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<MessageDTO> messages = new ArrayList<>(rows.subList(0, Math.min(rows.size(), pageSize)));
+        if (after == null) {
+            // Descending scans are flipped so clients always render oldest first
+            Collections.reverse(messages);
+        }
+
+        Long nextCursor = null;
+        if (hasMore) {
+            nextCursor = after != null
+                    ? messages.get(messages.size() - 1).getId()
+                    : messages.get(0).getId();
+        }
+        return new MessagePageDTO(messages, nextCursor, hasMore);
+    }
+
+    /**
+     * Returns what a reconnecting client missed in each of its chats. Each chat is answered from
+     * the recent-message cache when its tail covers the gap. Otherwise it costs one range scan on
+     * the (chat_id, id) index. A chat with more than {@code chat.messages.sync.max-per-chat}
+     * missed messages is flagged {@code tooFarBehind} instead, so a long absence cannot turn one
+     * sync into a bulk export.
+     *
+     * <p>Ids are taken before a message is stored, so a lower id can become visible after a
+     * higher one: it may sit in the write-behind queue, or come from another node. Each chat
+     * therefore also returns messages from {@code chat.messages.sync.overlap} of id time
+     * before the last-seen id, and clients drop ids they already hold.
+     *
+     * @param userId   the authenticated caller; chats they are not a member of are skipped
+     * @param lastSeen chat id to the newest message id the client already has
+     */
+    public SyncResponseDTO syncMessages(Long userId, Map<Long, Long> lastSeen) {
+        if (lastSeen == null || lastSeen.isEmpty()) {
+            return new SyncResponseDTO(Map.of());
+        }
+        if (lastSeen.size() > syncMaxChats) {
+            throw new ValidationException(Map.of("lastSeen", "At most " + syncMaxChats + " chats can be synced per request"));
+        }
+
+        Map<Long, ChatSyncDTO> chats = new LinkedHashMap<>();
+        for (Map.Entry<Long, Long> entry : lastSeen.entrySet()) {
+            Long chatId = entry.getKey();
+            long afterId = syncFrom(entry.getValue() == null ? 0L : entry.getValue());
+            try {
+                chatMembershipIndex.requireMember(chatId, userId);
+            } catch (ChatNotFoundException | NotChatMemberException e) {
+                continue;
+            }
+
+            List<MessageDTO> missed = recentMessageCache.getMessagesAfter(chatId, afterId);
+            if (missed == null && messageArchive != null && afterId < messageArchive.getLastArchivedId(chatId)) {
+                // The gap reaches into archived history
+                chats.put(chatId, new ChatSyncDTO(List.of(), true));
+                continue;
+            }
+            if (missed == null) {
+                missed = messageRepository
+                        .findByChatIdAndIdGreaterThanOrderByIdAsc(chatId, afterId, Limit.of(syncMaxPerChat + 1))
+                        .stream()
+                        .map(this::convertToDTO)
+                        .toList();
+            }
+            chats.put(chatId, missed.size() > syncMaxPerChat
+                    ? new ChatSyncDTO(List.of(), true)
+                    : new ChatSyncDTO(missed, false));
+        }
+        return new SyncResponseDTO(chats);
+    }
+
+    // Start of the overlap window before lastSeenId. Ids below the first Snowflake second are
+    // legacy auto-increment ids with no time in them, and are synced from exactly.
+    private long syncFrom(long lastSeenId) {
+        long windowStart = SnowflakeIdGenerator.lowestIdAt(SnowflakeIdGenerator.timestampOf(lastSeenId).minus(syncOverlap));
+        return windowStart > 0 ? Math.min(lastSeenId, windowStart - 1) : lastSeenId;
+    }
+
+    // Reads a full tail on a cache miss so later opens of this chat are served from memory
+    private MessagePageDTO loadRecentMessages(Long chatId, int pageSize) {
+        int capacity = recentMessageCache.getCapacity();
+        recentMessageCache.beginLoad(chatId);
+        List<Message> rows = messageRepository.findByChatIdOrderByIdDesc(chatId, Limit.of(capacity + 1));
+        boolean olderStored = rows.size() > capacity || (messageArchive != null && messageArchive.hasMessages(chatId));
+        List<MessageDTO> tail = new ArrayList<>(Math.min(rows.size(), capacity));
+        for (int i = Math.min(rows.size(), capacity) - 1; i >= 0; i--) {
+            tail.add(convertToDTO(rows.get(i)));
+        }
+        recentMessageCache.completeLoad(chatId, tail, olderStored);
+
+        MessagePageDTO page = recentMessageCache.getLatestPage(chatId, pageSize);
+        if (page != null) {
+            return page;
+        }
+        // Evicted straight away (tiny budget); answer from what was just read
+        List<MessageDTO> messages = tail.subList(Math.max(0, tail.size() - pageSize), tail.size());
+        boolean hasMore = tail.size() > messages.size() || olderStored;
+        return new MessagePageDTO(new ArrayList<>(messages), hasMore && !messages.isEmpty() ? messages.get(0).getId() : null, hasMore);
+    }
+
+    @Timed(value = "messages.send", description = "Message sends, from membership check to broadcast", histogram = true)
     public MessageDTO sendMessage(MessageDTO messageDTO) {
-        // Validate user and chat
+        // Both checks are served from memory: the membership index and the user cache
+        chatMembershipIndex.requireMember(messageDTO.getChatId(), messageDTO.getSenderId());
         UserDTO userDTO = userService.getUserById(messageDTO.getSenderId());
-        chatService.getChatById(messageDTO.getChatId());
 
-        Message message = convertToEntity(messageDTO);
-        message.setTimestamp(LocalDateTime.now());
-        message.setSender(new User(userDTO.getId()));
+        MessageDTO savedDTO;
+        if (messageWriteBehindService != null) {
+            // Acknowledge once queued; the writer persists it with the next batch
+            savedDTO = messageWriteBehindService.enqueue(MessageDTO.builder()
+                    .chatId(messageDTO.getChatId())
+                    .senderId(userDTO.getId())
+                    .content(messageDTO.getContent())
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        } else {
+            Message message = convertToEntity(messageDTO);
+            message.setTimestamp(LocalDateTime.now());
+            message.setSender(new User(userDTO.getId()));
+
+            Message savedMessage = messageRepository.save(message);
+            savedDTO = convertToDTO(savedMessage);
+        }
+
+        recentMessageCache.append(savedDTO);
+        readStateService.onMessageSent(savedDTO);
+        if (messageSearchIndex != null) {
+            messageSearchIndex.enqueue(savedDTO);
+        }
+        // Push to live subscribers so clients no longer need to poll the history endpoint
+        messageBroadcastService.broadcast(savedDTO);
+        return savedDTO;
+    }
 
-        Message savedMessage = messageRepository.save(message);
-        return convertToDTO(savedMessage);
+    // Rows at or below the archived id are leftovers of an interrupted archive run
+    private void addUnarchived(List<MessageDTO> target, List<Message> rows, long archivedUpTo) {
+        for (Message row : rows) {
+            if (row.getId() > archivedUpTo) {
+                target.add(convertToDTO(row));
+            }
+        }
     }
 
     private MessageDTO convertToDTO(Message message) {
@@ -0,0 +1,287 @@
+package com.pookietalk.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.exceptions.MessageQueueFullException;
+import com.pookietalk.repositories.MessageBatchRepository;
+import com.pookietalk.utils.IdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind ingestion for chat messages. Accepted messages are placed on a bounded
+ * in-memory queue and a single writer thread group-commits them as multi-row JDBC batches,
+ * flushing when a batch is full or when the oldest queued message has waited for the
+ * linger time. When the queue is full, senders wait briefly and are then rejected so the
+ * database is never asked for more than it can absorb.
+ *
+ * <p>Ids are assigned on enqueue by the shared {@link IdGenerator}, so a queued message can be
+ * acknowledged and broadcast with its final id before it reaches the database.
+ *
+ * <p>Acknowledged messages are never dropped. A batch that still fails after
+ * {@code max-attempts} is retried one message at a time, so one bad row cannot take the rest of
+ * its batch with it. Messages that fail on their own, and messages still queued when shutdown
+ * times out, are appended as NDJSON to {@code dead-letter-file}. That file is replayed into the
+ * database on the next start; messages that fail again are parked there again.
+ */
+@Service
+@ConditionalOnProperty(prefix = "chat.messages.write-behind", name = "enabled", havingValue = "true")
+public class MessageWriteBehindService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageWriteBehindService.class);
+
+    private final MessageBatchRepository messageBatchRepository;
+    private final IdGenerator idGenerator;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<MessageDTO> queue;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long offerTimeoutMillis;
+    private final int maxAttempts;
+    private final Path deadLetterFile;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public MessageWriteBehindService(MessageBatchRepository messageBatchRepository,
+                                     IdGenerator idGenerator,
+                                     ObjectMapper objectMapper,
+                                     @Value("${chat.messages.write-behind.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${chat.messages.write-behind.batch-size:500}") int batchSize,
+                                     @Value("${chat.messages.write-behind.linger-ms:20}") long lingerMillis,
+                                     @Value("${chat.messages.write-behind.offer-timeout-ms:100}") long offerTimeoutMillis,
+                                     @Value("${chat.messages.write-behind.max-attempts:5}") int maxAttempts,
+                                     @Value("${chat.messages.write-behind.dead-letter-file:data/write-behind-dead-letter.ndjson}") Path deadLetterFile) {
+        this.messageBatchRepository = messageBatchRepository;
+        this.idGenerator = idGenerator;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.maxAttempts = maxAttempts;
+        this.deadLetterFile = deadLetterFile;
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "message-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Write-behind message persistence enabled (batch size {}, linger {} ms)",
+                batchSize, TimeUnit.NANOSECONDS.toMillis(lingerNanos));
+    }
+
+    /**
+     * Assigns an id to the message and queues it for the next batch.
+     *
+     * @param message a validated message with chat, sender, content and timestamp set
+     * @return the same message with its id assigned
+     * @throws MessageQueueFullException if the queue stays full for the offer timeout
+     */
+    public MessageDTO enqueue(MessageDTO message) {
+        message.setId(idGenerator.nextId());
+        try {
+            if (!queue.offer(message, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessageQueueFullException("Message queue is full, please retry shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageQueueFullException("Interrupted while queueing message");
+        }
+        return message;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void runWriter() {
+        replayDeadLetters();
+        List<MessageDTO> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                MessageDTO first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutdown requested; keep looping until the queue is drained
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void fillBatch(List<MessageDTO> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            MessageDTO next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeBatch(List<MessageDTO> batch) {
+        if (insertWithRetries(batch)) {
+            logger.debug("Flushed {} messages", batch.size());
+            return;
+        }
+        List<MessageDTO> failed = new ArrayList<>();
+        if (batch.size() == 1) {
+            failed.add(batch.get(0));
+        } else {
+            logger.warn("Retrying a failed batch of {} messages one at a time", batch.size());
+            for (MessageDTO message : batch) {
+                if (!insertOne(message)) {
+                    failed.add(message);
+                }
+            }
+        }
+        if (!failed.isEmpty()) {
+            deadLetter(failed);
+        }
+    }
+
+    private boolean insertWithRetries(List<MessageDTO> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                messageBatchRepository.insertBatch(batch);
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    logger.error("Message batch insert failed {} times (ids {}..{})",
+                            attempt, batch.get(0).getId(), batch.get(batch.size() - 1).getId(), e);
+                    return false;
+                }
+                logger.warn("Message batch insert failed (attempt {}): {}", attempt, e.getMessage());
+                try {
+                    Thread.sleep(100L << Math.min(attempt, 6));
+                } catch (InterruptedException ie) {
+                    running = false;
+                }
+            }
+        }
+    }
+
+    private boolean insertOne(MessageDTO message) {
+        try {
+            messageBatchRepository.insertBatch(List.of(message));
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Ids are unique per message, so this one is already stored (e.g. a replayed message)
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Could not persist message {} of chat {}: {}", message.getId(), message.getChatId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized void deadLetter(List<MessageDTO> messages) {
+        try {
+            Path parent = deadLetterFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(deadLetterFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (MessageDTO message : messages) {
+                    writer.write(objectMapper.writeValueAsString(message));
+                    writer.newLine();
+                }
+            }
+            logger.error("Parked {} unpersisted messages in {}; they are retried on the next start",
+                    messages.size(), deadLetterFile);
+        } catch (IOException e) {
+            logger.error("Lost {} messages: could not write them to {} ({}). Ids: {}", messages.size(), deadLetterFile,
+                    e.getMessage(), messages.stream().map(MessageDTO::getId).toList());
+        }
+    }
+
+    /**
+     * Moves the dead-letter file aside and writes its messages in batches. Runs on the writer
+     * thread before the queue is served. A replay file left behind by a crash is picked up first.
+     */
+    private void replayDeadLetters() {
+        Path replayFile = deadLetterFile.resolveSibling(deadLetterFile.getFileName() + ".replay");
+        try {
+            if (!Files.exists(replayFile)) {
+                if (!Files.exists(deadLetterFile)) {
+                    return;
+                }
+                Files.move(deadLetterFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+            int replayed = 0;
+            List<MessageDTO> batch = new ArrayList<>(batchSize);
+            try (BufferedReader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    batch.add(objectMapper.readValue(line, MessageDTO.class));
+                    if (batch.size() == batchSize) {
+                        writeBatch(batch);
+                        replayed += batch.size();
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                replayed += batch.size();
+            }
+            Files.delete(replayFile);
+            logger.info("Replayed {} dead-lettered messages from {}", replayed, deadLetterFile);
+        } catch (IOException e) {
+            logger.error("Could not replay dead-lettered messages from {}: {}", replayFile, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        List<MessageDTO> unwritten = new ArrayList<>();
+        queue.drainTo(unwritten);
+        if (!unwritten.isEmpty()) {
+            logger.error("{} queued messages were not persisted before shutdown", unwritten.size());
+            deadLetter(unwritten);
+        }
+    }
+}
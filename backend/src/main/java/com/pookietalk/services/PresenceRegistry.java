@@ -0,0 +1,130 @@
+package com.pookietalk.services;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory registry of live STOMP sessions per user. Users are spread over
+ * {@code presence.registry-shards} independently locked shards. Each shard updates a user's
+ * session set and reports the online/offline transition atomically, without a global lock.
+ * Heartbeats only write the session's last-seen time and take no lock.
+ *
+ * <p>Only tracks sessions connected to this node.
+ */
+@Component
+public class PresenceRegistry {
+
+    @Getter
+    public static final class Session {
+        private final String sessionId;
+        private final long userId;
+        private volatile long lastSeenNanos;
+
+        Session(String sessionId, long userId, long lastSeenNanos) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.lastSeenNanos = lastSeenNanos;
+        }
+    }
+
+    private static final class Shard {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<Long, Set<String>> sessionsByUser = new HashMap<>();
+    }
+
+    private final Shard[] shards;
+    private final int mask;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public PresenceRegistry(@Value("${presence.registry-shards:64}") int shardCount) {
+        int size = Integer.highestOneBit(Math.max(2, shardCount - 1)) << 1;
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return true if this is the user's first live session, i.e. the user just came online
+     */
+    public boolean register(String sessionId, long userId, long nowNanos) {
+        sessions.put(sessionId, new Session(sessionId, userId, nowNanos));
+        Shard shard = shardFor(userId);
+        shard.lock.lock();
+        try {
+            Set<String> userSessions = shard.sessionsByUser.computeIfAbsent(userId, id -> new HashSet<>(2));
+            return userSessions.add(sessionId) && userSessions.size() == 1;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the user id if this was the user's last live session, otherwise null
+     */
+    public Long unregister(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session == null) {
+            return null;
+        }
+        Shard shard = shardFor(session.userId);
+        shard.lock.lock();
+        try {
+            Set<String> userSessions = shard.sessionsByUser.get(session.userId);
+            if (userSessions == null || !userSessions.remove(sessionId) || !userSessions.isEmpty()) {
+                return null;
+            }
+            shard.sessionsByUser.remove(session.userId);
+            return session.userId;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Records activity on a session.
+     *
+     * @return false if the session is unknown (anonymous, expired or disconnected) and nothing was recorded
+     */
+    public boolean touch(String sessionId, long nowNanos) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return false;
+        }
+        session.lastSeenNanos = nowNanos;
+        return true;
+    }
+
+    public Session getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public boolean isOnline(long userId) {
+        Shard shard = shardFor(userId);
+        shard.lock.lock();
+        try {
+            return shard.sessionsByUser.containsKey(userId);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private Shard shardFor(long userId) {
+        // Time-ordered ids share their low bits within a millisecond, so mix before masking
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return shards[(int) (h ^ (h >>> 32)) & mask];
+    }
+}
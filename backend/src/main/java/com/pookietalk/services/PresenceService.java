@@ -0,0 +1,153 @@
+package com.pookietalk.services;
+
+import com.pookietalk.dto.PresenceEventDTO;
+import com.pookietalk.models.User;
+import com.pookietalk.utils.HashedTimingWheel;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks which users have a live STOMP session and publishes online/offline transitions to
+ * {@code /topic/presence/{userId}}. Sessions are registered on CONNECT and removed on
+ * DISCONNECT. A session that sends no frames or heartbeats for {@code presence.session-timeout}
+ * is expired through a {@link HashedTimingWheel}, so no timer exists per session. Heartbeats
+ * only update the last-seen time, and expiry is re-checked lazily when the session's slot
+ * comes round.
+ *
+ * <p>Expiry does not close the socket: a client that negotiated no heart-beats and went quiet
+ * is still connected. Its next frame registers the session again (see {@link #onActivity}).
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    public static final String PRESENCE_TOPIC_PREFIX = "/topic/presence/";
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${presence.session-timeout:PT30S}")
+    private Duration sessionTimeout = Duration.ofSeconds(30);
+
+    @Value("${presence.wheel.slots:512}")
+    private int wheelSlots = 512;
+
+    @Value("${presence.wheel.tick-ms:1000}")
+    private long wheelTickMillis = 1000;
+
+    private HashedTimingWheel<String> expiryWheel;
+
+    @PostConstruct
+    void init() {
+        expiryWheel = new HashedTimingWheel<>(wheelSlots, wheelTickMillis, TimeUnit.MILLISECONDS, System.nanoTime());
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Long userId = userId(event.getUser());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (userId == null || sessionId == null) {
+            // Only sessions authenticated as a User entity have presence
+            return;
+        }
+        register(sessionId, userId, System.nanoTime());
+    }
+
+    /**
+     * Records an inbound frame or heartbeat on an established session. A session that had
+     * been expired as idle is registered again, and its user comes back online if it was the
+     * only one.
+     *
+     * @param user the session's authenticated user
+     */
+    public void onActivity(String sessionId, Principal user) {
+        long now = System.nanoTime();
+        if (presenceRegistry.touch(sessionId, now)) {
+            return;
+        }
+        Long userId = userId(user);
+        if (userId != null) {
+            logger.debug("Idle STOMP session {} of user {} is active again", sessionId, userId);
+            register(sessionId, userId, now);
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        Long wentOffline = presenceRegistry.unregister(event.getSessionId());
+        if (wentOffline != null) {
+            publish(wentOffline, false);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${presence.wheel.tick-ms:1000}")
+    public void expireIdleSessions() {
+        long now = System.nanoTime();
+        for (String sessionId : expiryWheel.advance(now)) {
+            PresenceRegistry.Session session = presenceRegistry.getSession(sessionId);
+            if (session == null) {
+                continue;
+            }
+            long deadline = session.getLastSeenNanos() + sessionTimeout.toNanos();
+            if (deadline > now) {
+                expiryWheel.schedule(sessionId, deadline);
+                continue;
+            }
+            logger.debug("Expiring idle STOMP session {} of user {}", sessionId, session.getUserId());
+            Long wentOffline = presenceRegistry.unregister(sessionId);
+            if (wentOffline != null) {
+                publish(wentOffline, false);
+            }
+        }
+    }
+
+    /**
+     * @return the subset of the given users with a live session on this node
+     */
+    public Set<Long> getOnlineUsers(Collection<Long> userIds) {
+        return userIds.stream()
+                .filter(presenceRegistry::isOnline)
+                .collect(Collectors.toSet());
+    }
+
+    private void register(String sessionId, long userId, long now) {
+        boolean cameOnline = presenceRegistry.register(sessionId, userId, now);
+        expiryWheel.schedule(sessionId, now + sessionTimeout.toNanos());
+        if (cameOnline) {
+            publish(userId, true);
+        }
+    }
+
+    private void publish(long userId, boolean online) {
+        messagingTemplate.convertAndSend(PRESENCE_TOPIC_PREFIX + userId, new PresenceEventDTO(userId, online));
+    }
+
+    private static Long userId(Principal principal) {
+        if (principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
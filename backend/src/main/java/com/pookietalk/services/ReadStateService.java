@@ -0,0 +1,351 @@
+package com.pookietalk.services;
+
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.dto.MessagePageDTO;
+import com.pookietalk.dto.ReadReceiptDTO;
+import com.pookietalk.exceptions.ValidationException;
+import com.pookietalk.models.ChatReadState;
+import com.pookietalk.repositories.MessageRepository;
+import com.pookietalk.repositories.ReadStateRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every user's last-read message and unread count per chat in memory, so chat listings
+ * carry unread counts without counting messages. Sends increment the counters of the other
+ * members, and reads reset them. Changed counters are written to {@code chat_read_state} in
+ * batches every {@code chat.read-state.flush-interval-ms} and loaded back at startup.
+ *
+ * <p>Only sends and reads handled by this node are counted in its memory. Flushes add
+ * unread messages to the stored row rather than overwriting it, so several nodes can share the
+ * table. With {@code chat.broker.mode=relay} (several nodes) each flush is followed by a
+ * refresh, which merges the rows every node flushed since the previous one, so counts include
+ * other nodes' sends and reads within about two flush intervals. Changes not yet flushed are
+ * lost if the process dies.
+ */
+@Service
+public class ReadStateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadStateService.class);
+
+    private record ReadKey(long userId, long chatId) {
+    }
+
+    // Unread messages after a read position, and the newest of them
+    private record Unread(int count, long newestId) {
+    }
+
+    // Only changed inside compute() on the owning map entry
+    private static final class ReadState {
+        volatile long lastReadMessageId;
+        volatile int unreadCount;
+        // Newest message included in the last read's count, so its send is not counted twice
+        long countedThrough;
+        // Sends seen for this entry; a read that counted before a send and applies after it recounts
+        volatile int arrivals;
+        // Unflushed changes: either the read position moved (the row is replaced), or only new
+        // messages arrived (they are added to the row)
+        boolean readSinceFlush;
+        int unreadSinceFlush;
+    }
+
+    @Autowired
+    private ReadStateRepository readStateRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatMembershipIndex chatMembershipIndex;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    // Present only when chat.archive.enabled=true
+    @Autowired(required = false)
+    private MessageArchive messageArchive;
+
+    @Value("${chat.read-state.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode = "simple";
+
+    // Re-reads rows stamped this long before the previous refresh, for flushes that committed late
+    @Value("${chat.read-state.refresh-overlap:PT10S}")
+    private Duration refreshOverlap = Duration.ofSeconds(10);
+
+    // Database time of the previous refresh; null until the first one in relay mode
+    private volatile LocalDateTime refreshedAt;
+
+    // Recounts before a busy chat's read is applied with an estimate instead
+    private static final int MARK_READ_ATTEMPTS = 3;
+
+    private final Map<ReadKey, ReadState> states = new ConcurrentHashMap<>();
+    private final Set<ReadKey> dirty = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void load() {
+        if (isMultiNode()) {
+            // Taken before the load, so rows flushed while it streams are merged by the first refresh
+            refreshedAt = readStateRepository.currentTime();
+        }
+        readStateRepository.streamAll(row -> {
+            ReadState state = new ReadState();
+            state.lastReadMessageId = row.getLastReadMessageId();
+            state.unreadCount = row.getUnreadCount();
+            states.put(new ReadKey(row.getUserId(), row.getChatId()), state);
+        });
+        logger.info("Loaded {} chat read states", states.size());
+    }
+
+    /**
+     * Counts a new message as unread for every member except its sender, for whom the chat is
+     * now read up to that message.
+     */
+    public void onMessageSent(MessageDTO message) {
+        long chatId = message.getChatId();
+        long senderId = message.getSenderId();
+        long messageId = message.getId();
+        chatMembershipIndex.getMembers(chatId).stream().forEach(userId -> {
+            ReadKey key = new ReadKey(userId, chatId);
+            states.compute(key, (k, existing) -> {
+                ReadState state = existing == null ? new ReadState() : existing;
+                state.arrivals++;
+                if (userId == senderId) {
+                    advance(state, messageId, new Unread(0, messageId));
+                } else if (messageId > Math.max(state.lastReadMessageId, state.countedThrough)) {
+                    state.unreadCount++;
+                    state.unreadSinceFlush++;
+                }
+                return state;
+            });
+            dirty.add(key);
+        });
+    }
+
+    /**
+     * Marks the chat read up to {@code messageId} and tells the other members through
+     * {@code /topic/chats/{chatId}/read}. Moving the position backwards has no effect.
+     *
+     * @throws ValidationException if {@code messageId} is newer than any message in the chat
+     * @throws com.pookietalk.exceptions.ChatNotFoundException  if the chat does not exist
+     * @throws com.pookietalk.exceptions.NotChatMemberException if the user is not a participant
+     */
+    public ReadReceiptDTO markRead(Long chatId, Long userId, Long messageId) {
+        if (messageId == null) {
+            throw new ValidationException(Map.of("lastReadMessageId", "Last read message id is required"));
+        }
+        chatMembershipIndex.requireMember(chatId, userId);
+        ReadKey key = new ReadKey(userId, chatId);
+        ReadReceiptDTO[] receipt = new ReadReceiptDTO[1];
+        for (int attempt = 1; receipt[0] == null; attempt++) {
+            // Counted outside compute(), for the reason given in CacheLoads; a send that lands
+            // in between changes arrivals, and the count is taken again
+            ReadState current = states.get(key);
+            int arrivalsBefore = current == null ? 0 : current.arrivals;
+            Unread unread = current == null || messageId > current.lastReadMessageId ? unreadAfter(chatId, messageId) : null;
+            boolean lastAttempt = attempt == MARK_READ_ATTEMPTS;
+            states.compute(key, (k, existing) -> {
+                ReadState state = existing == null ? new ReadState() : existing;
+                if (unread != null && messageId > state.lastReadMessageId) {
+                    int missed = state.arrivals - arrivalsBefore;
+                    if (missed > 0 && !lastAttempt) {
+                        return existing;
+                    }
+                    // Out of attempts: treat the sends since the count as unread, at worst overcounting until the next read
+                    advance(state, messageId, new Unread(unread.count() + missed, unread.newestId()));
+                }
+                receipt[0] = new ReadReceiptDTO(chatId, userId, state.lastReadMessageId, state.unreadCount);
+                return state;
+            });
+        }
+        dirty.add(key);
+
+        messagingTemplate.convertAndSend(readTopic(chatId), receipt[0]);
+        return receipt[0];
+    }
+
+    public int getUnreadCount(Long userId, Long chatId) {
+        ReadState state = states.get(new ReadKey(userId, chatId));
+        return state == null ? 0 : state.unreadCount;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.read-state.flush-interval-ms:2000}")
+    public void flush() {
+        List<ReadKey> keys = new ArrayList<>(batchSize);
+        List<ChatReadState> rows = new ArrayList<>(batchSize);
+        Iterator<ReadKey> iterator = dirty.iterator();
+        while (iterator.hasNext()) {
+            ReadKey key = iterator.next();
+            iterator.remove();
+            ChatReadState row = takeChanges(key);
+            if (row != null) {
+                keys.add(key);
+                rows.add(row);
+            }
+            if (rows.size() == batchSize) {
+                write(keys, rows);
+                keys.clear();
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            write(keys, rows);
+        }
+        if (isMultiNode()) {
+            refresh();
+        }
+    }
+
+    // Runs after this node's own writes, so the rows it reads already hold them
+    private void refresh() {
+        try {
+            LocalDateTime now = readStateRepository.currentTime();
+            LocalDateTime since = refreshedAt;
+            if (since != null) {
+                readStateRepository.streamChangedSince(since.minus(refreshOverlap), this::merge);
+            }
+            refreshedAt = now;
+        } catch (RuntimeException e) {
+            logger.warn("Read state refresh failed, retrying with the next flush: {}", e.getMessage());
+        }
+    }
+
+    // The stored row holds every node's flushed changes; this node's unflushed ones go on top.
+    // Merging the same row again gives the same result, so the refresh overlap is harmless.
+    private void merge(ChatReadState row) {
+        states.compute(new ReadKey(row.getUserId(), row.getChatId()), (k, existing) -> {
+            ReadState state = existing == null ? new ReadState() : existing;
+            long storedPosition = row.getLastReadMessageId();
+            if (storedPosition < state.lastReadMessageId
+                    || (storedPosition == state.lastReadMessageId && state.readSinceFlush)) {
+                // This node's read is newer; its next flush replaces the row
+                return state;
+            }
+            if (storedPosition > state.lastReadMessageId) {
+                // Read on another node, superseding any older read not yet flushed here
+                state.lastReadMessageId = storedPosition;
+                state.readSinceFlush = false;
+            }
+            state.unreadCount = row.getUnreadCount() + state.unreadSinceFlush;
+            return state;
+        });
+    }
+
+    private boolean isMultiNode() {
+        return "relay".equals(brokerMode);
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+        if (!dirty.isEmpty()) {
+            logger.error("{} chat read states were not persisted before shutdown", dirty.size());
+        }
+    }
+
+    public static String readTopic(Long chatId) {
+        return MessageBroadcastService.chatTopic(chatId) + "/read";
+    }
+
+    private Unread unreadAfter(Long chatId, long messageId) {
+        // The chat tail usually holds everything after the read position
+        List<MessageDTO> newer = recentMessageCache.getMessagesAfter(chatId, messageId);
+        if (newer != null && !newer.isEmpty()) {
+            return new Unread(newer.size(), newer.get(newer.size() - 1).getId());
+        }
+        if (newer == null) {
+            MessageRepository.MessagesAfter stored = messageRepository.countAfter(chatId, messageId);
+            if (stored.getCount() > 0) {
+                return new Unread((int) Math.min(Integer.MAX_VALUE, stored.getCount()), stored.getNewestId());
+            }
+        }
+        requireNotBeyondNewest(chatId, messageId);
+        return new Unread(0, messageId);
+    }
+
+    // Nothing is newer than the position, so it must be the chat's newest message: a position
+    // ahead of it would hide every message sent until the chat caught up
+    private void requireNotBeyondNewest(Long chatId, long messageId) {
+        MessagePageDTO latest = recentMessageCache.getLatestPage(chatId, 1);
+        if (latest != null && !latest.getMessages().isEmpty() && messageId <= latest.getMessages().get(0).getId()) {
+            return;
+        }
+        Long stored = messageRepository.findNewestId(chatId);
+        long newest = Math.max(stored == null ? 0L : stored,
+                messageArchive == null ? 0L : messageArchive.getLastArchivedId(chatId));
+        if (messageId > newest) {
+            throw new ValidationException(Map.of("lastReadMessageId", "Message " + messageId + " is not in this chat"));
+        }
+    }
+
+    private static void advance(ReadState state, long messageId, Unread remaining) {
+        if (messageId > state.lastReadMessageId) {
+            state.lastReadMessageId = messageId;
+            state.unreadCount = remaining.count();
+            state.countedThrough = Math.max(state.countedThrough, remaining.newestId());
+            state.readSinceFlush = true;
+            state.unreadSinceFlush = 0;
+        }
+    }
+
+    // Snapshots and resets a state's unflushed changes
+    private ChatReadState takeChanges(ReadKey key) {
+        ChatReadState[] row = new ChatReadState[1];
+        states.computeIfPresent(key, (k, state) -> {
+            if (state.readSinceFlush) {
+                row[0] = new ChatReadState(k.userId(), k.chatId(), state.lastReadMessageId, state.unreadCount);
+            } else if (state.unreadSinceFlush > 0) {
+                row[0] = new ChatReadState(k.userId(), k.chatId(), 0, state.unreadSinceFlush);
+            }
+            state.readSinceFlush = false;
+            state.unreadSinceFlush = 0;
+            return state;
+        });
+        return row[0];
+    }
+
+    private void write(List<ReadKey> keys, List<ChatReadState> rows) {
+        try {
+            readStateRepository.upsertBatch(rows);
+        } catch (RuntimeException e) {
+            logger.warn("Read state flush of {} rows failed, retrying with the next flush: {}", rows.size(), e.getMessage());
+            for (int i = 0; i < keys.size(); i++) {
+                restore(keys.get(i), rows.get(i));
+            }
+        }
+    }
+
+    // Puts changes back after a failed write; anything newer already in memory takes precedence
+    private void restore(ReadKey key, ChatReadState row) {
+        states.computeIfPresent(key, (k, state) -> {
+            if (row.getLastReadMessageId() > 0) {
+                state.readSinceFlush = true;
+            } else if (!state.readSinceFlush) {
+                state.unreadSinceFlush += row.getUnreadCount();
+            }
+            return state;
+        });
+        dirty.add(key);
+    }
+}
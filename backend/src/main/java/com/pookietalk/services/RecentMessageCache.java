@@ -0,0 +1,260 @@
+package com.pookietalk.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.dto.MessagePageDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the newest {@code chat.messages.recent.size} messages of recently read chats in
+ * memory, so opening a chat serves its first history page without a query. Each chat has a
+ * fixed-capacity ring buffer. It is filled once from the database on the first read and then
+ * kept current by {@link #append} on every send. Across chats, the cache is bounded by an
+ * estimated heap budget ({@code chat.messages.recent.max-bytes}) and evicts the least valuable
+ * chats first. Set the budget to 0 to disable it.
+ *
+ * <p>Only sends handled by this node are appended, so each tail is dropped and reloaded
+ * {@code chat.messages.recent.ttl} after its load began, however often it is appended to. In
+ * multi-node deployments keep the TTL short; it bounds how long remote sends can be missing. Hit/miss/eviction counts are published as
+ * {@code cache.*{cache=messages.recent}}, with estimated heap use as
+ * {@code messages.recent.heap.bytes}.
+ */
+@Component
+public class RecentMessageCache {
+
+    // Rough per-message heap cost excluding content: DTO, boxed ids, LocalDateTime, String header
+    private static final int MESSAGE_OVERHEAD_BYTES = 200;
+    private static final int TAIL_OVERHEAD_BYTES = 96;
+
+    /**
+     * Ring buffer of one chat's newest messages, ordered by id. A tail is only served once
+     * loaded. Sends that arrive while the database load is in flight are collected and merged.
+     */
+    static final class ChatTail {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final MessageDTO[] ring;
+        private int start;
+        private int size;
+        private boolean loaded;
+        // True when older messages exist in the database beyond the ring
+        private boolean hasOlder;
+        private volatile int weight;
+
+        ChatTail(int capacity) {
+            this.ring = new MessageDTO[capacity];
+            this.weight = TAIL_OVERHEAD_BYTES + 8 * capacity;
+        }
+
+        void insert(MessageDTO message) {
+            lock.lock();
+            try {
+                // Usually the newest id, so the scan stops at once; concurrent sends may land slightly out of order
+                int position = size;
+                while (position > 0) {
+                    long previousId = at(position - 1).getId();
+                    if (previousId == message.getId()) {
+                        return;
+                    }
+                    if (previousId < message.getId()) {
+                        break;
+                    }
+                    position--;
+                }
+                if (size == ring.length) {
+                    if (position == 0) {
+                        // Older than everything retained
+                        hasOlder = true;
+                        return;
+                    }
+                    weight -= bytesOf(at(0));
+                    ring[start] = null;
+                    start = (start + 1) % ring.length;
+                    size--;
+                    position--;
+                    hasOlder = true;
+                }
+                for (int i = size; i > position; i--) {
+                    ring[(start + i) % ring.length] = at(i - 1);
+                }
+                ring[(start + position) % ring.length] = message;
+                size++;
+                weight += bytesOf(message);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void completeLoad(List<MessageDTO> oldestFirst, boolean olderInDatabase) {
+            lock.lock();
+            try {
+                for (MessageDTO message : oldestFirst) {
+                    insert(message);
+                }
+                hasOlder |= olderInDatabase;
+                loaded = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        MessagePageDTO latestPage(int limit) {
+            lock.lock();
+            try {
+                if (!loaded) {
+                    return null;
+                }
+                int count = Math.min(limit, size);
+                List<MessageDTO> messages = new ArrayList<>(count);
+                for (int i = size - count; i < size; i++) {
+                    messages.add(at(i));
+                }
+                boolean hasMore = size > count || hasOlder;
+                Long nextCursor = hasMore && !messages.isEmpty() ? messages.get(0).getId() : null;
+                return new MessagePageDTO(messages, nextCursor, hasMore);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<MessageDTO> after(long afterId) {
+            lock.lock();
+            try {
+                if (!loaded) {
+                    return null;
+                }
+                // Anything newer than the oldest retained message is in the ring; older gaps are unknown
+                if (hasOlder && (size == 0 || afterId < at(0).getId())) {
+                    return null;
+                }
+                List<MessageDTO> messages = new ArrayList<>();
+                for (int i = 0; i < size; i++) {
+                    MessageDTO message = at(i);
+                    if (message.getId() > afterId) {
+                        messages.add(message);
+                    }
+                }
+                return messages;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private MessageDTO at(int index) {
+            return ring[(start + index) % ring.length];
+        }
+
+        private static int bytesOf(MessageDTO message) {
+            String content = message.getContent();
+            return MESSAGE_OVERHEAD_BYTES + (content == null ? 0 : 2 * content.length());
+        }
+    }
+
+    private final int capacity;
+    private final Cache<Long, ChatTail> tails;
+
+    public RecentMessageCache(@Value("${chat.messages.recent.size:50}") int capacity,
+                              @Value("${chat.messages.recent.max-bytes:67108864}") long maxBytes,
+                              @Value("${chat.messages.recent.ttl:PT30M}") Duration ttl,
+                              MeterRegistry meterRegistry) {
+        this.capacity = maxBytes > 0 ? capacity : 0;
+        this.tails = Caffeine.newBuilder()
+                .maximumWeight(Math.max(0, maxBytes))
+                .weigher((Long chatId, ChatTail tail) -> tail.weight)
+                .expireAfter(new Expiry<Long, ChatTail>() {
+                    @Override
+                    public long expireAfterCreate(Long chatId, ChatTail tail, long currentTime) {
+                        return ttl.toNanos();
+                    }
+
+                    // Appends are writes too, and must not keep a busy chat's tail alive forever
+                    @Override
+                    public long expireAfterUpdate(Long chatId, ChatTail tail, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long chatId, ChatTail tail, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tails, "messages.recent");
+        Gauge.builder("messages.recent.heap.bytes", tails,
+                        cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .description("Estimated heap held by cached chat tails")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return true if a latest page of this size can be served from the cache
+     */
+    public boolean covers(int pageSize) {
+        return pageSize <= capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the newest {@code limit} messages, or null if the chat is not cached yet
+     */
+    public MessagePageDTO getLatestPage(Long chatId, int limit) {
+        ChatTail tail = tails.getIfPresent(chatId);
+        return tail == null ? null : tail.latestPage(limit);
+    }
+
+    /**
+     * @return messages with an id above {@code afterId}, oldest first, or null if the chat is
+     *         not cached or the gap reaches further back than its tail
+     */
+    public List<MessageDTO> getMessagesAfter(Long chatId, long afterId) {
+        ChatTail tail = tails.getIfPresent(chatId);
+        return tail == null ? null : tail.after(afterId);
+    }
+
+    /**
+     * Reserves a tail for the chat before its newest messages are read from the database, so
+     * sends that race with the read are not lost. Follow with {@link #completeLoad}.
+     */
+    public void beginLoad(Long chatId) {
+        if (capacity > 0) {
+            tails.asMap().putIfAbsent(chatId, new ChatTail(capacity));
+        }
+    }
+
+    /**
+     * @param newestOldestFirst up to {@link #getCapacity()} newest messages, oldest first
+     * @param olderInDatabase   whether the database holds older messages than these
+     */
+    public void completeLoad(Long chatId, List<MessageDTO> newestOldestFirst, boolean olderInDatabase) {
+        // Reweighs the entry now that it holds messages
+        tails.asMap().computeIfPresent(chatId, (id, tail) -> {
+            tail.completeLoad(newestOldestFirst, olderInDatabase);
+            return tail;
+        });
+    }
+
+    /**
+     * Adds a just-sent message to its chat's tail if the chat is cached.
+     */
+    public void append(MessageDTO message) {
+        tails.asMap().computeIfPresent(message.getChatId(), (id, tail) -> {
+            tail.insert(message);
+            return tail;
+        });
+    }
+}
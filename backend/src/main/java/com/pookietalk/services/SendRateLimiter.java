@@ -0,0 +1,66 @@
+package com.pookietalk.services;
+
+import com.pookietalk.exceptions.RateLimitExceededException;
+import com.pookietalk.models.Role;
+import com.pookietalk.utils.TokenBuckets;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-user token bucket for message sends, shared by the REST and STOMP paths. Each role gets
+ * a sustained rate ({@code chat.rate-limit.<role>.per-second}) and a burst
+ * ({@code chat.rate-limit.<role>.burst}) that can be spent back to back. Buckets are kept in
+ * {@link TokenBuckets}, bounded by {@code chat.rate-limit.max-tracked-users}. Rejections are
+ * counted in {@code messages.rate_limited{role}}.
+ */
+@Component
+public class SendRateLimiter {
+
+    private final boolean enabled;
+    private final Map<Role, TokenBuckets.Limit> limits = new EnumMap<>(Role.class);
+    private final Map<Role, Counter> rejections = new EnumMap<>(Role.class);
+    private final TokenBuckets<Long> buckets;
+
+    public SendRateLimiter(@Value("${chat.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${chat.rate-limit.user.per-second:5}") double userPerSecond,
+                           @Value("${chat.rate-limit.user.burst:20}") int userBurst,
+                           @Value("${chat.rate-limit.admin.per-second:50}") double adminPerSecond,
+                           @Value("${chat.rate-limit.admin.burst:200}") int adminBurst,
+                           @Value("${chat.rate-limit.max-tracked-users:1000000}") long maxTrackedUsers,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        limits.put(Role.USER, TokenBuckets.Limit.of(userPerSecond, userBurst));
+        limits.put(Role.ADMIN, TokenBuckets.Limit.of(adminPerSecond, adminBurst));
+        this.buckets = new TokenBuckets<>(maxTrackedUsers, limits.values().toArray(TokenBuckets.Limit[]::new));
+        buckets.monitor(meterRegistry, "messages.rate-limit");
+        for (Role role : Role.values()) {
+            rejections.put(role, Counter.builder("messages.rate_limited")
+                    .description("Message sends rejected by the per-user rate limit")
+                    .tag("role", role.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Takes one send from the user's bucket.
+     *
+     * @param role the sender's role; null is treated as {@link Role#USER}
+     * @throws RateLimitExceededException if the bucket is empty
+     */
+    public void acquire(Long userId, Role role) {
+        if (!enabled) {
+            return;
+        }
+        Role effectiveRole = role == null ? Role.USER : role;
+        long retryAfterSeconds = buckets.tryAcquire(userId, limits.get(effectiveRole));
+        if (retryAfterSeconds > 0) {
+            rejections.get(effectiveRole).increment();
+            throw new RateLimitExceededException("Too many messages, please slow down", retryAfterSeconds);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.pookietalk.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.pookietalk.repositories.UserRepository;
+import com.pookietalk.utils.CacheLoads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory table of each user's current token epoch. A token is accepted only while the
+ * epoch it was issued under is still the user's current one, so bumping the epoch revokes
+ * every outstanding token without a per-request database lookup.
+ *
+ * <p>Entries are loaded on first use and reloaded in the background after
+ * {@code spring.security.jwt.epoch-refresh}, which bounds how long a revocation made on
+ * another node (or a lockout applied directly in the database) takes to be seen here.
+ * Revocations made through this service apply locally at once.
+ */
+@Service
+public class TokenEpochService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenEpochService.class);
+
+    // Epoch reported for unknown, disabled or locked accounts; never matches a token
+    static final long REVOKED = -1L;
+
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final LoadingCache<Long, Long> epochs;
+    // Bumped by every revocation, so a load that raced one is not left in the cache
+    private final AtomicLong revocations = new AtomicLong();
+
+    public TokenEpochService(UserRepository userRepository,
+                             UserCache userCache,
+                             @Value("${spring.security.jwt.epoch-refresh:PT30S}") Duration refreshInterval,
+                             @Value("${spring.security.jwt.epoch-cache-size:100000}") long maxEntries) {
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.epochs = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .refreshAfterWrite(refreshInterval)
+                .expireAfterAccess(refreshInterval.multipliedBy(10))
+                .build(this::loadEpoch);
+    }
+
+    /**
+     * @param userId     user id from the token
+     * @param tokenEpoch epoch the token was issued under
+     * @return true if the user is active and the token has not been revoked
+     */
+    public boolean isCurrent(long userId, long tokenEpoch) {
+        Long current = CacheLoads.getOrLoad(epochs, userId, this::loadEpoch, revocations);
+        return current != null && current != REVOKED && current == tokenEpoch;
+    }
+
+    /**
+     * Invalidates every token issued to the user so far. Use for "log out everywhere",
+     * password changes, and lockouts.
+     *
+     * @param userId the user whose tokens should stop working
+     */
+    public void revokeTokens(long userId) {
+        userRepository.incrementTokenEpoch(userId);
+        revocations.incrementAndGet();
+        epochs.invalidate(userId);
+        // Cached users carry the old epoch, which would be copied into newly issued tokens
+        userCache.evict(userId);
+        logger.info("Revoked all tokens for user {}", userId);
+    }
+
+    private Long loadEpoch(Long userId) {
+        return userRepository.findActiveTokenEpoch(userId).orElse(REVOKED);
+    }
+}
@@ -0,0 +1,78 @@
+package com.pookietalk.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pookietalk.dto.TypingEventDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fans typing indicators out to {@code /topic/chats/{chatId}/typing} without touching the
+ * database. Each user is throttled to one accepted typing frame per chat per
+ * {@code presence.typing.min-interval}. Accepted frames are coalesced per chat and sent as one
+ * {@link TypingEventDTO} every {@code presence.typing.flush-interval-ms}. However fast clients
+ * send keystrokes, a chat gets at most one typing event per flush interval.
+ */
+@Service
+public class TypingIndicatorService {
+
+    private record TypingKey(long chatId, long userId) {
+    }
+
+    @Autowired
+    private ChatMembershipIndex chatMembershipIndex;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    private final Cache<TypingKey, Boolean> recentlyAccepted;
+    private final Map<Long, Set<Long>> pending = new ConcurrentHashMap<>();
+
+    public TypingIndicatorService(@Value("${presence.typing.min-interval:PT1S}") Duration minInterval,
+                                  @Value("${presence.typing.max-tracked:100000}") long maxTracked) {
+        this.recentlyAccepted = Caffeine.newBuilder()
+                .expireAfterWrite(minInterval)
+                .maximumSize(maxTracked)
+                .build();
+    }
+
+    /**
+     * @throws com.pookietalk.exceptions.ChatNotFoundException  if the chat does not exist
+     * @throws com.pookietalk.exceptions.NotChatMemberException if the user is not a participant
+     */
+    public void onTyping(Long chatId, Long userId) {
+        chatMembershipIndex.requireMember(chatId, userId);
+        if (recentlyAccepted.asMap().putIfAbsent(new TypingKey(chatId, userId), Boolean.TRUE) != null) {
+            return;
+        }
+        // compute() is atomic with the flusher's remove(), so an accepted frame is never lost
+        pending.compute(chatId, (id, users) -> {
+            Set<Long> typing = users == null ? new HashSet<>() : users;
+            typing.add(userId);
+            return typing;
+        });
+    }
+
+    @Scheduled(fixedRateString = "${presence.typing.flush-interval-ms:250}")
+    public void flush() {
+        for (Long chatId : pending.keySet()) {
+            Set<Long> users = pending.remove(chatId);
+            if (users != null && !users.isEmpty()) {
+                messagingTemplate.convertAndSend(typingTopic(chatId), new TypingEventDTO(chatId, users));
+            }
+        }
+    }
+
+    public static String typingTopic(Long chatId) {
+        return MessageBroadcastService.chatTopic(chatId) + "/typing";
+    }
+}
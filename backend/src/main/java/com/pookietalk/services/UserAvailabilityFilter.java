@@ -0,0 +1,145 @@
+package com.pookietalk.services;
+
+import com.pookietalk.repositories.DirectoryStreamRepository;
+import com.pookietalk.repositories.UserRepository;
+import com.pookietalk.utils.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * In-memory Bloom filters over every registered username and email, so availability checks
+ * and registrations only query the users table for values that might be taken. A miss is
+ * definitive; a hit must be confirmed against the database.
+ *
+ * <p>The filters are built by streaming the users table on the first scheduled run after
+ * startup, then rebuilt every {@code users.availability.rebuild-interval-ms}. A rebuild is sized
+ * for at least twice the current user count, and picks up users registered through other
+ * backends. Until the first build completes every value counts as a possible hit. Values are
+ * compared case- and accent-insensitively, like the MySQL collation of the unique columns.
+ * Outcomes are counted in {@code users.availability.filter{field, result}}.
+ */
+@Component
+public class UserAvailabilityFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserAvailabilityFilter.class);
+
+    private record Filters(BloomFilter usernames, BloomFilter emails) {
+    }
+
+    private final DirectoryStreamRepository directoryStreamRepository;
+    private final UserRepository userRepository;
+    private final long expectedUsers;
+    private final double falsePositiveRate;
+    private final Counter usernameMisses;
+    private final Counter usernameHits;
+    private final Counter emailMisses;
+    private final Counter emailHits;
+
+    // Null until the first build has finished
+    private volatile Filters current;
+    // Set while a rebuild is streaming, so registrations made meanwhile land in both
+    private volatile Filters next;
+
+    public UserAvailabilityFilter(DirectoryStreamRepository directoryStreamRepository,
+                                  UserRepository userRepository,
+                                  @Value("${users.availability.expected-users:1000000}") long expectedUsers,
+                                  @Value("${users.availability.false-positive-rate:0.01}") double falsePositiveRate,
+                                  MeterRegistry meterRegistry) {
+        this.directoryStreamRepository = directoryStreamRepository;
+        this.userRepository = userRepository;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+        this.usernameMisses = outcome(meterRegistry, "username", "absent");
+        this.usernameHits = outcome(meterRegistry, "username", "maybe");
+        this.emailMisses = outcome(meterRegistry, "email", "absent");
+        this.emailHits = outcome(meterRegistry, "email", "maybe");
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String field, String result) {
+        return Counter.builder("users.availability.filter")
+                .description("Availability pre-checks; only 'maybe' results query the users table")
+                .tag("field", field)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return false if no user has this username; true if one might
+     */
+    public boolean mightHaveUsername(String username) {
+        Filters filters = current;
+        boolean maybe = filters == null || filters.usernames().mightContain(normalize(username));
+        (maybe ? usernameHits : usernameMisses).increment();
+        return maybe;
+    }
+
+    /**
+     * @return false if no user has this email; true if one might
+     */
+    public boolean mightHaveEmail(String email) {
+        Filters filters = current;
+        boolean maybe = filters == null || filters.emails().mightContain(normalize(email));
+        (maybe ? emailHits : emailMisses).increment();
+        return maybe;
+    }
+
+    /**
+     * Must be called once a new user row is committed.
+     */
+    public void add(String username, String email) {
+        Filters building = next;
+        if (building != null) {
+            put(building, username, email);
+        }
+        Filters filters = current;
+        if (filters != null) {
+            put(filters, username, email);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${users.availability.initial-delay-ms:0}",
+            fixedDelayString = "${users.availability.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        long started = System.nanoTime();
+        try {
+            long capacity = Math.max(expectedUsers, 2 * userRepository.count());
+            Filters building = new Filters(new BloomFilter(capacity, falsePositiveRate),
+                    new BloomFilter(capacity, falsePositiveRate));
+            next = building;
+            long[] loaded = new long[1];
+            directoryStreamRepository.streamUsers(user -> {
+                put(building, user.getUsername(), user.getEmail());
+                loaded[0]++;
+            });
+            current = building;
+            logger.info("Availability filters built from {} users in {} ms (~{}% false positives)", loaded[0],
+                    (System.nanoTime() - started) / 1_000_000,
+                    String.format("%.2f", 100 * building.usernames().expectedFalsePositiveRate(loaded[0])));
+        } catch (RuntimeException e) {
+            logger.warn("Building the availability filters failed; keeping the previous ones: {}", e.getMessage());
+        } finally {
+            next = null;
+        }
+    }
+
+    private static void put(Filters filters, String username, String email) {
+        filters.usernames().put(normalize(username));
+        if (email != null) {
+            filters.emails().put(normalize(email));
+        }
+    }
+
+    // Folding more values together than the database does only costs an extra query
+    static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value.strip(), Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+    }
+}
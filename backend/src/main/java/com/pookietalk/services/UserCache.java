@@ -0,0 +1,99 @@
+package com.pookietalk.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pookietalk.models.User;
+import com.pookietalk.utils.CacheLoads;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Size- and TTL-bounded cache of {@link User} entities, keyed by id and by username.
+ * A user loaded through either key is stored under both. Misses are not cached, so newly
+ * registered users become visible immediately. Hit, miss and eviction counts are published
+ * as {@code cache.*} metrics tagged {@code cache=users.byId} / {@code users.byUsername}.
+ *
+ * <p>Cached entities are shared between threads and must be treated as read-only. Code that
+ * changes a user row must call {@link #evict(Long)} afterwards; today that is only
+ * {@link TokenEpochService#revokeTokens(long)}. Registration needs no eviction, since misses are
+ * not cached. Changes made elsewhere (another node, or directly in the database) are picked up
+ * once the entry expires, after {@code users.cache.ttl} at most.
+ */
+@Component
+public class UserCache {
+
+    private final Cache<Long, User> byId;
+    private final Cache<String, User> byUsername;
+    // Bumped by every evict, so a load that raced one is not left in the cache
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserCache(@Value("${users.cache.max-size:50000}") long maxSize,
+                     @Value("${users.cache.ttl:PT10M}") Duration ttl,
+                     MeterRegistry meterRegistry) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.byUsername = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, byUsername, "users.byUsername");
+    }
+
+    public Optional<User> getById(Long id, Function<Long, Optional<User>> loader) {
+        User cached = byId.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return Optional.ofNullable(CacheLoads.loadUnlessInvalidated(evictions,
+                () -> loader.apply(id).orElse(null), this::put, this::discard));
+    }
+
+    public Optional<User> getByUsername(String username, Function<String, Optional<User>> loader) {
+        User cached = byUsername.getIfPresent(username);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return Optional.ofNullable(CacheLoads.loadUnlessInvalidated(evictions,
+                () -> loader.apply(username).orElse(null), this::put, this::discard));
+    }
+
+    private void put(User user) {
+        byUsername.put(user.getUsername(), user);
+        if (user.getId() != null) {
+            byId.put(user.getId(), user);
+        }
+    }
+
+    private void discard(User user) {
+        byUsername.invalidate(user.getUsername());
+        if (user.getId() != null) {
+            byId.invalidate(user.getId());
+        }
+    }
+
+    /**
+     * Drops the user from both indexes.
+     *
+     * @param id id of the user that changed
+     */
+    public void evict(Long id) {
+        evictions.incrementAndGet();
+        User cached = byId.getIfPresent(id);
+        byId.invalidate(id);
+        if (cached != null) {
+            byUsername.invalidate(cached.getUsername());
+        }
+    }
+}
@@ -1,18 +1,21 @@
 package com.pookietalk.services;
 
+import com.pookietalk.dto.CursorPageDTO;
 import com.pookietalk.dto.UserDTO;
 import com.pookietalk.exceptions.UserNotFoundException;
 import com.pookietalk.models.User;
+import com.pookietalk.repositories.DirectoryStreamRepository;
 import com.pookietalk.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class UserService implements UserDetailsService {
@@ -20,14 +23,26 @@ public class UserService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private DirectoryStreamRepository directoryStreamRepository;
+
+    @Value("${users.page.default-size:100}")
+    private int defaultPageSize = 100;
+
+    @Value("${users.page.max-size:1000}")
+    private int maxPageSize = 1000;
+
     public UserDTO getUserByUsername(String username) {
-        User user = userRepository.findByUsername(username)
+        User user = userCache.getByUsername(username, userRepository::findByUsername)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
         return convertToDTO(user);
     }
 
     public UserDTO getUserById(Long id) {
-        User user = userRepository.findById(id)
+        User user = userCache.getById(id, userRepository::findById)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
         return convertToDTO(user);
     }
@@ -38,6 +53,29 @@ public class UserService implements UserDetailsService {
                 .toList();
     }
 
+    /**
+     * Returns one page of users ordered by id, using the id as a keyset cursor.
+     *
+     * @param after only return users with an id higher than this (may be null for the first page)
+     * @param limit requested page size, clamped to the configured maximum (may be null)
+     */
+    public CursorPageDTO<UserDTO> getUserPage(Long after, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        List<UserDTO> rows = userRepository.findPageAfter(after == null ? Long.MIN_VALUE : after, Limit.of(pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<UserDTO> users = hasMore ? rows.subList(0, pageSize) : rows;
+        Long nextCursor = hasMore ? users.get(users.size() - 1).getId() : null;
+        return new CursorPageDTO<>(users, nextCursor, hasMore);
+    }
+
+    /**
+     * Hands every user to the consumer in id order without materializing the table.
+     */
+    public void streamAllUsers(Consumer<UserDTO> consumer) {
+        directoryStreamRepository.streamUsers(consumer);
+    }
+
     private UserDTO convertToDTO(User user) {
         UserDTO dto = new UserDTO();
         dto.setId(user.getId());
@@ -46,14 +84,13 @@ public class UserService implements UserDetailsService {
         return dto;
     }
 
+    /**
+     * Returns the {@link User} entity itself as the principal, so the authenticated user's id,
+     * role and token epoch are available without a second lookup.
+     */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        return userCache.getByUsername(username, userRepository::findByUsername)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()))
-        );
     }
 }
@@ -0,0 +1,79 @@
+package com.pookietalk.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through for Caffeine caches whose loads do I/O (JDBC, file opens). The load runs outside
+ * the cache: {@code Cache.get(key, loader)} would run it inside compute, under the map bin's
+ * monitor, which pins a virtual thread for the length of the load and blocks other keys in the
+ * same bin. The price is that concurrent misses for one key may each load it; the first value
+ * stored wins.
+ *
+ * <p>Where a cached value can be invalidated because the underlying row changed, a load that
+ * started before the change may finish after it and would put the stale value back. Callers pass
+ * a counter that they bump on every such invalidation, and a value whose load saw the counter
+ * move is returned but not kept.
+ */
+public final class CacheLoads {
+
+    private CacheLoads() {
+    }
+
+    /**
+     * @param loader returns null for a key with no value, which is not cached
+     * @return the cached or loaded value, or null
+     */
+    public static <K, V> V getOrLoad(Cache<K, V> cache, K key, Function<? super K, ? extends V> loader) {
+        V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        V loaded = loader.apply(key);
+        if (loaded == null) {
+            return null;
+        }
+        V raced = cache.asMap().putIfAbsent(key, loaded);
+        return raced != null ? raced : loaded;
+    }
+
+    /**
+     * Like {@link #getOrLoad(Cache, Object, Function)}, but the loaded value is dropped again if
+     * {@code invalidations} moved during the load.
+     */
+    public static <K, V> V getOrLoad(Cache<K, V> cache, K key, Function<? super K, ? extends V> loader,
+                                     AtomicLong invalidations) {
+        V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        return loadUnlessInvalidated(invalidations, () -> loader.apply(key),
+                value -> cache.put(key, value), value -> cache.invalidate(key));
+    }
+
+    /**
+     * The guarded load for values kept in more than one cache: {@code store} puts the value
+     * everywhere it belongs, and {@code discard} takes it out of all of them again.
+     *
+     * @return the loaded value, or null if the loader found none
+     */
+    public static <V> V loadUnlessInvalidated(AtomicLong invalidations, Supplier<? extends V> loader,
+                                              Consumer<? super V> store, Consumer<? super V> discard) {
+        long generation = invalidations.get();
+        V loaded = loader.get();
+        if (loaded == null) {
+            return null;
+        }
+        store.accept(loaded);
+        // Checked after the store: an invalidation that lands in between either sees the entry
+        // and drops it itself, or has already bumped the counter this reads
+        if (invalidations.get() != generation) {
+            discard.accept(loaded);
+        }
+        return loaded;
+    }
+}
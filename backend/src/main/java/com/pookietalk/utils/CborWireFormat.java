@@ -0,0 +1,115 @@
+package com.pookietalk.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.util.MimeType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+
+/**
+ * The binary STOMP payload format: the same documents as the JSON one, encoded as CBOR
+ * (RFC 8949), with ids as CBOR integers and {@link LocalDateTime} timestamps as epoch
+ * milliseconds instead of ISO strings. Local date-times are read in the server's default
+ * zone, the zone {@code LocalDateTime.now()} stamps them in.
+ *
+ * <p>{@link #transcode(byte[])} turns an already serialized JSON payload into this format in one
+ * streaming pass, without binding it to a class. That works for any payload, including frames
+ * relayed from an external broker, at the price of knowing timestamp fields by name: string
+ * values of the fields in {@code timestampFields} that parse as ISO local date-times become
+ * epoch milliseconds. A DTO gaining a date-time field under another name must add it there.
+ */
+public final class CborWireFormat {
+
+    public static final MimeType MIME_TYPE = new MimeType("application", "cbor");
+
+    private final Set<String> timestampFields;
+    private final ZoneId zone;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final CBORFactory cborFactory = new CBORFactory();
+
+    public CborWireFormat(Set<String> timestampFields, ZoneId zone) {
+        this.timestampFields = Set.copyOf(timestampFields);
+        this.zone = zone;
+    }
+
+    /**
+     * @param json a UTF-8 JSON document
+     * @return the same document as CBOR
+     * @throws UncheckedIOException if the input is not valid JSON
+     */
+    public byte[] transcode(byte[] json) {
+        // CBOR is rarely larger than the JSON it came from
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = jsonFactory.createParser(json);
+             CBORGenerator generator = cborFactory.createGenerator(out)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.VALUE_STRING
+                        && parser.getParsingContext().inObject()
+                        && timestampFields.contains(parser.currentName())) {
+                    Long epochMillis = parseEpochMillis(parser.getText());
+                    if (epochMillis != null) {
+                        generator.writeNumber(epochMillis);
+                        continue;
+                    }
+                }
+                generator.copyCurrentEvent(parser);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Payload is not valid JSON", e);
+        }
+        return out.toByteArray();
+    }
+
+    private Long parseEpochMillis(String text) {
+        try {
+            return LocalDateTime.parse(text).atZone(zone).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A mapper reading and writing this format directly from and to objects, for inbound frames
+     * sent as CBOR.
+     */
+    public ObjectMapper newObjectMapper() {
+        SimpleModule epochMillis = new SimpleModule("cbor-epoch-millis");
+        epochMillis.addSerializer(LocalDateTime.class, new JsonSerializer<>() {
+            @Override
+            public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider serializers)
+                    throws IOException {
+                generator.writeNumber(value.atZone(zone).toInstant().toEpochMilli());
+            }
+        });
+        epochMillis.addDeserializer(LocalDateTime.class, new JsonDeserializer<>() {
+            @Override
+            public LocalDateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                return LocalDateTime.ofInstant(Instant.ofEpochMilli(parser.getLongValue()), zone);
+            }
+        });
+        return CBORMapper.builder()
+                .addModule(epochMillis)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+    }
+}
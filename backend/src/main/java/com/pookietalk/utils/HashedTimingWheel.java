@@ -0,0 +1,103 @@
+package com.pookietalk.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hashed timing wheel for large numbers of coarse timeouts. Items hash into a slot by deadline
+ * tick, so scheduling is O(1) and one {@link #advance(long)} call only visits the slots that
+ * elapsed since the last call. Deadlines further away than one revolution stay in their slot
+ * and are skipped until their round comes up. Precision is one tick.
+ *
+ * <p>Thread-safe. Both operations take a short lock, which is a {@link ReentrantLock} rather
+ * than a monitor so virtual-thread callers are never pinned.
+ */
+public final class HashedTimingWheel<T> {
+
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+
+    private final ArrayDeque<Entry<T>>[] slots;
+    private final int mask;
+    private final long tickNanos;
+    private final long originNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long lastTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(int slotCount, long tickDuration, TimeUnit unit, long nowNanos) {
+        // Round the slot count up to a power of two so the slot index is a mask
+        int wheelSize = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+        this.slots = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.mask = wheelSize - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.originNanos = nowNanos;
+    }
+
+    /**
+     * @param item          the item to hand back from {@link #advance} once its deadline passes
+     * @param deadlineNanos absolute deadline on the {@link System#nanoTime()} clock
+     */
+    public void schedule(T item, long deadlineNanos) {
+        lock.lock();
+        try {
+            // Round up so an item never fires before its deadline
+            long tick = Math.max(lastTick + 1, ceilDiv(deadlineNanos - originNanos, tickNanos));
+            slots[(int) (tick & mask)].add(new Entry<>(item, tick));
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Processes every tick up to {@code nowNanos}.
+     *
+     * @return the items whose deadline has passed, in no particular order
+     */
+    public List<T> advance(long nowNanos) {
+        long currentTick = (nowNanos - originNanos) / tickNanos;
+        List<T> due = new ArrayList<>();
+        lock.lock();
+        try {
+            // After a long pause one revolution already covers every slot
+            long firstTick = Math.max(lastTick + 1, currentTick - mask);
+            for (long tick = firstTick; tick <= currentTick; tick++) {
+                ArrayDeque<Entry<T>> slot = slots[(int) (tick & mask)];
+                for (int pending = slot.size(); pending > 0; pending--) {
+                    Entry<T> entry = slot.poll();
+                    if (entry.deadlineTick() <= currentTick) {
+                        due.add(entry.item());
+                        size--;
+                    } else {
+                        slot.add(entry);
+                    }
+                }
+            }
+            lastTick = Math.max(lastTick, currentTick);
+        } finally {
+            lock.unlock();
+        }
+        return due;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+}
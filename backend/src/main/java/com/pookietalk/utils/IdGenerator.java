@@ -0,0 +1,13 @@
+package com.pookietalk.utils;
+
+/**
+ * Source of application-assigned primary keys. Implementations must be thread-safe and
+ * must never hand out the same id twice within a deployment.
+ */
+public interface IdGenerator {
+
+    /**
+     * @return a new unique id
+     */
+    long nextId();
+}
@@ -0,0 +1,51 @@
+package com.pookietalk.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.LongStream;
+
+/**
+ * Immutable set of primitive longs backed by a sorted array. Lookups are a binary search
+ * with no boxing, and the whole set costs 8 bytes per element. Instances never change, so
+ * they can be shared between threads without locking.
+ */
+public final class LongSortedSet {
+
+    private static final LongSortedSet EMPTY = new LongSortedSet(new long[0]);
+
+    private final long[] values;
+
+    private LongSortedSet(long[] sortedDistinct) {
+        this.values = sortedDistinct;
+    }
+
+    public static LongSortedSet empty() {
+        return EMPTY;
+    }
+
+    public static LongSortedSet of(Collection<? extends Number> values) {
+        return of(values.stream().mapToLong(Number::longValue).toArray());
+    }
+
+    public static LongSortedSet of(long... values) {
+        long[] sorted = LongStream.of(values).sorted().distinct().toArray();
+        return sorted.length == 0 ? EMPTY : new LongSortedSet(sorted);
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public LongStream stream() {
+        return Arrays.stream(values);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
@@ -0,0 +1,283 @@
+package com.pookietalk.utils;
+
+import com.pookietalk.dto.MessageDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable, memory-mapped file of one chat's messages in id order. The file holds
+ * Deflate-compressed blocks of up to {@code blockSize} messages, followed by a sparse index with
+ * one entry per block and a fixed-size footer:
+ * <pre>
+ *   block*   deflate(id, senderId, epochSecond, nano, contentLength, utf8 content)*
+ *   index    (firstId, lastId, offset, compressedLength, rawLength, count) per block
+ *   footer   chatId, messageCount, blockCount, indexOffset, magic
+ * </pre>
+ * A lookup binary-searches the index (held on the heap) and inflates only the blocks it needs
+ * straight from the mapping, so a page costs one or two block decodes whatever the segment size.
+ * Instances are safe for concurrent readers.
+ */
+public final class MessageSegment {
+
+    private static final int MAGIC = 0x50545347; // "PTSG"
+    private static final int INDEX_ENTRY_BYTES = 8 + 8 + 8 + 4 + 4 + 4;
+    private static final int FOOTER_BYTES = 8 + 4 + 4 + 8 + 4;
+
+    private final Path path;
+    private final MappedByteBuffer mapping;
+    private final long chatId;
+    private final int messageCount;
+    private final long[] firstIds;
+    private final long[] lastIds;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+
+    private MessageSegment(Path path, MappedByteBuffer mapping) {
+        this.path = path;
+        this.mapping = mapping;
+        int footer = mapping.capacity() - FOOTER_BYTES;
+        if (footer < 0 || mapping.getInt(footer + 24) != MAGIC) {
+            throw new IllegalStateException("Not a message segment: " + path);
+        }
+        this.chatId = mapping.getLong(footer);
+        this.messageCount = mapping.getInt(footer + 8);
+        int blockCount = mapping.getInt(footer + 12);
+        int indexOffset = (int) mapping.getLong(footer + 16);
+        this.firstIds = new long[blockCount];
+        this.lastIds = new long[blockCount];
+        this.offsets = new long[blockCount];
+        this.compressedLengths = new int[blockCount];
+        this.rawLengths = new int[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            int entry = indexOffset + i * INDEX_ENTRY_BYTES;
+            firstIds[i] = mapping.getLong(entry);
+            lastIds[i] = mapping.getLong(entry + 8);
+            offsets[i] = mapping.getLong(entry + 16);
+            compressedLengths[i] = mapping.getInt(entry + 24);
+            rawLengths[i] = mapping.getInt(entry + 28);
+        }
+    }
+
+    /**
+     * Maps an existing segment file.
+     */
+    public static MessageSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segment larger than 2 GiB: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return new MessageSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the messages to {@code path} through a temporary file that is synced and renamed
+     * into place, so a crash never leaves a partial segment behind.
+     *
+     * @param oldestFirst one chat's messages in ascending id order, timestamps set
+     */
+    public static void write(Path path, long chatId, List<MessageDTO> oldestFirst, int blockSize) throws IOException {
+        if (oldestFirst.isEmpty()) {
+            throw new IllegalArgumentException("A segment needs at least one message");
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        int blockCount = (oldestFirst.size() + blockSize - 1) / blockSize;
+        ByteBuffer index = ByteBuffer.allocate(blockCount * INDEX_ENTRY_BYTES);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            long offset = 0;
+            long previousId = Long.MIN_VALUE;
+            for (int start = 0; start < oldestFirst.size(); start += blockSize) {
+                List<MessageDTO> block = oldestFirst.subList(start, Math.min(start + blockSize, oldestFirst.size()));
+                ByteArrayOutputStream raw = new ByteArrayOutputStream(block.size() * 128);
+                DataOutputStream data = new DataOutputStream(raw);
+                for (MessageDTO message : block) {
+                    if (message.getId() <= previousId) {
+                        throw new IllegalArgumentException("Messages must be in ascending id order");
+                    }
+                    previousId = message.getId();
+                    byte[] content = message.getContent() == null ? new byte[0] : message.getContent().getBytes(StandardCharsets.UTF_8);
+                    data.writeLong(message.getId());
+                    data.writeLong(message.getSenderId());
+                    data.writeLong(message.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+                    data.writeInt(message.getTimestamp().getNano());
+                    data.writeInt(content.length);
+                    data.write(content);
+                }
+                byte[] compressed = deflate(deflater, raw.toByteArray());
+                out.write(compressed);
+                index.putLong(block.get(0).getId())
+                        .putLong(block.get(block.size() - 1).getId())
+                        .putLong(offset)
+                        .putInt(compressed.length)
+                        .putInt(raw.size())
+                        .putInt(block.size());
+                offset += compressed.length;
+            }
+            out.write(index.array());
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES)
+                    .putLong(chatId)
+                    .putInt(oldestFirst.size())
+                    .putInt(blockCount)
+                    .putLong(offset)
+                    .putInt(MAGIC);
+            out.write(footer.array());
+            out.flush();
+            channel.force(true);
+        } finally {
+            deflater.end();
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getChatId() {
+        return chatId;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    public long getFirstId() {
+        return firstIds[0];
+    }
+
+    public long getLastId() {
+        return lastIds[lastIds.length - 1];
+    }
+
+    /**
+     * @return up to {@code limit} messages with an id below {@code beforeId}, newest first
+     */
+    public List<MessageDTO> readBefore(long beforeId, int limit) {
+        List<MessageDTO> result = new ArrayList<>(Math.min(limit, messageCount));
+        // Last block that starts below the cursor
+        int block = upperBound(firstIds, beforeId - 1) - 1;
+        for (; block >= 0 && result.size() < limit; block--) {
+            List<MessageDTO> messages = decode(block);
+            for (int i = messages.size() - 1; i >= 0 && result.size() < limit; i--) {
+                if (messages.get(i).getId() < beforeId) {
+                    result.add(messages.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return up to {@code limit} messages with an id above {@code afterId}, oldest first
+     */
+    public List<MessageDTO> readAfter(long afterId, int limit) {
+        List<MessageDTO> result = new ArrayList<>(Math.min(limit, messageCount));
+        // First block that ends above the cursor
+        int block = upperBound(lastIds, afterId);
+        for (; block < lastIds.length && result.size() < limit; block++) {
+            for (MessageDTO message : decode(block)) {
+                if (message.getId() > afterId && result.size() < limit) {
+                    result.add(message);
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<MessageDTO> readAll() {
+        return readAfter(Long.MIN_VALUE, messageCount);
+    }
+
+    private List<MessageDTO> decode(int block) {
+        byte[] raw = new byte[rawLengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(mapping.slice((int) offsets[block], compressedLengths[block]));
+            int read = 0;
+            while (read < raw.length) {
+                int n = inflater.inflate(raw, read, raw.length - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated block " + block + " in " + path);
+                }
+                read += n;
+            }
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupt block " + block + " in " + path, e));
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer data = ByteBuffer.wrap(raw);
+        List<MessageDTO> messages = new ArrayList<>();
+        while (data.hasRemaining()) {
+            long id = data.getLong();
+            long senderId = data.getLong();
+            long epochSecond = data.getLong();
+            int nano = data.getInt();
+            int length = data.getInt();
+            String content = new String(raw, data.position(), length, StandardCharsets.UTF_8);
+            data.position(data.position() + length);
+            messages.add(MessageDTO.builder()
+                    .id(id)
+                    .chatId(chatId)
+                    .senderId(senderId)
+                    .content(content)
+                    .timestamp(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC))
+                    .build());
+        }
+        return Collections.unmodifiableList(messages);
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] input) {
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+    }
+
+    // Index of the first element greater than key
+    private static int upperBound(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -1,25 +1,63 @@
 package com.pookietalk.utils;
 
+import com.pookietalk.exceptions.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Utility class for password hashing and verification using BCrypt.
+ *
+ * <p>Every hash runs on a dedicated pool of {@code security.bcrypt.threads} threads (default: one
+ * per core) and the caller waits for the result. A burst of logins can therefore use at most that
+ * much CPU, however many request threads are busy. At most {@code security.bcrypt.queue-capacity}
+ * hashes wait for a thread; beyond that callers get a {@link PasswordHashingBusyException} at once
+ * and are counted in {@code security.bcrypt.rejected}. Pool statistics are published as
+ * {@code executor.*{name=bcrypt}}.
  */
 @Component
 public class PasswordUtil {
 
     private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService executor;
+    private final Counter rejected;
 
     /**
      * Constructs a PasswordUtil with a configurable BCrypt strength (cost factor).
      *
-     * @param strength the log rounds to use, between 4 and 31
+     * @param strength      the log rounds to use, between 4 and 31
+     * @param threads       threads that hash passwords; 0 means one per available processor
+     * @param queueCapacity hashes that may wait for a free thread before callers are turned away
      */
-    public PasswordUtil(@Value("${security.bcrypt.strength:12}") int strength) {
+    public PasswordUtil(@Value("${security.bcrypt.strength:12}") int strength,
+                        @Value("${security.bcrypt.threads:0}") int threads,
+                        @Value("${security.bcrypt.queue-capacity:256}") int queueCapacity,
+                        MeterRegistry meterRegistry) {
         this.passwordEncoder = new BCryptPasswordEncoder(strength);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("bcrypt-", 1).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "bcrypt");
+        this.rejected = Counter.builder("security.bcrypt.rejected")
+                .description("Password hashes refused because the BCrypt queue was full")
+                .register(meterRegistry);
     }
 
     /**
@@ -27,9 +65,10 @@ public class PasswordUtil {
      *
      * @param rawPassword the raw password
      * @return the hashed password
+     * @throws PasswordHashingBusyException if too many hashes are already waiting
      */
     public String encode(String rawPassword) {
-        return passwordEncoder.encode(rawPassword);
+        return run(() -> passwordEncoder.encode(rawPassword));
     }
 
     /**
@@ -38,8 +77,59 @@ public class PasswordUtil {
      * @param rawPassword     the raw password
      * @param encodedPassword the hashed password
      * @return true if the raw password matches the hashed one
+     * @throws PasswordHashingBusyException if too many hashes are already waiting
      */
     public boolean verifyPassword(String rawPassword, String encodedPassword) {
-        return passwordEncoder.matches(rawPassword, encodedPassword);
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * @return a {@link PasswordEncoder} view of this utility, so Spring Security's login check
+     * also runs on the bounded pool
+     */
+    public PasswordEncoder asPasswordEncoder() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return PasswordUtil.this.encode(rawPassword.toString());
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return verifyPassword(rawPassword.toString(), encodedPassword);
+            }
+
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                return passwordEncoder.upgradeEncoding(encodedPassword);
+            }
+        };
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> result;
+        try {
+            result = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("Too many sign-ins in progress, please retry shortly");
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a password hash", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
     }
 }
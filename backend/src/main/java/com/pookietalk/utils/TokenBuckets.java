@@ -0,0 +1,81 @@
+package com.pookietalk.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets keyed by caller (a user id, a client address), for the rate limiters.
+ *
+ * <p>Each bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (the generic cell rate algorithm, equivalent to a token bucket). Taking a token is one CAS,
+ * with no lock and no refill thread. A bucket that has been idle for a full burst window is full
+ * again, so it is indistinguishable from a new one. Buckets therefore expire after the longest
+ * window without access, and memory tracks recently active callers only, up to
+ * {@code maxTracked}.
+ */
+public final class TokenBuckets<K> {
+
+    /**
+     * A sustained rate and the number of tokens that can be spent back to back.
+     */
+    public record Limit(long intervalNanos, long burstNanos) {
+
+        public static Limit of(double perSecond, int burst) {
+            if (!(perSecond > 0)) {
+                throw new IllegalArgumentException("Rate must be positive: " + perSecond);
+            }
+            long intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond));
+            return new Limit(intervalNanos, intervalNanos * Math.max(1, burst));
+        }
+    }
+
+    private final Cache<K, AtomicLong> buckets;
+
+    /**
+     * @param limits every limit this instance will be asked to apply, to size the bucket expiry
+     */
+    public TokenBuckets(long maxTracked, Limit... limits) {
+        long longestWindow = Arrays.stream(limits).mapToLong(Limit::burstNanos).max().orElse(0);
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofNanos(Math.max(longestWindow, TimeUnit.SECONDS.toNanos(1))))
+                .maximumSize(maxTracked)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Publishes the bucket cache's statistics as {@code cache.*{cache=<cacheName>}}.
+     */
+    public void monitor(MeterRegistry meterRegistry, String cacheName) {
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, cacheName);
+    }
+
+    /**
+     * Takes one token from the caller's bucket.
+     *
+     * @return 0 if a token was taken, otherwise the whole seconds until one is available (at least 1)
+     */
+    public long tryAcquire(K key, Limit limit) {
+        AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        long now = System.nanoTime();
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + limit.intervalNanos();
+            long debt = next - now;
+            if (debt > limit.burstNanos()) {
+                long retryAfterNanos = debt - limit.burstNanos();
+                return Math.max(1, (retryAfterNanos + 999_999_999) / 1_000_000_000);
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
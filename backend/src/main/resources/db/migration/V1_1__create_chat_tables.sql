@@ -0,0 +1,24 @@
+-- Chat tables as previously created by Hibernate's ddl-auto, so a fresh database can be
+-- migrated by Flyway alone. IF NOT EXISTS keeps this a no-op on existing installs.
+CREATE TABLE IF NOT EXISTS chats (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    chat_name VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS chat_participants (
+    chat_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (chat_id, user_id),
+    CONSTRAINT fk_chat_participants_chat FOREIGN KEY (chat_id) REFERENCES chats (id),
+    CONSTRAINT fk_chat_participants_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS messages (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    chat_id BIGINT NOT NULL,
+    sender_id BIGINT NOT NULL,
+    content TEXT NOT NULL,
+    timestamp DATETIME(6) NOT NULL,
+    CONSTRAINT fk_messages_chat FOREIGN KEY (chat_id) REFERENCES chats (id),
+    CONSTRAINT fk_messages_sender FOREIGN KEY (sender_id) REFERENCES users (id)
+);
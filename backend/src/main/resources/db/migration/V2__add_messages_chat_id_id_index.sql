@@ -0,0 +1,2 @@
+-- Keyset pagination of chat history: WHERE chat_id = ? AND id < ? ORDER BY id DESC LIMIT ?
+CREATE INDEX idx_messages_chat_id_id ON messages (chat_id, id);
@@ -0,0 +1,12 @@
+-- Ids are now generated by the application (time-ordered, see SnowflakeIdGenerator), so the
+-- primary keys no longer need AUTO_INCREMENT. New ids are far above any existing
+-- auto-increment value, so existing rows keep sorting before new ones.
+-- Foreign key checks are suspended because the columns are referenced by other tables;
+-- the column type is unchanged, so the constraints stay valid.
+SET FOREIGN_KEY_CHECKS = 0;
+
+ALTER TABLE users MODIFY COLUMN id BIGINT NOT NULL;
+ALTER TABLE chats MODIFY COLUMN id BIGINT NOT NULL;
+ALTER TABLE messages MODIFY COLUMN id BIGINT NOT NULL;
+
+SET FOREIGN_KEY_CHECKS = 1;
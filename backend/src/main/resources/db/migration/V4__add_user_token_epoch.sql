@@ -0,0 +1,3 @@
+-- Per-user token generation: tokens carry the epoch they were issued under and are rejected
+-- once the user's epoch has been bumped (logout everywhere, lockout, password change).
+ALTER TABLE users ADD COLUMN token_epoch BIGINT NOT NULL DEFAULT 0;
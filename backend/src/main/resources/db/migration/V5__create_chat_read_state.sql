@@ -0,0 +1,18 @@
+-- Last-read message and unread count per (user, chat). Written in batches from the
+-- in-memory counters in ReadStateService and loaded back at startup.
+CREATE TABLE chat_read_state (
+    user_id BIGINT NOT NULL,
+    chat_id BIGINT NOT NULL,
+    last_read_message_id BIGINT NOT NULL DEFAULT 0,
+    unread_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, chat_id),
+    CONSTRAINT fk_chat_read_state_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_chat_read_state_chat FOREIGN KEY (chat_id) REFERENCES chats (id)
+);
+
+-- Existing memberships start fully read rather than counting a chat's whole history as unread
+INSERT INTO chat_read_state (user_id, chat_id, last_read_message_id, unread_count)
+SELECT cp.user_id, cp.chat_id, COALESCE(MAX(m.id), 0), 0
+FROM chat_participants cp
+LEFT JOIN messages m ON m.chat_id = cp.chat_id
+GROUP BY cp.user_id, cp.chat_id;
@@ -0,0 +1,3 @@
+-- Set by every flush, so each node can pick up the counters the others flushed
+ALTER TABLE chat_read_state ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3);
+CREATE INDEX idx_chat_read_state_updated_at ON chat_read_state (updated_at);
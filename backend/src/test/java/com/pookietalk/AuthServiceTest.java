@@ -2,11 +2,13 @@ package com.pookietalk;
 
 import com.pookietalk.dto.AuthRequestDTO;
 import com.pookietalk.dto.AuthResponseDTO;
+import com.pookietalk.dto.AvailabilityDTO;
 import com.pookietalk.models.Role;
 import com.pookietalk.models.User;
 import com.pookietalk.repositories.UserRepository;
 import com.pookietalk.services.AuthService;
 import com.pookietalk.services.JwtService;
+import com.pookietalk.services.UserAvailabilityFilter;
 import com.pookietalk.services.UserService;
 import com.pookietalk.utils.PasswordUtil;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,6 +17,7 @@ import org.mockito.ArgumentCaptor; // Import ArgumentCaptor
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -43,6 +46,9 @@ public class AuthServiceTest {
     @Mock
     private PasswordUtil passwordUtil;
 
+    @Mock
+    private UserAvailabilityFilter userAvailabilityFilter;
+
     @InjectMocks
     private AuthService authService;
 
@@ -79,6 +85,9 @@ public class AuthServiceTest {
 
         verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(jwtService).generateToken(user);
+        // The principal loaded during authentication is reused, not read again
+        verify(userRepository, never()).findByUsername(any());
+        verifyNoInteractions(userService);
     }
 
     @Test
@@ -174,6 +183,70 @@ public class AuthServiceTest {
         verify(jwtService).generateToken(savedUser); // Verify token generation with the *saved* user
     }
 
+    @Test
+    void testRegisterSkipsTheDatabaseForValuesTheFilterHasNotSeen() {
+        AuthRequestDTO request = AuthRequestDTO.builder()
+                .username("newuser")
+                .password("password123")
+                .email("new@email.com")
+                .build();
+        User savedUser = new User(1L, "newuser", "encoded-password", "new@email.com", Role.USER);
+        when(passwordUtil.encode("password123")).thenReturn("encoded-password");
+        when(userRepository.save(any(User.class))).thenReturn(savedUser);
+
+        authService.register(request);
+
+        verify(userRepository, never()).existsByUsername(any());
+        verify(userRepository, never()).existsByEmail(any());
+        verify(userAvailabilityFilter).add("newuser", "new@email.com");
+    }
+
+    @Test
+    void testRegisterEmailAlreadyExists() {
+        AuthRequestDTO request = AuthRequestDTO.builder()
+                .username("newuser")
+                .password("password123")
+                .email("existing@email.com")
+                .build();
+        when(userAvailabilityFilter.mightHaveEmail("existing@email.com")).thenReturn(true);
+        when(userRepository.existsByEmail("existing@email.com")).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class, () -> authService.register(request));
+
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testRegisterMapsAConcurrentDuplicateToAConflict() {
+        AuthRequestDTO request = AuthRequestDTO.builder()
+                .username("newuser")
+                .password("password123")
+                .email("new@email.com")
+                .build();
+        when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThrows(IllegalArgumentException.class, () -> authService.register(request));
+
+        verify(userAvailabilityFilter, never()).add(any(), any());
+    }
+
+    @Test
+    void testCheckAvailabilityConfirmsPossibleHitsWithTheDatabase() {
+        when(userAvailabilityFilter.mightHaveUsername("taken")).thenReturn(true);
+        when(userRepository.existsByUsername("taken")).thenReturn(true);
+        when(userAvailabilityFilter.mightHaveEmail("false-positive@email.com")).thenReturn(true);
+        when(userRepository.existsByEmail("false-positive@email.com")).thenReturn(false);
+
+        AvailabilityDTO taken = authService.checkAvailability("taken", "false-positive@email.com");
+        AvailabilityDTO free = authService.checkAvailability("free", null);
+
+        assertFalse(taken.getUsernameAvailable());
+        assertTrue(taken.getEmailAvailable());
+        assertTrue(free.getUsernameAvailable());
+        assertNull(free.getEmailAvailable());
+        verify(userRepository, never()).existsByUsername("free");
+    }
+
     @Test
     void testRegisterUserAlreadyExists() {
         AuthRequestDTO request = AuthRequestDTO.builder()
@@ -182,12 +255,12 @@ public class AuthServiceTest {
                 .email("existing@email.com")
                 .build();
 
-        User existingUser = new User(1L, "existinguser", "hashedpassword", "existing@email.com", Role.USER);
-        when(userRepository.findByUsername("existinguser")).thenReturn(Optional.of(existingUser));
+        when(userAvailabilityFilter.mightHaveUsername("existinguser")).thenReturn(true);
+        when(userRepository.existsByUsername("existinguser")).thenReturn(true);
 
         assertThrows(IllegalArgumentException.class, () -> authService.register(request));
 
-        verify(userRepository).findByUsername("existinguser");
+        verify(userRepository).existsByUsername("existinguser");
         verify(userRepository, never()).save(any(User.class));
         verify(jwtService, never()).generateToken(any());
     }
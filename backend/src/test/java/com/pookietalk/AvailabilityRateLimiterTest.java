@@ -0,0 +1,48 @@
+package com.pookietalk;
+
+import com.pookietalk.exceptions.RateLimitExceededException;
+import com.pookietalk.services.AvailabilityRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityRateLimiterTest {
+
+    @Test
+    void testBurstIsAllowedThenChecksAreRejectedPerClient() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AvailabilityRateLimiter limiter = new AvailabilityRateLimiter(true, 6, 3, 1000, meterRegistry);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("203.0.113.7");
+        }
+        RateLimitExceededException rejected = assertThrows(RateLimitExceededException.class,
+                () -> limiter.acquire("203.0.113.7"));
+
+        // One check every 10 seconds
+        assertTrue(rejected.getRetryAfterSeconds() > 0 && rejected.getRetryAfterSeconds() <= 10);
+        assertEquals(1, meterRegistry.counter("users.availability.rate_limited").count());
+        // Other clients have their own buckets
+        limiter.acquire("198.51.100.1");
+    }
+
+    @Test
+    void testBucketRefillsAtTheSustainedRate() throws InterruptedException {
+        AvailabilityRateLimiter limiter = new AvailabilityRateLimiter(true, 6000, 1, 1000, new SimpleMeterRegistry());
+
+        limiter.acquire("203.0.113.7");
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire("203.0.113.7"));
+        Thread.sleep(20);
+        limiter.acquire("203.0.113.7");
+    }
+
+    @Test
+    void testDisabledLimiterAcceptsEverything() {
+        AvailabilityRateLimiter limiter = new AvailabilityRateLimiter(false, 1, 1, 1000, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire("203.0.113.7");
+        }
+    }
+}
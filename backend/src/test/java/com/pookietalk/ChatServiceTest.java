@@ -0,0 +1,186 @@
+package com.pookietalk;
+
+import com.pookietalk.dto.ChatDTO;
+import com.pookietalk.dto.CursorPageDTO;
+import com.pookietalk.dto.UserDTO;
+import com.pookietalk.models.Chat;
+import com.pookietalk.models.Role;
+import com.pookietalk.models.User;
+import com.pookietalk.repositories.DirectoryStreamRepository;
+import com.pookietalk.services.ChatMembershipIndex;
+import com.pookietalk.services.ChatService;
+import com.pookietalk.services.ReadStateService;
+import com.pookietalk.services.UserService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({ChatService.class, DirectoryStreamRepository.class})
+class ChatServiceTest {
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private ChatMembershipIndex chatMembershipIndex;
+
+    @MockBean
+    private ReadStateService readStateService;
+
+    private User alice;
+    private User bob;
+    private User carol;
+
+    @BeforeEach
+    void setUp() {
+        alice = persistUser("alice");
+        bob = persistUser("bob");
+        carol = persistUser("carol");
+        for (int i = 0; i < 5; i++) {
+            persistChat("alice-bob-" + i, alice, bob);
+        }
+        persistChat("bob-carol", bob, carol);
+        entityManager.flush();
+        entityManager.clear();
+
+        UserDTO aliceDTO = new UserDTO();
+        aliceDTO.setId(alice.getId());
+        when(userService.getUserByUsername("alice")).thenReturn(aliceDTO);
+    }
+
+    @Test
+    void testUserChatsAreListedInTwoStatementsWithoutLoadingUsers() {
+        Statistics statistics = statistics();
+
+        List<ChatDTO> chats = chatService.getUserChats("alice");
+
+        assertEquals(5, chats.size());
+        chats.forEach(chat -> assertEquals(Set.of(alice.getId(), bob.getId()), chat.getParticipantIds()));
+        chats.forEach(chat -> assertNotNull(chat.getUnreadCount()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testAllChatsAreListedInTwoStatements() {
+        Statistics statistics = statistics();
+
+        List<ChatDTO> chats = chatService.getAllChats();
+
+        assertEquals(6, chats.size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testChatPagesFollowTheCursorInTwoStatementsEach() {
+        Statistics statistics = statistics();
+
+        CursorPageDTO<ChatDTO> first = chatService.getChatPage(null, 4);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        CursorPageDTO<ChatDTO> second = chatService.getChatPage(first.getNextCursor(), 4);
+
+        assertEquals(4, first.getItems().size());
+        assertTrue(first.isHasMore());
+        assertEquals(2, second.getItems().size());
+        assertFalse(second.isHasMore());
+        assertNull(second.getNextCursor());
+        assertEquals(Set.of(bob.getId(), carol.getId()), second.getItems().get(1).getParticipantIds());
+    }
+
+    @Test
+    void testStreamedChatsGroupParticipantsPerChat() {
+        List<ChatDTO> streamed = new ArrayList<>();
+
+        chatService.streamAllChats(streamed::add);
+
+        assertEquals(6, streamed.size());
+        assertEquals(chatService.getAllChats(), streamed);
+    }
+
+    @Test
+    void testSlowStreamConsumerIsCutOff() {
+        DirectoryStreamRepository repository = new DirectoryStreamRepository(jdbcTemplate, 1000, Duration.ofMillis(20));
+        List<ChatDTO> streamed = new ArrayList<>();
+
+        assertThrows(QueryTimeoutException.class, () -> repository.streamChats(chat -> {
+            streamed.add(chat);
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(streamed.size() < 6);
+    }
+
+    @Test
+    void testLoadingAChatDoesNotHydrateParticipants() {
+        Statistics statistics = statistics();
+
+        List<Chat> chats = entityManager.createQuery("select c from Chat c", Chat.class).getResultList();
+
+        assertEquals(6, chats.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private User persistUser(String username) {
+        User user = User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("Secret@123")
+                .role(Role.USER)
+                .build();
+        entityManager.persist(user);
+        return user;
+    }
+
+    private void persistChat(String name, User... participants) {
+        Chat chat = new Chat();
+        chat.setChatName(name);
+        chat.setParticipants(Set.of(participants));
+        entityManager.persist(chat);
+    }
+}
@@ -0,0 +1,84 @@
+package com.pookietalk;
+
+import com.pookietalk.models.Role;
+import com.pookietalk.models.User;
+import com.pookietalk.services.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private final User user = new User(42L, "testuser", "hashedpassword", "test@example.com", Role.USER);
+
+    private static JwtService jwtService(long expirationMillis, Duration cacheTtl) {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", "aVeryLongAndSecureJwtSecretKeyThatIsAtLeast32BytesLong");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", expirationMillis);
+        ReflectionTestUtils.setField(jwtService, "verifiedTokenCacheSize", 100L);
+        ReflectionTestUtils.setField(jwtService, "verifiedTokenCacheTtl", cacheTtl);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        return jwtService;
+    }
+
+    @Test
+    void testVerifiedTokenIsServedFromCache() {
+        JwtService jwtService = jwtService(60_000, Duration.ofMinutes(1));
+        String token = jwtService.generateToken(user);
+
+        Claims first = jwtService.parseToken(token);
+
+        assertEquals("testuser", first.getSubject());
+        assertSame(first, jwtService.parseToken(token));
+    }
+
+    @Test
+    void testCachedTokenIsReverifiedAfterCacheTtl() throws Exception {
+        JwtService jwtService = jwtService(60_000, Duration.ofMillis(20));
+        String token = jwtService.generateToken(user);
+
+        Claims first = jwtService.parseToken(token);
+        Thread.sleep(50);
+
+        Claims second = jwtService.parseToken(token);
+        assertNotSame(first, second);
+        assertEquals(first.getSubject(), second.getSubject());
+    }
+
+    @Test
+    void testCachedTokenIsNotTrustedPastItsOwnExpiry() throws Exception {
+        // exp has second precision, so this token expires 1 to 2 seconds from now
+        JwtService jwtService = jwtService(1_500, Duration.ofMinutes(1));
+        String token = jwtService.generateToken(user);
+        jwtService.parseToken(token);
+
+        Thread.sleep(2_100);
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.parseToken(token));
+    }
+
+    @Test
+    void testTamperedTokenIsRejectedEvenWhenTheOriginalIsCached() {
+        JwtService jwtService = jwtService(60_000, Duration.ofMinutes(1));
+        String token = jwtService.generateToken(user);
+        jwtService.parseToken(token);
+
+        String[] parts = token.split("\\.");
+        String otherUser = jwtService.generateToken(new User(7L, "otheruser", "hashedpassword", "o@example.com", Role.ADMIN));
+        String swappedPayload = parts[0] + "." + otherUser.split("\\.")[1] + "." + parts[2];
+        char last = parts[2].charAt(parts[2].length() - 2);
+        String alteredSignature = parts[0] + "." + parts[1] + "."
+                + parts[2].substring(0, parts[2].length() - 2) + (last == 'A' ? 'B' : 'A') + parts[2].charAt(parts[2].length() - 1);
+
+        assertThrows(JwtException.class, () -> jwtService.parseToken(swappedPayload));
+        assertThrows(JwtException.class, () -> jwtService.parseToken(alteredSignature));
+        // Rejections are not cached as verified either
+        assertThrows(JwtException.class, () -> jwtService.parseToken(alteredSignature));
+    }
+}
@@ -0,0 +1,158 @@
+package com.pookietalk;
+
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.models.Chat;
+import com.pookietalk.models.Role;
+import com.pookietalk.models.User;
+import com.pookietalk.repositories.MessageBatchRepository;
+import com.pookietalk.services.MessageArchive;
+import com.pookietalk.services.MessageArchiveService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:archive;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import(MessageBatchRepository.class)
+class MessageArchiveServiceTest {
+
+    // Cutoff for tests where only the id bound matters
+    private static final LocalDateTime RECENT = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private MessageBatchRepository messageBatchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path archiveDir;
+
+    private MessageArchive archive;
+    private MessageArchiveService archiveService;
+    private long chatId;
+    private long senderId;
+
+    @BeforeEach
+    void setUp() {
+        User sender = User.builder()
+                .username("alice")
+                .email("alice@example.com")
+                .password("Secret@123")
+                .role(Role.USER)
+                .build();
+        entityManager.persist(sender);
+        Chat chat = new Chat();
+        chat.setChatName("history");
+        chat.setParticipants(Set.of(sender));
+        entityManager.persist(chat);
+        entityManager.flush();
+        chatId = chat.getId();
+        senderId = sender.getId();
+
+        archive = new MessageArchive(archiveDir, 4, 100, new SimpleMeterRegistry());
+        archiveService = new MessageArchiveService();
+        ReflectionTestUtils.setField(archiveService, "messageArchive", archive);
+        ReflectionTestUtils.setField(archiveService, "messageBatchRepository", messageBatchRepository);
+        ReflectionTestUtils.setField(archiveService, "segmentMaxMessages", 10);
+        ReflectionTestUtils.setField(archiveService, "segmentMinMessages", 3);
+        ReflectionTestUtils.setField(archiveService, "deleteChunkSize", 4);
+    }
+
+    private void insertMessages(long fromId, long toId) {
+        insertMessages(fromId, toId, LocalDateTime.of(2020, 1, 1, 0, 0));
+    }
+
+    private void insertMessages(long fromId, long toId, LocalDateTime firstTimestamp) {
+        List<MessageDTO> messages = new ArrayList<>();
+        for (long id = fromId; id <= toId; id++) {
+            messages.add(MessageDTO.builder()
+                    .id(id)
+                    .chatId(chatId)
+                    .senderId(senderId)
+                    .content("message " + id)
+                    .timestamp(firstTimestamp.plusMinutes(id - fromId))
+                    .build());
+        }
+        messageBatchRepository.insertBatch(messages);
+    }
+
+    private List<Long> storedIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM messages WHERE chat_id = ? ORDER BY id", Long.class, chatId);
+    }
+
+    @Test
+    void testColdMessagesMoveToSegmentsAndLeaveTheTable() {
+        insertMessages(1, 30);
+
+        long moved = archiveService.archiveChat(chatId, 26, RECENT);
+
+        // 25 cold messages: two full segments of 10, then 5 (at least the minimum of 3)
+        assertEquals(25, moved);
+        assertEquals(List.of(26L, 27L, 28L, 29L, 30L), storedIds());
+        assertEquals(25L, archive.getLastArchivedId(chatId));
+        assertEquals(25, archive.readAll(chatId).size());
+        assertEquals(List.of(25L, 24L, 23L), archive.readBefore(chatId, 26, 3).stream().map(MessageDTO::getId).toList());
+        assertEquals(List.of(10L, 11L), archive.readAfter(chatId, 9, 2).stream().map(MessageDTO::getId).toList());
+        assertEquals(List.of(chatId), messageBatchRepository.findChatIdsWithMessagesBefore(27, RECENT));
+        assertEquals(List.of(), messageBatchRepository.findChatIdsWithMessagesBefore(26, RECENT));
+    }
+
+    @Test
+    void testSmallRemaindersWaitAndInterruptedRunsAreCleanedUp() {
+        insertMessages(1, 12);
+        // A previous run wrote this segment but died before deleting its rows
+        archive.append(chatId, messageBatchRepository.findChatRange(chatId, 0, 6, 100));
+
+        long moved = archiveService.archiveChat(chatId, 8, RECENT);
+
+        // 6 and 7 would make a segment below the minimum size
+        assertEquals(0, moved);
+        assertEquals(List.of(6L, 7L, 8L, 9L, 10L, 11L, 12L), storedIds());
+
+        assertEquals(6, archiveService.archiveChat(chatId, 12, RECENT));
+        assertEquals(List.of(12L), storedIds());
+        assertEquals(11L, archive.getLastArchivedId(chatId));
+    }
+
+    @Test
+    void testLegacyIdsAreOnlyArchivedOnceTheirTimestampIsOld() {
+        LocalDateTime cutoffTime = LocalDateTime.of(2024, 6, 1, 0, 0);
+        // Auto-increment ids from before time-ordered ids: all far below any Snowflake cutoff
+        insertMessages(1, 5, cutoffTime.minusYears(2));
+        insertMessages(6, 9, cutoffTime.plusDays(1));
+        long cutoffId = Long.MAX_VALUE;
+
+        assertEquals(5, archiveService.archiveChat(chatId, cutoffId, cutoffTime));
+        assertEquals(List.of(6L, 7L, 8L, 9L), storedIds());
+        assertEquals(5L, archive.getLastArchivedId(chatId));
+        assertEquals(List.of(), messageBatchRepository.findChatIdsWithMessagesBefore(cutoffId, cutoffTime));
+
+        // Nothing recent is archived however low its id
+        assertEquals(0, archiveService.archiveChat(chatId, cutoffId, cutoffTime));
+        assertEquals(List.of(6L, 7L, 8L, 9L), storedIds());
+        assertEquals(List.of(chatId), archive.getChatIds());
+    }
+}
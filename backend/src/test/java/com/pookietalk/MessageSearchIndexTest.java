@@ -0,0 +1,110 @@
+package com.pookietalk;
+
+import com.pookietalk.dto.CursorPageDTO;
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.services.MessageSearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageSearchIndexTest {
+
+    @TempDir
+    Path indexDir;
+
+    private MessageSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(index, "stop");
+    }
+
+    private MessageSearchIndex open() {
+        MessageSearchIndex opened = new MessageSearchIndex(indexDir, 100, 10, 20, 16, new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(opened, "start");
+        return opened;
+    }
+
+    private static MessageDTO message(long id, long chatId, String content) {
+        return MessageDTO.builder()
+                .id(id)
+                .chatId(chatId)
+                .senderId(7L)
+                .content(content)
+                .timestamp(LocalDateTime.of(2024, 1, 1, 12, 0))
+                .build();
+    }
+
+    private static List<Long> ids(CursorPageDTO<MessageDTO> page) {
+        return page.getItems().stream().map(MessageDTO::getId).toList();
+    }
+
+    @Test
+    void testSearchIsLimitedToTheGivenChatsAndNewestFirst() {
+        index.indexBatch(List.of(
+                message(1, 1, "Lunch at noon?"),
+                message(2, 2, "lunch is cancelled"),
+                message(3, 1, "Dinner instead"),
+                message(4, 1, "ok, LUNCH tomorrow")));
+        index.refresh();
+
+        CursorPageDTO<MessageDTO> page = index.search(Set.of(1L), "lunch", null, 10);
+
+        assertEquals(List.of(4L, 1L), ids(page));
+        assertEquals("ok, LUNCH tomorrow", page.getItems().get(0).getContent());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 12, 0), page.getItems().get(0).getTimestamp());
+        assertFalse(page.isHasMore());
+        assertEquals(List.of(), ids(index.search(Set.of(), "lunch", null, 10)));
+    }
+
+    @Test
+    void testPagesFollowTheBeforeCursor() {
+        for (long id = 1; id <= 5; id++) {
+            index.indexBatch(List.of(message(id, 1, "status update " + id)));
+        }
+        index.refresh();
+
+        CursorPageDTO<MessageDTO> first = index.search(Set.of(1L), "status update", null, 2);
+        CursorPageDTO<MessageDTO> second = index.search(Set.of(1L), "status update", first.getNextCursor(), 2);
+        CursorPageDTO<MessageDTO> third = index.search(Set.of(1L), "status update", second.getNextCursor(), 2);
+
+        assertEquals(List.of(5L, 4L), ids(first));
+        assertEquals(List.of(3L, 2L), ids(second));
+        assertEquals(List.of(1L), ids(third));
+        assertNull(third.getNextCursor());
+    }
+
+    @Test
+    void testQueuedMessagesBecomeSearchableAndSurviveARestart() throws InterruptedException {
+        index.enqueue(message(1, 1, "queued hello"));
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (index.search(Set.of(1L), "hello", null, 10).getItems().isEmpty()) {
+            assertTrue(System.nanoTime() < deadline, "queued message was not indexed");
+            Thread.sleep(10);
+        }
+
+        // Reindexing the same id replaces the document instead of duplicating it
+        index.indexBatch(List.of(message(1, 1, "queued hello again")));
+        index.commit();
+        ReflectionTestUtils.invokeMethod(index, "stop");
+        index = open();
+
+        assertEquals(1, index.getDocumentCount());
+        assertEquals("queued hello again", index.search(Set.of(1L), "hello", null, 10).getItems().get(0).getContent());
+    }
+}
@@ -0,0 +1,235 @@
+package com.pookietalk;
+
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.dto.MessagePageDTO;
+import com.pookietalk.dto.SyncResponseDTO;
+import com.pookietalk.dto.UserDTO;
+import com.pookietalk.exceptions.NotChatMemberException;
+import com.pookietalk.exceptions.ValidationException;
+import com.pookietalk.models.Chat;
+import com.pookietalk.models.Message;
+import com.pookietalk.models.User;
+import com.pookietalk.repositories.MessageRepository;
+import com.pookietalk.services.ChatMembershipIndex;
+import com.pookietalk.services.MessageArchive;
+import com.pookietalk.services.MessageBroadcastService;
+import com.pookietalk.services.MessageService;
+import com.pookietalk.services.ReadStateService;
+import com.pookietalk.services.RecentMessageCache;
+import com.pookietalk.services.UserService;
+import com.pookietalk.utils.SnowflakeIdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class MessageServiceTest {
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private ChatMembershipIndex chatMembershipIndex;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private MessageBroadcastService messageBroadcastService;
+
+    @Mock
+    private RecentMessageCache recentMessageCache;
+
+    @Mock
+    private ReadStateService readStateService;
+
+    @InjectMocks
+    private MessageService messageService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private Message message(long id) {
+        return Message.builder()
+                .id(id)
+                .chat(new Chat(1L))
+                .sender(new User(7L))
+                .content("message " + id)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void testLatestPageIsReturnedOldestFirstWithCursor() {
+        // Repository returns newest first, one row more than requested
+        when(messageRepository.findByChatIdOrderByIdDesc(1L, Limit.of(3)))
+                .thenReturn(List.of(message(10), message(9), message(8)));
+
+        MessagePageDTO page = messageService.getMessagePage(1L, 7L, null, null, 2);
+
+        assertEquals(List.of(9L, 10L), page.getMessages().stream().map(MessageDTO::getId).toList());
+        assertTrue(page.isHasMore());
+        assertEquals(9L, page.getNextCursor());
+    }
+
+    @Test
+    void testBeforeCursorOnLastPageHasNoNextCursor() {
+        when(messageRepository.findByChatIdAndIdLessThanOrderByIdDesc(1L, 9L, Limit.of(3)))
+                .thenReturn(List.of(message(8)));
+
+        MessagePageDTO page = messageService.getMessagePage(1L, 7L, 9L, null, 2);
+
+        assertEquals(1, page.getMessages().size());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testAfterCursorPagesForward() {
+        when(messageRepository.findByChatIdAndIdGreaterThanOrderByIdAsc(1L, 4L, Limit.of(3)))
+                .thenReturn(List.of(message(5), message(6), message(7)));
+
+        MessagePageDTO page = messageService.getMessagePage(1L, 7L, null, 4L, 2);
+
+        assertEquals(List.of(5L, 6L), page.getMessages().stream().map(MessageDTO::getId).toList());
+        assertEquals(6L, page.getNextCursor());
+    }
+
+    @Test
+    void testPagesContinueIntoArchivedHistory() {
+        MessageArchive archive = mock(MessageArchive.class);
+        ReflectionTestUtils.setField(messageService, "messageArchive", archive);
+        when(archive.getLastArchivedId(1L)).thenReturn(7L);
+        // 7 is a leftover row that was already archived
+        when(messageRepository.findByChatIdAndIdLessThanOrderByIdDesc(1L, 10L, Limit.of(4)))
+                .thenReturn(List.of(message(9), message(8), message(7)));
+        when(archive.readBefore(1L, 8L, 2)).thenReturn(List.of(
+                MessageDTO.builder().id(7L).chatId(1L).build(),
+                MessageDTO.builder().id(6L).chatId(1L).build()));
+        when(archive.readAfter(1L, 5L, 4)).thenReturn(List.of(
+                MessageDTO.builder().id(6L).chatId(1L).build(),
+                MessageDTO.builder().id(7L).chatId(1L).build()));
+        when(messageRepository.findByChatIdAndIdGreaterThanOrderByIdAsc(1L, 7L, Limit.of(2)))
+                .thenReturn(List.of(message(8), message(9)));
+
+        MessagePageDTO older = messageService.getMessagePage(1L, 7L, 10L, null, 3);
+        MessagePageDTO newer = messageService.getMessagePage(1L, 7L, null, 5L, 3);
+
+        assertEquals(List.of(7L, 8L, 9L), older.getMessages().stream().map(MessageDTO::getId).toList());
+        assertEquals(7L, older.getNextCursor());
+        assertEquals(List.of(6L, 7L, 8L), newer.getMessages().stream().map(MessageDTO::getId).toList());
+        assertEquals(8L, newer.getNextCursor());
+    }
+
+    @Test
+    void testBothCursorsAreRejected() {
+        assertThrows(ValidationException.class, () -> messageService.getMessagePage(1L, 7L, 5L, 2L, 10));
+        verify(messageRepository, never()).findByChatIdAndIdLessThanOrderByIdDesc(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void testSendMessageBroadcastsSavedMessage() {
+        UserDTO sender = new UserDTO();
+        sender.setId(7L);
+        when(userService.getUserById(7L)).thenReturn(sender);
+        when(messageRepository.save(any(Message.class))).thenReturn(message(11));
+
+        MessageDTO request = MessageDTO.builder().chatId(1L).senderId(7L).content("hi").build();
+        MessageDTO saved = messageService.sendMessage(request);
+
+        assertEquals(11L, saved.getId());
+        verify(recentMessageCache).append(saved);
+        verify(readStateService).onMessageSent(saved);
+        verify(messageBroadcastService).broadcast(saved);
+    }
+
+    @Test
+    void testSendMessageFromNonMemberIsRejectedBeforeSaving() {
+        doThrow(new NotChatMemberException("not a member"))
+                .when(chatMembershipIndex).requireMember(1L, 8L);
+
+        MessageDTO request = MessageDTO.builder().chatId(1L).senderId(8L).content("hi").build();
+
+        assertThrows(NotChatMemberException.class, () -> messageService.sendMessage(request));
+        verify(messageRepository, never()).save(any());
+        verify(messageBroadcastService, never()).broadcast(any());
+    }
+
+    @Test
+    void testLatestPageIsServedFromRecentMessagesOnceLoaded() {
+        RecentMessageCache cache = new RecentMessageCache(3, 1 << 20, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(messageService, "recentMessageCache", cache);
+        when(messageRepository.findByChatIdOrderByIdDesc(1L, Limit.of(4)))
+                .thenReturn(List.of(message(10), message(9), message(8), message(7)));
+
+        MessagePageDTO first = messageService.getMessagePage(1L, 7L, null, null, 2);
+        MessageDTO sent = MessageDTO.builder().id(11L).chatId(1L).senderId(7L).content("new").build();
+        cache.append(sent);
+        MessagePageDTO second = messageService.getMessagePage(1L, 7L, null, null, 3);
+
+        assertEquals(List.of(9L, 10L), first.getMessages().stream().map(MessageDTO::getId).toList());
+        assertEquals(9L, first.getNextCursor());
+        assertEquals(List.of(9L, 10L, 11L), second.getMessages().stream().map(MessageDTO::getId).toList());
+        assertTrue(second.isHasMore());
+        verify(messageRepository, times(1)).findByChatIdOrderByIdDesc(anyLong(), any());
+    }
+
+    @Test
+    void testSyncReturnsMissedMessagesAndFlagsChatsTooFarBehind() {
+        ReflectionTestUtils.setField(messageService, "syncMaxPerChat", 2);
+        when(recentMessageCache.getMessagesAfter(anyLong(), anyLong())).thenReturn(null);
+        when(messageRepository.findByChatIdAndIdGreaterThanOrderByIdAsc(1L, 8L, Limit.of(3)))
+                .thenReturn(List.of(message(9), message(10)));
+        when(messageRepository.findByChatIdAndIdGreaterThanOrderByIdAsc(2L, 0L, Limit.of(3)))
+                .thenReturn(List.of(message(1), message(2), message(3)));
+        doThrow(new NotChatMemberException("not a member")).when(chatMembershipIndex).requireMember(3L, 7L);
+
+        Map<Long, Long> lastSeen = new LinkedHashMap<>();
+        lastSeen.put(1L, 8L);
+        lastSeen.put(2L, 0L);
+        lastSeen.put(3L, 0L);
+        SyncResponseDTO response = messageService.syncMessages(7L, lastSeen);
+
+        assertEquals(List.of(9L, 10L), response.getChats().get(1L).getMessages().stream().map(MessageDTO::getId).toList());
+        assertFalse(response.getChats().get(1L).isTooFarBehind());
+        assertTrue(response.getChats().get(2L).isTooFarBehind());
+        assertTrue(response.getChats().get(2L).getMessages().isEmpty());
+        assertFalse(response.getChats().containsKey(3L));
+    }
+
+    @Test
+    void testSyncResendsAnOverlapSoLateCommittedMessagesAreNotSkipped() {
+        when(recentMessageCache.getMessagesAfter(anyLong(), anyLong())).thenReturn(null);
+        Instant seenAt = Instant.parse("2025-06-01T12:00:00Z");
+        long lastSeen = SnowflakeIdGenerator.lowestIdAt(seenAt) + 5;
+        // Generated a second before lastSeen, stored only after the client's previous sync
+        long lateCommit = SnowflakeIdGenerator.lowestIdAt(seenAt.minusSeconds(1)) + 3;
+        long windowStart = SnowflakeIdGenerator.lowestIdAt(seenAt.minusSeconds(5)) - 1;
+        when(messageRepository.findByChatIdAndIdGreaterThanOrderByIdAsc(1L, windowStart, Limit.of(201)))
+                .thenReturn(List.of(message(lateCommit), message(lastSeen)));
+
+        SyncResponseDTO response = messageService.syncMessages(7L, Map.of(1L, lastSeen));
+
+        assertEquals(List.of(lateCommit, lastSeen),
+                response.getChats().get(1L).getMessages().stream().map(MessageDTO::getId).toList());
+        verify(recentMessageCache).getMessagesAfter(1L, windowStart);
+    }
+}
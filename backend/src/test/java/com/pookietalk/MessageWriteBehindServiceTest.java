@@ -0,0 +1,205 @@
+package com.pookietalk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.exceptions.GlobalExceptionHandler;
+import com.pookietalk.exceptions.MessageQueueFullException;
+import com.pookietalk.repositories.MessageBatchRepository;
+import com.pookietalk.services.MessageWriteBehindService;
+import com.pookietalk.utils.IdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageWriteBehindServiceTest {
+
+    // Records every insert attempt; fails the ones the test asks it to
+    private static final class RecordingRepository extends MessageBatchRepository {
+
+        final List<List<MessageDTO>> written = new CopyOnWriteArrayList<>();
+        final AtomicInteger transientFailures = new AtomicInteger();
+        volatile long poisonId = -1;
+
+        RecordingRepository() {
+            super(null);
+        }
+
+        @Override
+        public void insertBatch(List<MessageDTO> messages) {
+            if (transientFailures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new QueryTimeoutException("database unavailable");
+            }
+            if (messages.stream().anyMatch(message -> message.getId() == poisonId)) {
+                throw new DataIntegrityViolationException("foreign key constraint fails");
+            }
+            written.add(List.copyOf(messages));
+        }
+
+        List<Long> writtenIds() {
+            return written.stream().flatMap(List::stream).map(MessageDTO::getId).toList();
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final IdGenerator idGenerator = ids::incrementAndGet;
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private RecordingRepository repository;
+    private Path deadLetterFile;
+    private final List<MessageWriteBehindService> started = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = new RecordingRepository();
+        deadLetterFile = tempDir.resolve("dead-letter.ndjson");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (MessageWriteBehindService service : started) {
+            ReflectionTestUtils.invokeMethod(service, "stop");
+        }
+    }
+
+    private MessageWriteBehindService service(int queueCapacity, int batchSize, long lingerMillis, int maxAttempts) {
+        return new MessageWriteBehindService(repository, idGenerator, objectMapper, queueCapacity, batchSize,
+                lingerMillis, 10, maxAttempts, deadLetterFile);
+    }
+
+    private MessageWriteBehindService start(MessageWriteBehindService service) {
+        ReflectionTestUtils.invokeMethod(service, "start");
+        started.add(service);
+        return service;
+    }
+
+    private static MessageDTO message(String content) {
+        return MessageDTO.builder()
+                .chatId(1L)
+                .senderId(2L)
+                .content(content)
+                .timestamp(LocalDateTime.of(2024, 1, 1, 12, 0))
+                .build();
+    }
+
+    private List<String> parked() {
+        try {
+            return Files.exists(deadLetterFile) ? Files.readAllLines(deadLetterFile) : List.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void awaitTrue(String description, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for " + description);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void testFullBatchIsFlushedAtOnceAndARemainderAfterTheLinger() throws Exception {
+        MessageWriteBehindService service = service(100, 3, 200, 1);
+        // Queue first, so the writer finds a full batch on its first poll
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i + 1, service.enqueue(message("m" + i)).getId());
+        }
+        start(service);
+
+        awaitTrue("the full batch", () -> repository.written.size() == 1);
+        assertEquals(List.of(1L, 2L, 3L), repository.writtenIds());
+
+        awaitTrue("the lingering remainder", () -> repository.written.size() == 2);
+        assertEquals(List.of(4L), repository.written.get(1).stream().map(MessageDTO::getId).toList());
+        assertEquals(0, service.getQueueDepth());
+    }
+
+    @Test
+    void testFailedBatchIsRetried() throws Exception {
+        repository.transientFailures.set(2);
+        MessageWriteBehindService service = start(service(100, 10, 1, 5));
+
+        service.enqueue(message("retried"));
+
+        awaitTrue("the retried insert", () -> !repository.written.isEmpty());
+        assertEquals(List.of(1L), repository.writtenIds());
+        assertFalse(Files.exists(deadLetterFile));
+    }
+
+    @Test
+    void testPoisonMessageIsParkedWithoutLosingItsBatch() throws Exception {
+        MessageWriteBehindService service = service(100, 10, 50, 2);
+        repository.poisonId = 2;
+        for (int i = 0; i < 3; i++) {
+            service.enqueue(message("m" + i));
+        }
+        start(service);
+
+        awaitTrue("the dead letter", () -> parked().size() == 1);
+        assertEquals(List.of(1L, 3L), repository.writtenIds());
+        assertEquals(2L, objectMapper.readValue(parked().get(0), MessageDTO.class).getId());
+
+        // Once the row can be written, the next start replays it
+        repository.poisonId = -1;
+        start(service(100, 10, 1, 2));
+        awaitTrue("the replay", () -> repository.written.size() == 3);
+        assertEquals(List.of(1L, 3L, 2L), repository.writtenIds());
+        assertEquals("m1", repository.written.get(2).get(0).getContent());
+        awaitTrue("the replay file to go", () -> !Files.exists(tempDir.resolve("dead-letter.ndjson.replay")));
+        assertFalse(Files.exists(deadLetterFile));
+    }
+
+    @Test
+    void testShutdownDrainsTheQueue() throws Exception {
+        MessageWriteBehindService service = start(service(1000, 7, 1000, 1));
+        for (int i = 0; i < 50; i++) {
+            service.enqueue(message("m" + i));
+        }
+
+        started.remove(service);
+        ReflectionTestUtils.invokeMethod(service, "stop");
+
+        assertEquals(50, repository.writtenIds().size());
+        assertEquals(0, service.getQueueDepth());
+        assertFalse(Files.exists(deadLetterFile));
+    }
+
+    @Test
+    void testFullQueueRejectsTheSender() {
+        // Writer not started, so nothing drains the queue
+        MessageWriteBehindService service = service(2, 10, 1, 1);
+        service.enqueue(message("a"));
+        service.enqueue(message("b"));
+
+        long startNanos = System.nanoTime();
+        MessageQueueFullException rejected = assertThrows(MessageQueueFullException.class,
+                () -> service.enqueue(message("c")));
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(10), "sender did not wait for space");
+        assertEquals(2, service.getQueueDepth());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                new GlobalExceptionHandler().handleMessageQueueFullException(rejected).getStatusCode());
+    }
+}
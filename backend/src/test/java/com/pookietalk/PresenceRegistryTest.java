@@ -0,0 +1,97 @@
+package com.pookietalk;
+
+import com.pookietalk.services.PresenceRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PresenceRegistryTest {
+
+    private final PresenceRegistry registry = new PresenceRegistry(4);
+
+    @Test
+    void testOnlyFirstAndLastSessionChangePresence() {
+        assertTrue(registry.register("s1", 7L, 0));
+        assertFalse(registry.register("s2", 7L, 0));
+        assertTrue(registry.isOnline(7L));
+
+        assertNull(registry.unregister("s1"));
+        assertTrue(registry.isOnline(7L));
+        assertEquals(7L, registry.unregister("s2"));
+        assertFalse(registry.isOnline(7L));
+
+        // Repeated or unknown disconnects report nothing
+        assertNull(registry.unregister("s2"));
+        assertNull(registry.unregister("unknown"));
+        assertEquals(0, registry.getSessionCount());
+    }
+
+    @Test
+    void testTouchUpdatesOnlyKnownSessions() {
+        registry.register("s1", 7L, 100);
+
+        assertTrue(registry.touch("s1", 250));
+        assertEquals(250, registry.getSession("s1").getLastSeenNanos());
+
+        registry.unregister("s1");
+        assertFalse(registry.touch("s1", 300));
+        assertNull(registry.getSession("s1"));
+    }
+
+    @Test
+    void testConcurrentConnectsAndDisconnectsReportEachTransitionOnce() throws Exception {
+        int users = 50;
+        int sessionsPerUser = 8;
+        AtomicInteger cameOnline = new AtomicInteger();
+        AtomicInteger wentOffline = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> registrations = new ArrayList<>();
+            for (int s = 0; s < sessionsPerUser; s++) {
+                for (long user = 0; user < users; user++) {
+                    String sessionId = user + "-" + s;
+                    long userId = user;
+                    registrations.add(executor.submit(() -> {
+                        if (registry.register(sessionId, userId, 0)) {
+                            cameOnline.incrementAndGet();
+                        }
+                    }));
+                }
+            }
+            for (Future<?> registration : registrations) {
+                registration.get();
+            }
+            assertEquals(users, cameOnline.get());
+            assertEquals(users * sessionsPerUser, registry.getSessionCount());
+
+            List<Future<?>> removals = new ArrayList<>();
+            for (int s = 0; s < sessionsPerUser; s++) {
+                for (long user = 0; user < users; user++) {
+                    String sessionId = user + "-" + s;
+                    removals.add(executor.submit(() -> {
+                        if (registry.unregister(sessionId) != null) {
+                            wentOffline.incrementAndGet();
+                        }
+                    }));
+                }
+            }
+            for (Future<?> removal : removals) {
+                removal.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(users, wentOffline.get());
+        assertEquals(0, registry.getSessionCount());
+        for (long user = 0; user < users; user++) {
+            assertFalse(registry.isOnline(user));
+        }
+    }
+}
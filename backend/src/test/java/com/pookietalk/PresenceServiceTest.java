@@ -0,0 +1,130 @@
+package com.pookietalk;
+
+import com.pookietalk.dto.PresenceEventDTO;
+import com.pookietalk.models.Role;
+import com.pookietalk.models.User;
+import com.pookietalk.services.PresenceRegistry;
+import com.pookietalk.services.PresenceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PresenceServiceTest {
+
+    @Spy
+    private PresenceRegistry presenceRegistry = new PresenceRegistry(4);
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @InjectMocks
+    private PresenceService presenceService;
+
+    private Principal alice;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(presenceService, "sessionTimeout", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(presenceService, "wheelSlots", 64);
+        ReflectionTestUtils.setField(presenceService, "wheelTickMillis", 1L);
+        ReflectionTestUtils.invokeMethod(presenceService, "init");
+        User user = new User(7L, "alice", null, null, Role.USER);
+        alice = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private void connect(String sessionId, Principal user) {
+        presenceService.onConnected(new SessionConnectedEvent(this, frame(StompCommand.CONNECTED, sessionId), user));
+    }
+
+    private void disconnect(String sessionId) {
+        presenceService.onDisconnected(new SessionDisconnectEvent(this, frame(StompCommand.DISCONNECT, sessionId),
+                sessionId, CloseStatus.NORMAL, alice));
+    }
+
+    private void expireAfter(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        presenceService.expireIdleSessions();
+    }
+
+    @Test
+    void testPresenceIsPublishedOnFirstConnectAndLastDisconnect() {
+        connect("s1", alice);
+        connect("s2", alice);
+        disconnect("s1");
+        verify(messagingTemplate, times(1)).convertAndSend("/topic/presence/7", (Object) new PresenceEventDTO(7L, true));
+        verifyNoMoreInteractions(messagingTemplate);
+        assertEquals(Set.of(7L), presenceService.getOnlineUsers(List.of(7L, 8L)));
+
+        disconnect("s2");
+        verify(messagingTemplate).convertAndSend("/topic/presence/7", (Object) new PresenceEventDTO(7L, false));
+        assertEquals(Set.of(), presenceService.getOnlineUsers(List.of(7L)));
+    }
+
+    @Test
+    void testAnonymousSessionsHaveNoPresence() {
+        connect("s1", null);
+        presenceService.onActivity("s1", null);
+
+        assertEquals(0, presenceRegistry.getSessionCount());
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void testActivityKeepsASessionAlive() throws Exception {
+        connect("s1", alice);
+        for (int i = 0; i < 5; i++) {
+            expireAfter(10);
+            presenceService.onActivity("s1", alice);
+        }
+
+        assertTrue(presenceRegistry.isOnline(7L));
+        verify(messagingTemplate, never()).convertAndSend("/topic/presence/7", (Object) new PresenceEventDTO(7L, false));
+    }
+
+    @Test
+    void testIdleSessionExpiresAndComesBackOnItsNextFrame() throws Exception {
+        connect("s1", alice);
+
+        expireAfter(60);
+        assertFalse(presenceRegistry.isOnline(7L));
+        verify(messagingTemplate).convertAndSend("/topic/presence/7", (Object) new PresenceEventDTO(7L, false));
+
+        // The socket was left open; its next frame must not be ignored
+        presenceService.onActivity("s1", alice);
+        assertTrue(presenceRegistry.isOnline(7L));
+        verify(messagingTemplate, times(2)).convertAndSend("/topic/presence/7", (Object) new PresenceEventDTO(7L, true));
+
+        // And it is tracked for expiry again
+        expireAfter(60);
+        assertFalse(presenceRegistry.isOnline(7L));
+        verify(messagingTemplate, times(2)).convertAndSend("/topic/presence/7", (Object) new PresenceEventDTO(7L, false));
+    }
+}
@@ -0,0 +1,277 @@
+package com.pookietalk;
+
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.dto.ReadReceiptDTO;
+import com.pookietalk.exceptions.NotChatMemberException;
+import com.pookietalk.exceptions.ValidationException;
+import com.pookietalk.models.ChatReadState;
+import com.pookietalk.repositories.MessageRepository;
+import com.pookietalk.repositories.ReadStateRepository;
+import com.pookietalk.services.ChatMembershipIndex;
+import com.pookietalk.services.ReadStateService;
+import com.pookietalk.services.RecentMessageCache;
+import com.pookietalk.utils.LongSortedSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class ReadStateServiceTest {
+
+    @Mock
+    private ReadStateRepository readStateRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private ChatMembershipIndex chatMembershipIndex;
+
+    @Mock
+    private RecentMessageCache recentMessageCache;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @InjectMocks
+    private ReadStateService readStateService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(chatMembershipIndex.getMembers(1L)).thenReturn(LongSortedSet.of(7L, 8L, 9L));
+        when(recentMessageCache.getMessagesAfter(anyLong(), anyLong())).thenReturn(null);
+    }
+
+    private void send(long id, long senderId) {
+        readStateService.onMessageSent(MessageDTO.builder().id(id).chatId(1L).senderId(senderId).content("m" + id).build());
+    }
+
+    private static MessageRepository.MessagesAfter stored(long count, Long newestId) {
+        return new MessageRepository.MessagesAfter() {
+            @Override
+            public long getCount() {
+                return count;
+            }
+
+            @Override
+            public Long getNewestId() {
+                return newestId;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ChatReadState> flushedRows() {
+        ArgumentCaptor<List<ChatReadState>> captor = ArgumentCaptor.forClass(List.class);
+        verify(readStateRepository, atLeastOnce()).upsertBatch(captor.capture());
+        return captor.getAllValues().stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(ChatReadState::getUserId))
+                .toList();
+    }
+
+    @Test
+    void testSendsCountAsUnreadForEveryoneButTheSender() {
+        send(10, 7);
+        send(11, 8);
+
+        assertEquals(1, readStateService.getUnreadCount(7L, 1L));
+        assertEquals(0, readStateService.getUnreadCount(8L, 1L));
+        assertEquals(2, readStateService.getUnreadCount(9L, 1L));
+    }
+
+    @Test
+    void testMarkReadResetsTheCounterAndBroadcastsAReceipt() {
+        send(10, 7);
+        send(11, 7);
+        send(12, 7);
+        when(messageRepository.countAfter(1L, 11L)).thenReturn(stored(1, 12L));
+
+        ReadReceiptDTO receipt = readStateService.markRead(1L, 9L, 11L);
+
+        assertEquals(1, receipt.getUnreadCount());
+        assertEquals(1, readStateService.getUnreadCount(9L, 1L));
+        verify(messagingTemplate).convertAndSend(ReadStateService.readTopic(1L), receipt);
+
+        // Moving backwards keeps the newer position
+        readStateService.markRead(1L, 9L, 10L);
+        assertEquals(1, readStateService.getUnreadCount(9L, 1L));
+    }
+
+    @Test
+    void testMarkReadByNonMemberIsRejected() {
+        doThrow(new NotChatMemberException("not a member")).when(chatMembershipIndex).requireMember(1L, 5L);
+
+        assertThrows(NotChatMemberException.class, () -> readStateService.markRead(1L, 5L, 10L));
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void testReadPositionBeyondTheNewestMessageIsRejected() {
+        send(10, 7);
+        when(messageRepository.countAfter(anyLong(), anyLong())).thenReturn(stored(0, null));
+        when(messageRepository.findNewestId(1L)).thenReturn(10L);
+
+        assertThrows(ValidationException.class, () -> readStateService.markRead(1L, 9L, Long.MAX_VALUE));
+        assertEquals(1, readStateService.getUnreadCount(9L, 1L));
+
+        assertEquals(0, readStateService.markRead(1L, 9L, 10L).getUnreadCount());
+        verify(messagingTemplate, times(1)).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void testSendDuringTheUnreadCountIsNotLost() {
+        send(10, 7);
+        send(11, 7);
+        // Message 12 arrives after the first count was read but before it is applied
+        when(messageRepository.countAfter(1L, 10L)).thenAnswer(invocation -> {
+            send(12, 7);
+            return stored(1, 11L);
+        }).thenReturn(stored(2, 12L));
+
+        assertEquals(2, readStateService.markRead(1L, 9L, 10L).getUnreadCount());
+        verify(messageRepository, times(2)).countAfter(1L, 10L);
+        assertEquals(2, readStateService.getUnreadCount(9L, 1L));
+    }
+
+    @Test
+    void testSendAlreadyInTheUnreadCountIsNotCountedTwice() {
+        send(10, 7);
+        // The tail already holds 11 when the read counts, but its send is only processed afterwards
+        when(recentMessageCache.getMessagesAfter(1L, 10L)).thenReturn(List.of(
+                MessageDTO.builder().id(11L).chatId(1L).senderId(7L).build()));
+
+        assertEquals(1, readStateService.markRead(1L, 9L, 10L).getUnreadCount());
+        send(11, 7);
+        send(12, 7);
+
+        assertEquals(2, readStateService.getUnreadCount(9L, 1L));
+    }
+
+    @Test
+    void testFlushWritesOnlyChangesSinceThePreviousFlush() {
+        send(10, 7);
+        send(11, 7);
+        readStateService.flush();
+
+        // Sender's position replaces the row; others only add their new unread messages
+        assertEquals(List.of(
+                new ChatReadState(7L, 1L, 11L, 0),
+                new ChatReadState(8L, 1L, 0L, 2),
+                new ChatReadState(9L, 1L, 0L, 2)), flushedRows());
+
+        clearInvocations(readStateRepository);
+        readStateService.flush();
+        verify(readStateRepository, never()).upsertBatch(anyList());
+    }
+
+    @Test
+    void testFailedFlushIsRetriedWithTheNextOne() {
+        send(10, 7);
+        doThrow(new RuntimeException("database down")).when(readStateRepository).upsertBatch(anyList());
+        readStateService.flush();
+
+        send(11, 7);
+        reset(readStateRepository);
+        readStateService.flush();
+
+        assertEquals(List.of(
+                new ChatReadState(7L, 1L, 11L, 0),
+                new ChatReadState(8L, 1L, 0L, 2),
+                new ChatReadState(9L, 1L, 0L, 2)), flushedRows());
+    }
+
+    @Test
+    void testCountersAreRebuiltFromStoredRows() {
+        doAnswer(invocation -> {
+            Consumer<ChatReadState> consumer = invocation.getArgument(0);
+            consumer.accept(new ChatReadState(9L, 1L, 20L, 4));
+            return null;
+        }).when(readStateRepository).streamAll(any());
+        ReflectionTestUtils.invokeMethod(readStateService, "load");
+
+        send(21, 7);
+        // At or below the stored position, so already read
+        send(15, 7);
+
+        assertEquals(5, readStateService.getUnreadCount(9L, 1L));
+    }
+
+    @Test
+    void testRelayModeMergesRowsFlushedByOtherNodes() {
+        ReflectionTestUtils.setField(readStateService, "brokerMode", "relay");
+        LocalDateTime loadedAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        when(readStateRepository.currentTime()).thenReturn(loadedAt, loadedAt.plusSeconds(2));
+        ReflectionTestUtils.invokeMethod(readStateService, "load");
+        send(10, 7);
+        doAnswer(invocation -> {
+            Consumer<ChatReadState> consumer = invocation.getArgument(1);
+            // 9's row holds this node's flushed send plus two from another node; 8 read there
+            consumer.accept(new ChatReadState(9L, 1L, 0L, 3));
+            consumer.accept(new ChatReadState(8L, 1L, 12L, 0));
+            // A chat this node has not seen yet
+            consumer.accept(new ChatReadState(9L, 2L, 0L, 5));
+            return null;
+        }).when(readStateRepository).streamChangedSince(any(), any());
+
+        readStateService.flush();
+
+        verify(readStateRepository).streamChangedSince(eq(loadedAt.minusSeconds(10)), any());
+        assertEquals(3, readStateService.getUnreadCount(9L, 1L));
+        assertEquals(0, readStateService.getUnreadCount(8L, 1L));
+        assertEquals(5, readStateService.getUnreadCount(9L, 2L));
+        // Local sends still count on top, except for messages already read elsewhere
+        send(11, 7);
+        assertEquals(4, readStateService.getUnreadCount(9L, 1L));
+        assertEquals(0, readStateService.getUnreadCount(8L, 1L));
+    }
+
+    @Test
+    void testUnflushedLocalReadIsNotOverwrittenByAnOlderRow() {
+        ReflectionTestUtils.setField(readStateService, "brokerMode", "relay");
+        when(readStateRepository.currentTime()).thenReturn(LocalDateTime.of(2024, 1, 1, 12, 0));
+        ReflectionTestUtils.invokeMethod(readStateService, "load");
+        send(10, 7);
+        send(11, 7);
+        doThrow(new RuntimeException("database down")).when(readStateRepository).upsertBatch(anyList());
+        when(messageRepository.countAfter(1L, 11L)).thenReturn(stored(0, null));
+        when(messageRepository.findNewestId(1L)).thenReturn(11L);
+        readStateService.markRead(1L, 9L, 11L);
+        doAnswer(invocation -> {
+            Consumer<ChatReadState> consumer = invocation.getArgument(1);
+            consumer.accept(new ChatReadState(9L, 1L, 0L, 2));
+            consumer.accept(new ChatReadState(8L, 1L, 0L, 1));
+            return null;
+        }).when(readStateRepository).streamChangedSince(any(), any());
+
+        readStateService.flush();
+
+        assertEquals(0, readStateService.getUnreadCount(9L, 1L));
+        // 8's two sends failed to flush and are still pending, so they go on top of the row
+        assertEquals(3, readStateService.getUnreadCount(8L, 1L));
+    }
+
+    @Test
+    void testSingleNodeModeNeverRefreshes() {
+        send(10, 7);
+        readStateService.flush();
+
+        verify(readStateRepository, never()).currentTime();
+        verify(readStateRepository, never()).streamChangedSince(any(), any());
+    }
+}
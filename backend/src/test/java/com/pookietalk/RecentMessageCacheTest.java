@@ -0,0 +1,213 @@
+package com.pookietalk;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.dto.MessagePageDTO;
+import com.pookietalk.services.RecentMessageCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecentMessageCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RecentMessageCache cache(int capacity, long maxBytes) {
+        return new RecentMessageCache(capacity, maxBytes, Duration.ofMinutes(5), meterRegistry);
+    }
+
+    private static MessageDTO message(long id) {
+        return message(id, "m" + id);
+    }
+
+    private static MessageDTO message(long id, String content) {
+        return new MessageDTO(id, 1L, 2L, content, LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+
+    private static List<MessageDTO> messages(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId).mapToObj(RecentMessageCacheTest::message).toList();
+    }
+
+    private static List<Long> ids(List<MessageDTO> messages) {
+        return messages.stream().map(MessageDTO::getId).toList();
+    }
+
+    private static RecentMessageCache loaded(RecentMessageCache cache, List<MessageDTO> oldestFirst, boolean olderInDatabase) {
+        cache.beginLoad(1L);
+        cache.completeLoad(1L, oldestFirst, olderInDatabase);
+        return cache;
+    }
+
+    @Test
+    void testRingKeepsTheNewestMessagesInOrderAcrossWrapAround() {
+        RecentMessageCache cache = loaded(cache(3, 1 << 20), messages(1, 3), false);
+
+        // Seven more sends wrap the ring's start index round more than twice
+        for (long id = 4; id <= 10; id++) {
+            cache.append(message(id));
+            MessagePageDTO page = cache.getLatestPage(1L, 3);
+            assertEquals(List.of(id - 2, id - 1, id), ids(page.getMessages()));
+        }
+        MessagePageDTO page = cache.getLatestPage(1L, 2);
+        assertEquals(List.of(9L, 10L), ids(page.getMessages()));
+        assertTrue(page.isHasMore());
+        assertEquals(9L, page.getNextCursor());
+    }
+
+    @Test
+    void testOutOfOrderAndDuplicateSendsAreSortedIntoPlace() {
+        RecentMessageCache cache = loaded(cache(4, 1 << 20), messages(10, 10), false);
+
+        cache.append(message(13));
+        cache.append(message(11));
+        cache.append(message(13));
+        cache.append(message(12));
+
+        assertEquals(List.of(10L, 11L, 12L, 13L), ids(cache.getLatestPage(1L, 10).getMessages()));
+
+        // Full ring: a late send in the middle pushes out the oldest; one older than everything is dropped
+        cache.append(message(20));
+        cache.append(message(14));
+        cache.append(message(5));
+        assertEquals(List.of(12L, 13L, 14L, 20L), ids(cache.getLatestPage(1L, 10).getMessages()));
+    }
+
+    @Test
+    void testEvictingFromTheRingMarksOlderHistory() {
+        RecentMessageCache cache = loaded(cache(3, 1 << 20), messages(1, 3), false);
+
+        MessagePageDTO complete = cache.getLatestPage(1L, 3);
+        assertFalse(complete.isHasMore());
+        assertNull(complete.getNextCursor());
+        assertEquals(List.of(1L, 2L, 3L), ids(cache.getMessagesAfter(1L, 0)));
+
+        cache.append(message(4));
+
+        MessagePageDTO page = cache.getLatestPage(1L, 3);
+        assertEquals(List.of(2L, 3L, 4L), ids(page.getMessages()));
+        assertTrue(page.isHasMore());
+        assertEquals(2L, page.getNextCursor());
+        // Message 1 is gone, so a gap reaching back past message 2 is no longer known
+        assertNull(cache.getMessagesAfter(1L, 0));
+        assertEquals(List.of(3L, 4L), ids(cache.getMessagesAfter(1L, 2)));
+    }
+
+    @Test
+    void testSendsDuringTheLoadAreMergedWithIt() {
+        RecentMessageCache cache = cache(5, 1 << 20);
+        // Not cached yet: sends are ignored and reads miss
+        cache.append(message(1));
+        assertNull(cache.getLatestPage(1L, 5));
+
+        cache.beginLoad(1L);
+        // Sent after the database read started; 4 also made it into the read, 5 did not
+        cache.append(message(4));
+        cache.append(message(5));
+        assertNull(cache.getLatestPage(1L, 5), "served before the load completed");
+        assertNull(cache.getMessagesAfter(1L, 3));
+
+        cache.completeLoad(1L, messages(2, 4), true);
+
+        MessagePageDTO page = cache.getLatestPage(1L, 5);
+        assertEquals(List.of(2L, 3L, 4L, 5L), ids(page.getMessages()));
+        assertTrue(page.isHasMore());
+    }
+
+    @Test
+    void testConcurrentSendsDuringTheLoadAreNotLost() throws Exception {
+        RecentMessageCache cache = cache(200, 1 << 20);
+        cache.beginLoad(1L);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<?>> sends = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long first = 101 + t * 25;
+                sends.add(executor.submit(() -> {
+                    go.await();
+                    for (long id = first; id < first + 25; id++) {
+                        cache.append(message(id));
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            cache.completeLoad(1L, messages(1, 100), false);
+            for (Future<?> send : sends) {
+                send.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        MessagePageDTO page = cache.getLatestPage(1L, 200);
+        assertEquals(LongStream.rangeClosed(1, 200).boxed().toList(), ids(page.getMessages()));
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void testTailsAreEvictedByEstimatedHeapUse() {
+        // About 2 KB per full 5-message tail, so a 10 KB budget holds a handful of chats
+        RecentMessageCache cache = cache(5, 10_000);
+        for (long chatId = 1; chatId <= 20; chatId++) {
+            cache.beginLoad(chatId);
+            List<MessageDTO> oldestFirst = new ArrayList<>();
+            for (long id = 1; id <= 5; id++) {
+                oldestFirst.add(new MessageDTO(chatId * 100 + id, chatId, 2L, "x".repeat(50), LocalDateTime.now()));
+            }
+            cache.completeLoad(chatId, oldestFirst, false);
+        }
+        Cache<?, ?> tails = (Cache<?, ?>) ReflectionTestUtils.getField(cache, "tails");
+        tails.cleanUp();
+
+        double heapBytes = meterRegistry.get("messages.recent.heap.bytes").gauge().value();
+        assertTrue(heapBytes > 0 && heapBytes <= 10_000, "estimated heap " + heapBytes);
+        assertTrue(tails.estimatedSize() < 20);
+        long cached = LongStream.rangeClosed(1, 20).filter(chatId -> cache.getLatestPage(chatId, 5) != null).count();
+        assertEquals(tails.estimatedSize(), cached);
+
+        // A send that grows a tail past the whole budget gets it evicted rather than kept
+        long survivor = LongStream.rangeClosed(1, 20).filter(chatId -> cache.getLatestPage(chatId, 5) != null)
+                .findFirst().orElseThrow();
+        cache.append(new MessageDTO(survivor * 100 + 6, survivor, 2L, "x".repeat(10_000), LocalDateTime.now()));
+        tails.cleanUp();
+        assertNull(cache.getLatestPage(survivor, 5));
+    }
+
+    @Test
+    void testTailExpiresDespiteOngoingSends() throws InterruptedException {
+        RecentMessageCache cache = loaded(new RecentMessageCache(3, 1 << 20, Duration.ofMillis(200), meterRegistry),
+                messages(1, 3), false);
+
+        // Local sends keep arriving for twice the TTL; remote ones would never be appended
+        long id = 4;
+        long deadline = System.nanoTime() + Duration.ofMillis(400).toNanos();
+        while (System.nanoTime() < deadline) {
+            cache.append(message(id++));
+            Thread.sleep(10);
+        }
+
+        assertNull(cache.getLatestPage(1L, 3));
+        assertNull(cache.getMessagesAfter(1L, 0));
+    }
+
+    @Test
+    void testZeroBudgetDisablesTheCache() {
+        RecentMessageCache cache = loaded(cache(50, 0), messages(1, 3), false);
+
+        assertFalse(cache.covers(1));
+        assertNull(cache.getLatestPage(1L, 1));
+    }
+}
@@ -0,0 +1,92 @@
+package com.pookietalk;
+
+import com.pookietalk.exceptions.RateLimitExceededException;
+import com.pookietalk.models.Role;
+import com.pookietalk.services.SendRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SendRateLimiterTest {
+
+    private static SendRateLimiter limiter(double userPerSecond, int userBurst) {
+        return new SendRateLimiter(true, userPerSecond, userBurst, 100, 50, 1000, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testBurstIsAllowedThenSendsAreRejectedWithRetryAfter() {
+        SendRateLimiter limiter = limiter(0.1, 3);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(1L, Role.USER);
+        }
+        RateLimitExceededException rejected = assertThrows(RateLimitExceededException.class,
+                () -> limiter.acquire(1L, Role.USER));
+
+        // One send every 10 seconds
+        assertTrue(rejected.getRetryAfterSeconds() > 0 && rejected.getRetryAfterSeconds() <= 10);
+        // Other users and roles have their own buckets and limits
+        limiter.acquire(2L, Role.USER);
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire(3L, Role.ADMIN);
+        }
+    }
+
+    @Test
+    void testBucketRefillsAtTheSustainedRate() throws InterruptedException {
+        SendRateLimiter limiter = limiter(200, 1);
+
+        limiter.acquire(1L, Role.USER);
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(1L, Role.USER));
+        Thread.sleep(20);
+        limiter.acquire(1L, Role.USER);
+    }
+
+    @Test
+    void testConcurrentSendersNeverExceedTheBurst() throws Exception {
+        SendRateLimiter limiter = limiter(0.001, 100);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        try {
+                            limiter.acquire(1L, Role.USER);
+                            accepted.incrementAndGet();
+                        } catch (RateLimitExceededException ignored) {
+                            // expected once the bucket is empty
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertEquals(100, accepted.get());
+    }
+
+    @Test
+    void testDisabledLimiterAcceptsEverything() {
+        SendRateLimiter limiter = new SendRateLimiter(false, 0.1, 1, 0.1, 1, 1000, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(1L, null);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.pookietalk;
+
+import com.pookietalk.dto.TypingEventDTO;
+import com.pookietalk.exceptions.NotChatMemberException;
+import com.pookietalk.services.ChatMembershipIndex;
+import com.pookietalk.services.TypingIndicatorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class TypingIndicatorServiceTest {
+
+    @Mock
+    private ChatMembershipIndex chatMembershipIndex;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @InjectMocks
+    private TypingIndicatorService typingIndicatorService = new TypingIndicatorService(Duration.ofMinutes(1), 1000);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testTypingFramesAreThrottledAndCoalescedPerChat() {
+        for (int i = 0; i < 50; i++) {
+            typingIndicatorService.onTyping(1L, 7L);
+        }
+        typingIndicatorService.onTyping(1L, 8L);
+
+        typingIndicatorService.flush();
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/chats/1/typing"), payload.capture());
+        assertEquals(new TypingEventDTO(1L, Set.of(7L, 8L)), payload.getValue());
+
+        // Nothing new since the last flush, and repeats inside the interval stay suppressed
+        typingIndicatorService.onTyping(1L, 7L);
+        typingIndicatorService.flush();
+        verifyNoMoreInteractions(messagingTemplate);
+    }
+
+    @Test
+    void testNonMembersAreRejected() {
+        doThrow(new NotChatMemberException("not a member")).when(chatMembershipIndex).requireMember(1L, 9L);
+
+        assertThrows(NotChatMemberException.class, () -> typingIndicatorService.onTyping(1L, 9L));
+        typingIndicatorService.flush();
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+}
@@ -1,25 +1,34 @@
 package com.pookietalk;
 
+import com.pookietalk.dto.CursorPageDTO;
 import com.pookietalk.dto.UserDTO;
 import com.pookietalk.exceptions.UserNotFoundException;
 import com.pookietalk.models.Role;
 import com.pookietalk.models.User;
 import com.pookietalk.repositories.UserRepository;
+import com.pookietalk.services.TokenEpochService;
+import com.pookietalk.services.UserCache;
 import com.pookietalk.services.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class UserServiceTest {
@@ -27,6 +36,9 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private UserCache userCache = new UserCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
     @InjectMocks
     private UserService userService;
 
@@ -135,4 +147,76 @@ public class UserServiceTest {
 
         assertThrows(UsernameNotFoundException.class, () -> userService.loadUserByUsername("ghost"));
     }
+
+    @Test
+    void testRepeatedLookupsOnSendPathHitRepositoryOnce() {
+        User user = new User(1L, "testuser", "encodedpassword", "test@example.com", Role.USER);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        // MessageService.sendMessage resolves the sender once per message
+        for (int i = 0; i < 100; i++) {
+            assertEquals("testuser", userService.getUserById(1L).getUsername());
+        }
+        // Loading by id also fills the username index used by authentication
+        assertEquals(user, userService.loadUserByUsername("testuser"));
+
+        verify(userRepository, times(1)).findById(1L);
+        verify(userRepository, times(0)).findByUsername("testuser");
+    }
+
+    @Test
+    void testUpdatedUserIsReloaded() {
+        User user = new User(1L, "testuser", "encodedpassword", "test@example.com", Role.USER);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        userService.getUserById(1L);
+        // Revocation bumps the row's token epoch, the one user update this backend makes
+        new TokenEpochService(userRepository, userCache, Duration.ofSeconds(30), 100).revokeTokens(1L);
+        userService.getUserById(1L);
+        userService.loadUserByUsername("testuser");
+
+        verify(userRepository, times(2)).findById(1L);
+        verify(userRepository, times(0)).findByUsername("testuser");
+    }
+
+    @Test
+    void testRevocationDuringALoadIsNotOverwrittenByIt() {
+        TokenEpochService tokenEpochService = new TokenEpochService(userRepository, userCache, Duration.ofSeconds(30), 100);
+        User stale = new User(1L, "testuser", "encodedpassword", "test@example.com", Role.USER);
+        User fresh = new User(1L, "testuser", "encodedpassword", "test@example.com", Role.USER);
+        fresh.setTokenEpoch(1L);
+        // The revocation commits after each first read, before its result is cached
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            tokenEpochService.revokeTokens(1L);
+            return Optional.of(stale);
+        }).thenReturn(Optional.of(fresh));
+        when(userRepository.findActiveTokenEpoch(1L)).thenAnswer(invocation -> {
+            tokenEpochService.revokeTokens(1L);
+            return Optional.of(0L);
+        }).thenReturn(Optional.of(1L));
+
+        assertSame(stale, userCache.getById(1L, userRepository::findById).orElseThrow());
+        assertSame(fresh, userCache.getById(1L, userRepository::findById).orElseThrow());
+        assertSame(fresh, userCache.getByUsername("testuser", userRepository::findByUsername).orElseThrow());
+        verify(userRepository, times(2)).findById(1L);
+
+        assertTrue(tokenEpochService.isCurrent(1L, 0L));
+        assertFalse(tokenEpochService.isCurrent(1L, 0L));
+        assertTrue(tokenEpochService.isCurrent(1L, 1L));
+    }
+
+    @Test
+    void testUserPageReturnsCursorWhenMoreRowsExist() {
+        when(userRepository.findPageAfter(10L, Limit.of(3))).thenReturn(List.of(
+                new UserDTO(11L, "a", "a@example.com"),
+                new UserDTO(12L, "b", "b@example.com"),
+                new UserDTO(13L, "c", "c@example.com")));
+
+        CursorPageDTO<UserDTO> page = userService.getUserPage(10L, 2);
+
+        assertEquals(List.of(11L, 12L), page.getItems().stream().map(UserDTO::getId).toList());
+        assertTrue(page.isHasMore());
+        assertEquals(12L, page.getNextCursor());
+    }
 }
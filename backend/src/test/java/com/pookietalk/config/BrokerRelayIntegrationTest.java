@@ -0,0 +1,189 @@
+package com.pookietalk.config;
+
+import com.pookietalk.PookieTalkApplication;
+import com.pookietalk.dto.AuthRequestDTO;
+import com.pookietalk.dto.AuthResponseDTO;
+import com.pookietalk.dto.ChatDTO;
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.services.AuthService;
+import com.pookietalk.services.ChatService;
+import com.pookietalk.services.MessageBroadcastService;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two backend nodes in one JVM, both relaying to an in-process Artemis broker, and checks
+ * that a message published on one node reaches a STOMP subscriber connected to the other.
+ */
+class BrokerRelayIntegrationTest {
+
+    private static EmbeddedActiveMQ broker;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startBrokerAndNodes() throws Exception {
+        int stompPort = freePort();
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        configuration.setJMXManagementEnabled(false);
+        configuration.addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + stompPort
+                + "?protocols=STOMP;anycastPrefix=/queue/;multicastPrefix=/topic/");
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        broker.start();
+
+        nodeA = startNode("a", 1, stompPort);
+        nodeB = startNode("b", 2, stompPort);
+    }
+
+    @AfterAll
+    static void stopAll() throws Exception {
+        if (nodeA != null) {
+            nodeA.close();
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (broker != null) {
+            broker.stop();
+        }
+    }
+
+    @Test
+    void testMessagePublishedOnOneNodeReachesSubscriberOnTheOther() throws Exception {
+        // The subscriber's node checks its membership, so the chat has to exist there
+        AuthResponseDTO subscriber = nodeA.getBean(AuthService.class).register(AuthRequestDTO.builder()
+                .username("relay-subscriber")
+                .password("Relay#Test1")
+                .email("relay-subscriber@example.com")
+                .build());
+        ChatDTO chat = new ChatDTO();
+        chat.setChatName("relay");
+        chat.setParticipantIds(Set.of(subscriber.getId()));
+        long chatId = nodeA.getBean(ChatService.class).createChat(chat).getId();
+
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        ThreadPoolTaskScheduler receiptScheduler = new ThreadPoolTaskScheduler();
+        receiptScheduler.initialize();
+        client.setTaskScheduler(receiptScheduler);
+        String url = "ws://localhost:" + port(nodeA) + "/ws/websocket";
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + subscriber.getToken());
+        StompSession session = client.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders,
+                        new StompSessionHandlerAdapter() { })
+                .get(10, TimeUnit.SECONDS);
+
+        BlockingQueue<Long> arrivals = new LinkedBlockingQueue<>();
+        session.setAutoReceipt(true);
+        CountDownLatch subscribed = new CountDownLatch(1);
+        session.subscribe(MessageBroadcastService.chatTopic(chatId), new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                if (new String((byte[]) payload, StandardCharsets.UTF_8).contains("cross-node")) {
+                    arrivals.add(System.nanoTime());
+                }
+            }
+        }).addReceiptTask(subscribed::countDown);
+        assertTrue(subscribed.await(10, TimeUnit.SECONDS), "broker did not confirm the subscription");
+
+        MessageBroadcastService publisher = nodeB.getBean(MessageBroadcastService.class);
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            long sent = System.nanoTime();
+            publisher.broadcast(MessageDTO.builder()
+                    .id((long) i)
+                    .chatId(chatId)
+                    .senderId(1L)
+                    .content("cross-node " + i)
+                    .timestamp(LocalDateTime.now())
+                    .build());
+            Long received = arrivals.poll(5, TimeUnit.SECONDS);
+            assertNotNull(received, "message " + i + " was not delivered across nodes");
+            latencies.add(TimeUnit.NANOSECONDS.toMicros(received - sent));
+        }
+        session.disconnect();
+        receiptScheduler.shutdown();
+
+        Collections.sort(latencies);
+        long p50 = latencies.get(latencies.size() / 2);
+        assertTrue(p50 < TimeUnit.SECONDS.toMicros(1), "cross-node p50 delivery latency was " + p50 + " us");
+    }
+
+    private static ConfigurableApplicationContext startNode(String name, int nodeId, int stompPort) throws InterruptedException {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(PookieTalkApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--id.node-id=" + nodeId,
+                "--spring.datasource.url=jdbc:h2:mem:relay-node-" + name + ";DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.flyway.enabled=false",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                // Both nodes would otherwise open the same on-disk index
+                "--chat.search.enabled=false",
+                "--security.bcrypt.strength=4",
+                "--chat.broker.mode=relay",
+                "--chat.broker.relay.host=127.0.0.1",
+                "--chat.broker.relay.port=" + stompPort);
+
+        // The relay's system session connects asynchronously; publishing before it is up is dropped
+        AbstractBrokerMessageHandler relay = context.getBean("stompBrokerRelayMessageHandler", AbstractBrokerMessageHandler.class);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while (!relay.isBrokerAvailable()) {
+            assertTrue(System.nanoTime() < deadline, "node " + name + " could not reach the broker");
+            Thread.sleep(50);
+        }
+        return context;
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
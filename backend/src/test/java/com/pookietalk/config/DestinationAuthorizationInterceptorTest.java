@@ -0,0 +1,105 @@
+package com.pookietalk.config;
+
+import com.pookietalk.exceptions.NotChatMemberException;
+import com.pookietalk.models.Role;
+import com.pookietalk.models.User;
+import com.pookietalk.services.ChatMembershipIndex;
+import com.pookietalk.services.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.security.Principal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class DestinationAuthorizationInterceptorTest {
+
+    @Mock
+    private ChatMembershipIndex chatMembershipIndex;
+
+    @Mock
+    private MessageChannel channel;
+
+    private DestinationAuthorizationInterceptor interceptor;
+    private Principal member;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        interceptor = new DestinationAuthorizationInterceptor(chatMembershipIndex);
+        User user = new User(7L, "member", null, null, Role.USER);
+        member = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String destination, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        accessor.setUser(user);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    @Test
+    void testChatTopicsRequireMembership() {
+        interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/chats/42", member), channel);
+        interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/chats/42/typing", member), channel);
+        interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/chats/42/read", member), channel);
+        verify(chatMembershipIndex, times(3)).requireMember(42L, 7L);
+
+        doThrow(new NotChatMemberException("not a member")).when(chatMembershipIndex).requireMember(43L, 7L);
+        assertThrows(NotChatMemberException.class,
+                () -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/chats/43/read", member), channel));
+    }
+
+    @Test
+    void testUnauthenticatedSubscriptionsAreRefused() {
+        assertThrows(AccessDeniedException.class,
+                () -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/chats/42", null), channel));
+        assertThrows(AccessDeniedException.class,
+                () -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/presence/7", null), channel));
+        verify(chatMembershipIndex, never()).requireMember(anyLong(), anyLong());
+    }
+
+    @Test
+    void testOnlyKnownDestinationsCanBeSubscribed() {
+        interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/presence/8", member), channel);
+        interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/user/queue/errors", member), channel);
+
+        for (String destination : new String[]{"/topic/chats/*", "/topic/chats/42/other", "/topic/presence/*",
+                "/topic/chats/99999999999999999999", "/queue/errors-user123", "/topic/simp-user-registry"}) {
+            assertThrows(AccessDeniedException.class,
+                    () -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, destination, member), channel),
+                    destination);
+        }
+        verify(chatMembershipIndex, never()).requireMember(anyLong(), anyLong());
+    }
+
+    @Test
+    void testSendsMustGoThroughTheApplication() {
+        interceptor.preSend(frame(StompCommand.SEND, "/app/chats/42/send", member), channel);
+
+        assertThrows(AccessDeniedException.class,
+                () -> interceptor.preSend(frame(StompCommand.SEND, "/topic/chats/42", member), channel));
+    }
+
+    @Test
+    void testConnectWithoutTokenIsRefused() {
+        WebSocketAuthInterceptor authInterceptor = new WebSocketAuthInterceptor(mock(JwtService.class),
+                mock(JwtAuthenticationResolver.class));
+
+        assertThrows(BadCredentialsException.class,
+                () -> authInterceptor.preSend(frame(StompCommand.CONNECT, null, null), channel));
+    }
+}
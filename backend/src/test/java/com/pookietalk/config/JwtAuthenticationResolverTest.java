@@ -0,0 +1,123 @@
+package com.pookietalk.config;
+
+import com.pookietalk.models.Role;
+import com.pookietalk.models.User;
+import com.pookietalk.services.JwtService;
+import com.pookietalk.services.TokenEpochService;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationResolverTest {
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    @Mock
+    private TokenEpochService tokenEpochService;
+
+    private JwtService jwtService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", "aVeryLongAndSecureJwtSecretKeyThatIsAtLeast32BytesLong");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedTokenCacheSize", 100L);
+        ReflectionTestUtils.setField(jwtService, "verifiedTokenCacheTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        user = new User(42L, "testuser", "hashedpassword", "test@example.com", Role.ADMIN);
+        user.setTokenEpoch(3);
+    }
+
+    private Claims claimsFor(User user) {
+        return jwtService.parseToken(jwtService.generateToken(user));
+    }
+
+    @Test
+    void statelessModeBuildsPrincipalFromClaimsWithoutLoadingUser() {
+        JwtAuthenticationResolver resolver = new JwtAuthenticationResolver(jwtService, userDetailsService, tokenEpochService, true);
+        when(tokenEpochService.isCurrent(42L, 3L)).thenReturn(true);
+
+        UsernamePasswordAuthenticationToken authentication = resolver.resolve(claimsFor(user));
+
+        assertNotNull(authentication);
+        User principal = (User) authentication.getPrincipal();
+        assertEquals(42L, principal.getId());
+        assertEquals("testuser", principal.getUsername());
+        assertTrue(authentication.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void statelessModeRejectsRevokedEpoch() {
+        JwtAuthenticationResolver resolver = new JwtAuthenticationResolver(jwtService, userDetailsService, tokenEpochService, true);
+        when(tokenEpochService.isCurrent(42L, 3L)).thenReturn(false);
+
+        assertNull(resolver.resolve(claimsFor(user)));
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void defaultModeLoadsUser() {
+        JwtAuthenticationResolver resolver = new JwtAuthenticationResolver(jwtService, userDetailsService, tokenEpochService, false);
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(user);
+        when(tokenEpochService.isCurrent(42L, 3L)).thenReturn(true);
+
+        UsernamePasswordAuthenticationToken authentication = resolver.resolve(claimsFor(user));
+
+        assertNotNull(authentication);
+        assertSame(user, authentication.getPrincipal());
+    }
+
+    @Test
+    void defaultModeRejectsRevokedEpoch() {
+        JwtAuthenticationResolver resolver = new JwtAuthenticationResolver(jwtService, userDetailsService, tokenEpochService, false);
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(user);
+        when(tokenEpochService.isCurrent(42L, 3L)).thenReturn(false);
+
+        assertNull(resolver.resolve(claimsFor(user)));
+    }
+
+    @Test
+    void tokenWithoutEpochClaimCountsAsEpochZero() {
+        JwtAuthenticationResolver resolver = new JwtAuthenticationResolver(jwtService, userDetailsService, tokenEpochService, true);
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(user);
+        // Issued before tokens carried claims
+        Claims legacy = jwtService.parseToken(jwtService.generateToken(
+                org.springframework.security.core.userdetails.User.withUsername("testuser").password("x").build()));
+
+        when(tokenEpochService.isCurrent(42L, 0L)).thenReturn(true);
+        assertNotNull(resolver.resolve(legacy));
+
+        when(tokenEpochService.isCurrent(42L, 0L)).thenReturn(false);
+        assertNull(resolver.resolve(legacy));
+    }
+
+    @Test
+    void unknownRoleClaimIsRejected() {
+        JwtAuthenticationResolver resolver = new JwtAuthenticationResolver(jwtService, userDetailsService, tokenEpochService, true);
+        when(tokenEpochService.isCurrent(42L, 3L)).thenReturn(true);
+        Claims claims = jwtService.parseToken(jwtService.generateToken(
+                Map.of(JwtService.CLAIM_USER_ID, 42L, JwtService.CLAIM_ROLE, "SUPERUSER", JwtService.CLAIM_TOKEN_EPOCH, 3L),
+                org.springframework.security.core.userdetails.User.withUsername("testuser").password("x").build()));
+
+        assertNull(resolver.resolve(claims));
+    }
+}
@@ -0,0 +1,168 @@
+package com.pookietalk.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pookietalk.PookieTalkApplication;
+import com.pookietalk.dto.ChatDTO;
+import com.pookietalk.services.ChatService;
+import com.pookietalk.services.MessageBroadcastService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Boots one node on H2, drives a login, a send, a history read and a STOMP subscription, and
+ * checks that the resulting series show up on the unauthenticated Prometheus scrape of the
+ * management port, and that the public port does not serve it.
+ */
+class MetricsIntegrationTest {
+
+    private static final String PASSWORD = "Metrics#Passw0rd";
+
+    private static ConfigurableApplicationContext node;
+    private static final HttpClient http = HttpClient.newHttpClient();
+    private static final ObjectMapper json = new ObjectMapper();
+
+    @BeforeAll
+    static void startNode() {
+        node = new SpringApplicationBuilder(PookieTalkApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.flyway.enabled=false",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--chat.search.enabled=false",
+                "--security.bcrypt.strength=4");
+    }
+
+    @AfterAll
+    static void stopNode() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    void testScrapeExposesServiceBrokerAndPersistenceMetrics() throws Exception {
+        String credentials = "{\"username\":\"metrics\",\"password\":\"" + PASSWORD + "\",\"confirmPassword\":\""
+                + PASSWORD + "\",\"email\":\"metrics@example.com\"}";
+        assertEquals(200, post("/api/auth/register", credentials, null).statusCode());
+        HttpResponse<String> login = post("/api/auth/login", credentials, null);
+        assertEquals(200, login.statusCode());
+        JsonNode auth = json.readTree(login.body());
+        String token = auth.get("token").asText();
+        long userId = auth.get("id").asLong();
+
+        ChatDTO chat = new ChatDTO();
+        chat.setChatName("metrics");
+        chat.setParticipantIds(Set.of(userId));
+        long chatId = node.getBean(ChatService.class).createChat(chat).getId();
+
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+        StompSession session = stompClient.connectAsync("ws://localhost:" + port() + "/ws/websocket",
+                        new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() { })
+                .get(10, TimeUnit.SECONDS);
+        session.subscribe(MessageBroadcastService.chatTopic(chatId), new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+            }
+        });
+
+        String message = "{\"chatId\":" + chatId + ",\"senderId\":" + userId + ",\"content\":\"hello\"}";
+        assertEquals(200, post("/api/messages", message, token).statusCode());
+        assertEquals(200, get("/api/messages/chat/" + chatId, token).statusCode());
+
+        // The subscription is applied asynchronously on the inbound channel
+        String scrape = "";
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!scrape.contains("websocket_subscriptions 1.0") && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            HttpResponse<String> response = get(managementPort(), "/actuator/prometheus", null);
+            assertEquals(200, response.statusCode());
+            // The exposition format ends label sets with a comma; drop it to keep the checks readable
+            scrape = response.body().replace(",}", "}");
+        }
+        session.disconnect();
+
+        assertTrue(scrape.contains("websocket_subscriptions 1.0"), "subscription gauge");
+        assertTrue(scrape.contains("websocket_sessions{transport=\"websocket\"} 1.0"), "session gauge");
+        assertTrue(scrape.contains("executor_queued_tasks{name=\"clientInboundChannelExecutor\"}"), "inbound queue depth");
+        assertTrue(scrape.contains("executor_queued_tasks{name=\"clientOutboundChannelExecutor\"}"), "outbound queue depth");
+        assertTrue(scrape.contains("auth_authenticate_seconds_count{"), "login timer");
+        assertTrue(scrape.contains("messages_send_seconds_bucket{"), "send timer with histogram");
+        assertTrue(scrape.contains("messages_history_seconds_count{"), "history timer");
+        assertTrue(scrape.contains("security_jwt_filter_seconds_count{outcome=\"authenticated\"}"), "JWT filter timer");
+        assertTrue(scrape.contains("hikaricp_connections_active{"), "Hikari pool");
+        assertTrue(scrape.matches("(?s).*http_server_requests_statements_count\\{method=\"GET\",uri=\"/api/messages/chat/\\{chatId}\"} 1.0.*"),
+                "statements per request");
+        assertFalse(scrape.contains("http_server_requests_statements_sum{method=\"GET\",uri=\"/api/messages/chat/{chatId}\"} 0.0"),
+                "history read ran no statements");
+
+        // Not on the public port, even with a token
+        assertNotEquals(200, get("/actuator/prometheus", null).statusCode());
+        assertNotEquals(200, get("/actuator/prometheus", token).statusCode());
+        assertEquals(200, get(managementPort(), "/actuator/health", null).statusCode());
+    }
+
+    private static HttpResponse<String> post(String path, String body, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port() + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> get(String path, String token) throws Exception {
+        return get(port(), path, token);
+    }
+
+    private static HttpResponse<String> get(int port, String path, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET();
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int port() {
+        return ((ServletWebServerApplicationContext) node).getWebServer().getPort();
+    }
+
+    private static int managementPort() {
+        return node.getEnvironment().getRequiredProperty("local.management.port", Integer.class);
+    }
+}
@@ -0,0 +1,184 @@
+package com.pookietalk.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.pookietalk.PookieTalkApplication;
+import com.pookietalk.dto.AuthRequestDTO;
+import com.pookietalk.dto.AuthResponseDTO;
+import com.pookietalk.dto.ChatDTO;
+import com.pookietalk.services.AuthService;
+import com.pookietalk.services.ChatService;
+import com.pookietalk.services.MessageBroadcastService;
+import com.pookietalk.utils.CborWireFormat;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two members of one chat, one on the default JSON format and one that negotiated CBOR. A CBOR
+ * SEND from the second must reach both, each in its own format.
+ */
+class WireFormatIntegrationTest {
+
+    private record Frame(StompHeaders headers, byte[] payload) {
+    }
+
+    private static ConfigurableApplicationContext node;
+
+    @BeforeAll
+    static void startNode() {
+        node = new SpringApplicationBuilder(PookieTalkApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:wire-format;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.flyway.enabled=false",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--chat.search.enabled=false",
+                "--security.bcrypt.strength=4");
+    }
+
+    @AfterAll
+    static void stopNode() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    void testEachSessionReceivesItsNegotiatedFormat() throws Exception {
+        AuthResponseDTO jsonUser = register("json-user");
+        AuthResponseDTO cborUser = register("cbor-user");
+        ChatDTO chat = new ChatDTO();
+        chat.setChatName("wire-format");
+        chat.setParticipantIds(Set.of(jsonUser.getId(), cborUser.getId()));
+        long chatId = node.getBean(ChatService.class).createChat(chat).getId();
+
+        BlockingQueue<Frame> jsonFrames = new LinkedBlockingQueue<>();
+        BlockingQueue<Frame> cborFrames = new LinkedBlockingQueue<>();
+        StompSession jsonSession = connect(jsonUser.getToken(), null, chatId, jsonFrames);
+        StompSession cborSession = connect(cborUser.getToken(), "application/cbor", chatId, cborFrames);
+        // The simple broker sends no receipts; give both subscriptions time to register
+        Thread.sleep(500);
+
+        StompHeaders send = new StompHeaders();
+        send.setDestination("/app/chats/" + chatId + "/send");
+        send.setContentType(CborWireFormat.MIME_TYPE);
+        cborSession.send(send, new CBORMapper().writeValueAsBytes(Map.of("content", "sent as cbor")));
+
+        Frame asJson = jsonFrames.poll(10, TimeUnit.SECONDS);
+        assertNotNull(asJson, "JSON session received nothing");
+        assertTrue(MimeTypeUtils.APPLICATION_JSON.equalsTypeAndSubtype(asJson.headers().getContentType()));
+        JsonNode jsonBody = new ObjectMapper().readTree(asJson.payload());
+        assertEquals("sent as cbor", jsonBody.get("content").textValue());
+        assertTrue(jsonBody.get("timestamp").isTextual());
+
+        Frame asCbor = cborFrames.poll(10, TimeUnit.SECONDS);
+        assertNotNull(asCbor, "CBOR session received nothing");
+        assertTrue(CborWireFormat.MIME_TYPE.equalsTypeAndSubtype(asCbor.headers().getContentType()));
+        JsonNode cborBody = new CBORMapper().readTree(asCbor.payload());
+        assertEquals("sent as cbor", cborBody.get("content").textValue());
+        assertEquals(jsonBody.get("id").longValue(), cborBody.get("id").longValue());
+        assertTrue(cborBody.get("timestamp").isIntegralNumber());
+        assertTrue(asCbor.payload().length < asJson.payload().length);
+
+        jsonSession.disconnect();
+        cborSession.disconnect();
+    }
+
+    private static AuthResponseDTO register(String username) {
+        return node.getBean(AuthService.class).register(AuthRequestDTO.builder()
+                .username(username)
+                .password("Wire#Format1")
+                .email(username + "@example.com")
+                .build());
+    }
+
+    private static StompSession connect(String token, String accept, long chatId, BlockingQueue<Frame> frames)
+            throws Exception {
+        WebSocketStompClient client = new WebSocketStompClient(new BinaryFramesClient());
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+        if (accept != null) {
+            connectHeaders.add("accept", accept);
+        }
+        int port = ((ServletWebServerApplicationContext) node).getWebServer().getPort();
+        StompSession session = client.connectAsync("ws://localhost:" + port + "/ws/websocket",
+                        new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() { })
+                .get(10, TimeUnit.SECONDS);
+        session.subscribe(MessageBroadcastService.chatTopic(chatId), new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                frames.add(new Frame(headers, (byte[]) payload));
+            }
+        });
+        return session;
+    }
+
+    /**
+     * Sends every frame as a binary WebSocket frame, as a CBOR-speaking client has to. The STOMP
+     * client, like the server, would otherwise send a CBOR body as text.
+     */
+    private static final class BinaryFramesClient extends StandardWebSocketClient {
+
+        @Override
+        protected CompletableFuture<WebSocketSession> executeInternal(WebSocketHandler handler, HttpHeaders headers, URI uri,
+                                                                      List<String> protocols, List<WebSocketExtension> extensions,
+                                                                      Map<String, Object> attributes) {
+            return super.executeInternal(new WebSocketHandlerDecorator(handler) {
+                @Override
+                public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                    super.afterConnectionEstablished(new WebSocketSessionDecorator(session) {
+                        @Override
+                        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+                            super.sendMessage(message instanceof TextMessage text ? new BinaryMessage(text.asBytes()) : message);
+                        }
+                    });
+                }
+            }, headers, uri, protocols, extensions, attributes);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.pookietalk.controllers;
+
+import com.pookietalk.exceptions.ErrorResponse;
+import com.pookietalk.exceptions.MessageQueueFullException;
+import com.pookietalk.exceptions.NotChatMemberException;
+import com.pookietalk.exceptions.RateLimitExceededException;
+import com.pookietalk.exceptions.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.messaging.handler.annotation.support.AnnotationExceptionHandlerMethodResolver;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatSocketControllerTest {
+
+    private final ChatSocketController controller = new ChatSocketController(null, null, null, null, null);
+    private final AnnotationExceptionHandlerMethodResolver resolver =
+            new AnnotationExceptionHandlerMethodResolver(ChatSocketController.class);
+
+    // Resolves the handler the way Spring's STOMP dispatch does, then runs it
+    private ErrorResponse handle(Exception ex) throws Exception {
+        Method handler = resolver.resolveMethod(ex);
+        assertNotNull(handler, ex.getClass().getName());
+        return (ErrorResponse) handler.invoke(controller, ex);
+    }
+
+    @Test
+    void testClientErrorsKeepTheirStatusAndMessage() throws Exception {
+        assertEquals(403, handle(new AccessDeniedException("no")).getStatus());
+        assertEquals(403, handle(new NotChatMemberException("not a member")).getStatus());
+        assertEquals(429, handle(new RateLimitExceededException("slow down", 1)).getStatus());
+        assertEquals(400, handle(new IllegalArgumentException("bad")).getStatus());
+
+        ErrorResponse invalid = handle(new ValidationException(Map.of("content", "Message content is required")));
+        assertEquals(400, invalid.getStatus());
+        assertTrue(invalid.getMessage().contains("Message content is required"));
+    }
+
+    @Test
+    void testOverloadIsReportedAsUnavailable() throws Exception {
+        ErrorResponse busy = handle(new MessageQueueFullException("Message queue is full"));
+
+        assertEquals(503, busy.getStatus());
+        assertEquals("Message queue is full", busy.getMessage());
+    }
+
+    @Test
+    void testServerFaultsDoNotLeakTheirDetail() throws Exception {
+        ErrorResponse fault = handle(new DataIntegrityViolationException("Duplicate entry 'x' for key 'messages.PRIMARY'"));
+
+        assertEquals(500, fault.getStatus());
+        assertEquals("An unexpected error occurred.", fault.getMessage());
+    }
+}
@@ -0,0 +1,86 @@
+package com.pookietalk.controllers;
+
+import com.pookietalk.dto.MessageDTO;
+import com.pookietalk.exceptions.GlobalExceptionHandler;
+import com.pookietalk.exceptions.NotChatMemberException;
+import com.pookietalk.models.Role;
+import com.pookietalk.models.User;
+import com.pookietalk.services.MessageService;
+import com.pookietalk.services.SendRateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MessageControllerTest {
+
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private SendRateLimiter sendRateLimiter;
+
+    private MessageController messageController;
+    private final User user = new User(7L, "sender", "hashedpassword", "sender@example.com", Role.USER);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        messageController = new MessageController(messageService, sendRateLimiter);
+    }
+
+    @Test
+    void testSenderIsTheAuthenticatedUser() {
+        MessageDTO request = MessageDTO.builder().chatId(1L).senderId(99L).content("spoofed").build();
+        when(messageService.sendMessage(any(MessageDTO.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(HttpStatus.OK, messageController.sendMessage(user, request).getStatusCode());
+
+        ArgumentCaptor<MessageDTO> sent = ArgumentCaptor.forClass(MessageDTO.class);
+        verify(messageService).sendMessage(sent.capture());
+        assertEquals(7L, sent.getValue().getSenderId());
+        verify(sendRateLimiter).acquire(7L, Role.USER);
+    }
+
+    @Test
+    void testMembershipIsCheckedForTheAuthenticatedUser() {
+        // A body naming a member must not get a non-member's message into the chat
+        when(messageService.sendMessage(argThat(message -> message.getSenderId() == 7L)))
+                .thenThrow(new NotChatMemberException("User 7 is not a member of chat 1"));
+        MessageDTO request = MessageDTO.builder().chatId(1L).senderId(8L).content("as a member").build();
+
+        assertThrows(NotChatMemberException.class, () -> messageController.sendMessage(user, request));
+    }
+
+    @Test
+    void testUnauthenticatedSendIsRejected() {
+        MessageDTO request = MessageDTO.builder().chatId(1L).senderId(7L).content("anonymous").build();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, messageController.sendMessage(null, request).getStatusCode());
+        verifyNoInteractions(messageService, sendRateLimiter);
+    }
+
+    @Test
+    void testHistoryIsForbiddenToNonMembers() {
+        when(messageService.getMessagePage(1L, 7L, null, null, null))
+                .thenThrow(new NotChatMemberException("User 7 is not a member of chat 1"));
+
+        NotChatMemberException rejected = assertThrows(NotChatMemberException.class,
+                () -> messageController.getMessageHistory(user, 1L, null, null, null));
+        assertEquals(HttpStatus.FORBIDDEN,
+                new GlobalExceptionHandler().handleNotChatMemberException(rejected).getStatusCode());
+    }
+
+    @Test
+    void testUnauthenticatedHistoryReadIsRejected() {
+        assertEquals(HttpStatus.UNAUTHORIZED,
+                messageController.getMessageHistory(null, 1L, null, null, null).getStatusCode());
+        verifyNoInteractions(messageService);
+    }
+}
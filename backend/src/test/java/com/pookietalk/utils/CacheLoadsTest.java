@@ -0,0 +1,55 @@
+package com.pookietalk.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheLoadsTest {
+
+    private final Cache<Long, String> cache = Caffeine.newBuilder().build();
+
+    @Test
+    void testLoadedValueIsKeptAndMissesAreNot() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("one", CacheLoads.getOrLoad(cache, 1L, key -> { loads.incrementAndGet(); return "one"; }));
+        assertEquals("one", CacheLoads.getOrLoad(cache, 1L, key -> { loads.incrementAndGet(); return "other"; }));
+        assertNull(CacheLoads.getOrLoad(cache, 2L, key -> null));
+
+        assertEquals(1, loads.get());
+        assertNull(cache.getIfPresent(2L));
+    }
+
+    @Test
+    void testValueStoredDuringTheLoadWins() {
+        String loaded = CacheLoads.getOrLoad(cache, 1L, key -> {
+            cache.put(key, "first");
+            return "second";
+        });
+
+        assertEquals("first", loaded);
+        assertEquals("first", cache.getIfPresent(1L));
+    }
+
+    @Test
+    void testLoadThatRacedAnInvalidationIsReturnedButNotKept() {
+        AtomicLong invalidations = new AtomicLong();
+
+        String loaded = CacheLoads.getOrLoad(cache, 1L, key -> {
+            // The row changes after the load read it
+            invalidations.incrementAndGet();
+            cache.invalidate(key);
+            return "stale";
+        }, invalidations);
+
+        assertEquals("stale", loaded);
+        assertNull(cache.getIfPresent(1L));
+        assertEquals("fresh", CacheLoads.getOrLoad(cache, 1L, key -> "fresh", invalidations));
+        assertEquals("fresh", cache.getIfPresent(1L));
+    }
+}
@@ -0,0 +1,83 @@
+package com.pookietalk.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.pookietalk.dto.MessageDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CborWireFormatTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 250_000_000);
+    private static final long EPOCH_MILLIS = TIMESTAMP.toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    private final CborWireFormat wireFormat = new CborWireFormat(Set.of("timestamp"), ZoneOffset.UTC);
+    // Like Spring Boot's mapper: ISO strings for dates
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final CBORMapper cbor = new CBORMapper();
+
+    @Test
+    void testTranscodeKeepsNumbersAndConvertsTimestamps() throws Exception {
+        MessageDTO message = new MessageDTO(7_300_000_000_000_000_001L, 42L, 7L, "hello", TIMESTAMP);
+
+        byte[] encoded = wireFormat.transcode(json.writeValueAsBytes(message));
+
+        JsonNode decoded = cbor.readTree(encoded);
+        assertTrue(decoded.get("id").canConvertToLong());
+        assertEquals(7_300_000_000_000_000_001L, decoded.get("id").longValue());
+        assertEquals(42L, decoded.get("chatId").longValue());
+        assertEquals("hello", decoded.get("content").textValue());
+        assertTrue(decoded.get("timestamp").isIntegralNumber());
+        assertEquals(EPOCH_MILLIS, decoded.get("timestamp").longValue());
+        assertTrue(encoded.length < json.writeValueAsBytes(message).length);
+    }
+
+    @Test
+    void testTranscodeOnlyConvertsNamedFields() {
+        String document = "{\"content\":\"2024-03-01T12:30:15\",\"timestamp\":\"not a date\","
+                + "\"items\":[\"2024-03-01T12:30:15\"],\"nested\":{\"timestamp\":\"2024-03-01T12:30:15.25\"}}";
+
+        JsonNode decoded = readCbor(wireFormat.transcode(document.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("2024-03-01T12:30:15", decoded.get("content").textValue());
+        assertEquals("not a date", decoded.get("timestamp").textValue());
+        assertEquals("2024-03-01T12:30:15", decoded.get("items").get(0).textValue());
+        assertEquals(EPOCH_MILLIS, decoded.get("nested").get("timestamp").longValue());
+    }
+
+    @Test
+    void testTranscodeRejectsInvalidJson() {
+        assertThrows(UncheckedIOException.class, () -> wireFormat.transcode("{\"id\":".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testObjectMapperMatchesTranscodedBytes() throws Exception {
+        MessageDTO message = new MessageDTO(1L, 2L, 3L, "round trip", TIMESTAMP);
+        ObjectMapper mapper = wireFormat.newObjectMapper();
+
+        byte[] direct = mapper.writeValueAsBytes(message);
+
+        assertArrayEquals(wireFormat.transcode(json.writeValueAsBytes(message)), direct);
+        assertEquals(message, mapper.readValue(direct, MessageDTO.class));
+    }
+
+    private JsonNode readCbor(byte[] bytes) {
+        try {
+            return cbor.readTree(bytes);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
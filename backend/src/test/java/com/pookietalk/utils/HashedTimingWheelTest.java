@@ -0,0 +1,46 @@
+package com.pookietalk.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashedTimingWheelTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testItemsFireOnlyOnceTheirDeadlinePasses() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(8, 1, TimeUnit.SECONDS, 0);
+        wheel.schedule("a", 3 * SECOND);
+        wheel.schedule("b", 5 * SECOND);
+
+        assertEquals(List.of(), wheel.advance(2 * SECOND));
+        assertEquals(List.of("a"), wheel.advance(3 * SECOND));
+        assertEquals(List.of("b"), wheel.advance(5 * SECOND));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testDeadlinesBeyondOneRevolutionWaitForTheirRound() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(4, 1, TimeUnit.SECONDS, 0);
+        // Slot 2 is shared by ticks 2 and 6
+        wheel.schedule("later", 6 * SECOND);
+
+        assertEquals(List.of(), wheel.advance(2 * SECOND));
+        assertEquals(List.of(), wheel.advance(5 * SECOND));
+        assertEquals(List.of("later"), wheel.advance(6 * SECOND));
+    }
+
+    @Test
+    void testLongPauseStillFiresEverythingDue() {
+        HashedTimingWheel<Integer> wheel = new HashedTimingWheel<>(4, 1, TimeUnit.SECONDS, 0);
+        for (int i = 1; i <= 10; i++) {
+            wheel.schedule(i, i * SECOND);
+        }
+
+        assertEquals(10, wheel.advance(100 * SECOND).size());
+    }
+}
@@ -0,0 +1,81 @@
+package com.pookietalk.utils;
+
+import com.pookietalk.dto.MessageDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageSegmentTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<MessageDTO> messages(long fromId, long toId) {
+        List<MessageDTO> messages = new ArrayList<>();
+        for (long id = fromId; id <= toId; id++) {
+            messages.add(MessageDTO.builder()
+                    .id(id * 10)
+                    .chatId(5L)
+                    .senderId(id % 3)
+                    .content("message " + id + " é中")
+                    .timestamp(LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(id).plusNanos(123_456_789))
+                    .build());
+        }
+        return messages;
+    }
+
+    private static List<Long> ids(List<MessageDTO> messages) {
+        return messages.stream().map(MessageDTO::getId).toList();
+    }
+
+    @Test
+    void testRoundTripAcrossBlocks() throws IOException {
+        Path file = dir.resolve("segment.seg");
+        List<MessageDTO> written = messages(1, 1000);
+        MessageSegment.write(file, 5L, written, 16);
+
+        MessageSegment segment = MessageSegment.open(file);
+
+        assertEquals(5L, segment.getChatId());
+        assertEquals(1000, segment.getMessageCount());
+        assertEquals(10L, segment.getFirstId());
+        assertEquals(10_000L, segment.getLastId());
+        assertEquals(written, segment.readAll());
+        assertTrue(Files.size(file) < 1000 * 40, "blocks should be compressed");
+    }
+
+    @Test
+    void testRangeReadsUseIdBoundsBetweenAndAcrossBlocks() throws IOException {
+        Path file = dir.resolve("segment.seg");
+        MessageSegment.write(file, 5L, messages(1, 100), 16);
+        MessageSegment segment = MessageSegment.open(file);
+
+        // 175 is not a stored id; ids are multiples of 10
+        assertEquals(List.of(170L, 160L, 150L), ids(segment.readBefore(175, 3)));
+        assertEquals(List.of(160L, 150L, 140L), ids(segment.readBefore(170, 3)));
+        assertEquals(LongStream.rangeClosed(1, 40).map(i -> 410 - i * 10).boxed().toList(), ids(segment.readBefore(410, 40)));
+        assertEquals(List.of(180L, 190L), ids(segment.readAfter(175, 2)));
+        assertEquals(List.of(990L, 1000L), ids(segment.readAfter(980, 10)));
+        assertEquals(List.of(), segment.readAfter(1000, 10));
+        assertEquals(List.of(), segment.readBefore(10, 10));
+    }
+
+    @Test
+    void testUnorderedInputAndForeignFilesAreRejected() throws IOException {
+        List<MessageDTO> unordered = new ArrayList<>(messages(1, 3));
+        unordered.add(unordered.remove(0));
+        assertThrows(IllegalArgumentException.class, () -> MessageSegment.write(dir.resolve("bad.seg"), 5L, unordered, 16));
+
+        Path foreign = Files.writeString(dir.resolve("foreign.seg"), "definitely not a segment file");
+        assertThrows(IllegalStateException.class, () -> MessageSegment.open(foreign));
+    }
+}
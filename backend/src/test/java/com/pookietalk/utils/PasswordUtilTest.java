@@ -0,0 +1,68 @@
+package com.pookietalk.utils;
+
+import com.pookietalk.exceptions.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordUtilTest {
+
+    @Test
+    void hashesOnThePoolAndVerifiesThroughTheEncoderView() {
+        PasswordUtil passwordUtil = new PasswordUtil(4, 2, 8, new SimpleMeterRegistry());
+        PasswordEncoder encoder = passwordUtil.asPasswordEncoder();
+
+        String hash = passwordUtil.encode("secret-password");
+
+        assertTrue(passwordUtil.verifyPassword("secret-password", hash));
+        assertFalse(passwordUtil.verifyPassword("wrong-password", hash));
+        assertTrue(encoder.matches("secret-password", hash));
+        assertTrue(encoder.matches("other", encoder.encode("other")));
+    }
+
+    @Test
+    void turnsCallersAwayWhenTheQueueIsFull() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // One thread and one queue slot: of many simultaneous slow hashes, most must be refused
+        PasswordUtil passwordUtil = new PasswordUtil(10, 1, 1, registry);
+        String hash = passwordUtil.encode("secret-password");
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return passwordUtil.verifyPassword("secret-password", hash);
+            }));
+        }
+        start.countDown();
+
+        int verified = 0;
+        int refused = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                assertTrue(result.get());
+                verified++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(PasswordHashingBusyException.class, e.getCause());
+                refused++;
+            }
+        }
+        pool.shutdown();
+
+        assertTrue(verified >= 1);
+        assertTrue(refused >= 1);
+        assertEquals(refused, registry.get("security.bcrypt.rejected").counter().count());
+    }
+}
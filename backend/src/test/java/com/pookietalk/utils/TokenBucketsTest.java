@@ -0,0 +1,43 @@
+package com.pookietalk.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketsTest {
+
+    @Test
+    void testBurstIsSpentThenRetryAfterIsReportedPerKey() {
+        TokenBuckets.Limit limit = TokenBuckets.Limit.of(0.1, 3);
+        TokenBuckets<String> buckets = new TokenBuckets<>(1000, limit);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, buckets.tryAcquire("a", limit));
+        }
+        long retryAfter = buckets.tryAcquire("a", limit);
+
+        // One token every 10 seconds
+        assertTrue(retryAfter > 0 && retryAfter <= 10, "retry after " + retryAfter);
+        assertEquals(0, buckets.tryAcquire("b", limit));
+    }
+
+    @Test
+    void testKeysCanBeHeldToDifferentLimits() {
+        TokenBuckets.Limit strict = TokenBuckets.Limit.of(0.1, 1);
+        TokenBuckets.Limit loose = TokenBuckets.Limit.of(0.1, 5);
+        TokenBuckets<Long> buckets = new TokenBuckets<>(1000, strict, loose);
+
+        assertEquals(0, buckets.tryAcquire(1L, strict));
+        assertTrue(buckets.tryAcquire(1L, strict) > 0);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, buckets.tryAcquire(2L, loose));
+        }
+    }
+
+    @Test
+    void testRateMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> TokenBuckets.Limit.of(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> TokenBuckets.Limit.of(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> TokenBuckets.Limit.of(Double.NaN, 10));
+    }
+}